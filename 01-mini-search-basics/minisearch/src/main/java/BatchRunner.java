@@ -0,0 +1,163 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a file of queries (one per line) through the index on a pool of worker threads
+ * and streams the top-k hits to an output file as each query finishes.
+ *
+ * Output is tab separated: queryNo, rank, docId, score, headline.
+ * Lines from different queries can interleave in completion order - sort by queryNo if you need input order.
+ * A query whose search throws gets no lines; it is counted as failed in the report and the batch carries on.
+ */
+class BatchRunner {
+    private final InvertedIndex index;
+    private final int workers;
+    private final int k;
+
+    BatchRunner(InvertedIndex index, int workers, int k) {
+        this.index = index;
+        this.workers = Math.max(1, workers);
+        this.k = k;
+    }
+
+    public BatchReport run(Path queryFile, Path outputFile) throws IOException, InterruptedException {
+        List<String> queries = new ArrayList<>();
+        try (var reader = Files.newBufferedReader(queryFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue; // skip blank lines
+                queries.add(line);
+            }
+        }
+
+        long[] latencies = new long[queries.size()];
+        RuntimeException[] errors = new RuntimeException[queries.size()]; // non-null marks a failed query
+        AtomicInteger next = new AtomicInteger();
+
+        try (BufferedWriter out = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            IOException[] failure = new IOException[1];
+            List<Thread> threads = new ArrayList<>();
+
+            long start = System.nanoTime();
+            for (int w = 0; w < workers; w++) {
+                Thread t = new Thread(() -> {
+                    // per-worker buffers, reused for every query this worker picks up
+                    SearchScratch scratch = new SearchScratch();
+                    StringBuilder sb = new StringBuilder();
+
+                    int i;
+                    while ((i = next.getAndIncrement()) < queries.size()) {
+                        long t0 = System.nanoTime();
+                        List<SearchResult> results;
+                        try {
+                            results = index.search(queries.get(i), k, scratch);
+                        } catch (RuntimeException e) {
+                            errors[i] = e;
+                            continue;
+                        }
+                        latencies[i] = System.nanoTime() - t0;
+
+                        sb.setLength(0);
+                        for (int rank = 0; rank < results.size(); rank++) {
+                            SearchResult r = results.get(rank);
+                            sb.append(i).append('\t')
+                                    .append(rank + 1).append('\t')
+                                    .append(r.docId).append('\t')
+                                    .append(String.format("%.4f", r.score)).append('\t')
+                                    .append(r.doc != null ? r.doc.headline : "")
+                                    .append('\n');
+                        }
+
+                        try {
+                            synchronized (out) {
+                                out.append(sb);
+                            }
+                        } catch (IOException e) {
+                            synchronized (failure) {
+                                failure[0] = e;
+                            }
+                            return;
+                        }
+                    }
+                }, "batch-worker-" + w);
+                t.start();
+                threads.add(t);
+            }
+
+            for (Thread t : threads) {
+                t.join();
+            }
+            long wallNanos = System.nanoTime() - start;
+
+            if (failure[0] != null) throw failure[0];
+            return new BatchReport(queries, wallNanos, latencies, errors);
+        }
+    }
+
+    static class BatchReport {
+        private static final int MAX_PRINTED_FAILURES = 5;
+
+        final int queryCount;
+        final long wallNanos;
+        final long[] sortedLatencies; // successful queries only
+        final List<String> failures;  // "queryNo: query -> exception", in input order
+
+        BatchReport(List<String> queries, long wallNanos, long[] latencies, RuntimeException[] errors) {
+            this.queryCount = queries.size();
+            this.wallNanos = wallNanos;
+
+            long[] ok = new long[latencies.length];
+            int okCount = 0;
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < latencies.length; i++) {
+                if (errors[i] == null) {
+                    ok[okCount++] = latencies[i];
+                } else {
+                    failures.add(i + ": " + queries.get(i) + " -> " + errors[i]);
+                }
+            }
+            this.sortedLatencies = Arrays.copyOf(ok, okCount);
+            Arrays.sort(this.sortedLatencies);
+            this.failures = failures;
+        }
+
+        int succeeded() {
+            return sortedLatencies.length;
+        }
+
+        // throughput of queries that actually returned results
+        double qps() {
+            return wallNanos == 0 ? 0.0 : succeeded() / (wallNanos / 1e9);
+        }
+
+        // nearest-rank percentile, q in 0..1
+        double percentileMillis(double q) {
+            if (sortedLatencies.length == 0) return 0.0;
+            int rank = (int) Math.ceil(q * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, rank - 1)] / 1e6;
+        }
+
+        void print() {
+            System.out.printf("Ran %d queries in %.2fs -> %.1f QPS%n", queryCount, wallNanos / 1e9, qps());
+            System.out.printf("Latency ms: p50=%.3f p95=%.3f p99=%.3f%n",
+                    percentileMillis(0.50), percentileMillis(0.95), percentileMillis(0.99));
+            if (failures.isEmpty()) return;
+
+            System.out.printf("%d queries failed (not in the output or the numbers above):%n", failures.size());
+            for (String f : failures.subList(0, Math.min(MAX_PRINTED_FAILURES, failures.size()))) {
+                System.out.println("  " + f);
+            }
+            if (failures.size() > MAX_PRINTED_FAILURES) {
+                System.out.printf("  ... and %d more%n", failures.size() - MAX_PRINTED_FAILURES);
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Approximate nearest-neighbour index: a Hierarchical Navigable Small World graph
+ * (Malkov &amp; Yashunin, 2016).
+ *
+ * - vectors are L2-normalised on insert, distance = 1 - cosine similarity
+ * - vectors live in one flat float[] (or a direct buffer when offHeap = true)
+ * - inserts may run on many threads: each node's link lists are guarded by their own lock
+ *
+ * Capacity is fixed up front since the flat vector storage can't grow.
+ */
+class HnswIndex {
+    private static final int MAX_LEVEL = 16;
+
+    private final int dim;
+    private final int capacity;
+    private final int m;              // max links per node on the upper layers
+    private final int mMax0;          // max links on layer 0 (2*M, as in the paper)
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMult;
+
+    // exactly one of these is non-null
+    private final float[] heapVectors;
+    private final FloatBuffer offHeapVectors;
+
+    private final int[] docIds;        // internal node id -> caller's docId
+    private final int[][][] links;     // [node][layer] -> {count, n1, n2, ...}
+    private final AtomicInteger size = new AtomicInteger();
+
+    // entry point id (low 32 bits) + its level (high 32 bits), swapped as one value
+    private final Object entryLock = new Object();
+    private volatile long entry = -1;
+
+    private final ThreadLocal<SearchContext> contexts;
+
+    HnswIndex(int dim, int capacity, int m, int efConstruction, int efSearch, boolean offHeap) {
+        if (dim <= 0 || capacity <= 0 || m < 2) {
+            throw new IllegalArgumentException("dim and capacity must be positive and M >= 2");
+        }
+        this.dim = dim;
+        this.capacity = capacity;
+        this.m = m;
+        this.mMax0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMult = 1.0 / Math.log(m);
+
+        if (offHeap) {
+            this.heapVectors = null;
+            this.offHeapVectors = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, dim) * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        } else {
+            this.heapVectors = new float[Math.multiplyExact(capacity, dim)];
+            this.offHeapVectors = null;
+        }
+
+        this.docIds = new int[capacity];
+        this.links = new int[capacity][][];
+        this.contexts = ThreadLocal.withInitial(() -> new SearchContext(capacity, mMax0));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int dimension() {
+        return dim;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Inserts all vectors using `threads` workers. vectors[i] belongs to docIds[i].
+     */
+    public void build(int[] ids, float[][] vectors, int threads) throws InterruptedException {
+        if (ids.length != vectors.length) {
+            throw new IllegalArgumentException("Got " + ids.length + " ids but " + vectors.length + " vectors");
+        }
+        if (ids.length == 0) return;
+
+        // the first node becomes the entry point, do it before the workers race for it
+        add(ids[0], vectors[0]);
+
+        AtomicInteger next = new AtomicInteger(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < Math.max(1, threads); w++) {
+            Thread t = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < ids.length) {
+                    add(ids[i], vectors[i]);
+                }
+            }, "hnsw-build-" + w);
+            t.start();
+            workers.add(t);
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+    }
+
+    /**
+     * Adds one vector. Safe to call from several threads at once.
+     */
+    public void add(int docId, float[] vector) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + " dims, got " + vector.length);
+        }
+
+        int node = size.getAndIncrement();
+        if (node >= capacity) {
+            size.decrementAndGet();
+            throw new IllegalStateException("HNSW index is full (capacity " + capacity + ")");
+        }
+
+        float[] q = normalized(vector);
+        storeVector(node, q);
+        docIds[node] = docId;
+
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[maxLinks(l) + 1];
+        }
+        links[node] = nodeLinks;
+
+        insert(node, q, level);
+    }
+
+    /**
+     * Returns the k nearest docs, score = cosine similarity.
+     */
+    public List<SearchResult> search(float[] query, int k) {
+        if (query.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + " dims, got " + query.length);
+        }
+        List<SearchResult> results = new ArrayList<>();
+        long ep = entry;
+        if (ep < 0 || k <= 0) return results;
+
+        float[] q = normalized(query);
+        SearchContext ctx = contexts.get();
+
+        int cur = entryNode(ep);
+        float curDist = distance(q, cur);
+        for (int layer = entryLevel(ep); layer > 0; layer--) {
+            long best = greedyClosest(q, cur, curDist, layer, ctx);
+            cur = nodeOf(best);
+            curDist = distanceOf(best);
+        }
+
+        LongHeap found = searchLayer(q, cur, curDist, Math.max(efSearch, k), 0, ctx);
+        long[] sorted = drainAscending(found);
+
+        for (int i = 0; i < Math.min(k, sorted.length); i++) {
+            results.add(new SearchResult(docIds[nodeOf(sorted[i])], 1.0 - distanceOf(sorted[i]), null));
+        }
+        return results;
+    }
+
+    // --- construction ---
+
+    private void insert(int node, float[] q, int level) {
+        long ep;
+        synchronized (entryLock) {
+            ep = entry;
+            if (ep < 0) {
+                entry = encodeEntry(node, level);
+                return;
+            }
+        }
+
+        SearchContext ctx = contexts.get();
+        int topLevel = entryLevel(ep);
+
+        // greedy descent through the layers above the new node's level
+        int cur = entryNode(ep);
+        float curDist = distance(q, cur);
+        for (int layer = topLevel; layer > level; layer--) {
+            long best = greedyClosest(q, cur, curDist, layer, ctx);
+            cur = nodeOf(best);
+            curDist = distanceOf(best);
+        }
+
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            long[] candidates = drainAscending(searchLayer(q, cur, curDist, efConstruction, layer, ctx));
+            int[] selected = selectNeighbors(candidates, candidates.length, m);
+
+            int[] own = links[node][layer];
+            synchronized (links[node]) {
+                own[0] = selected.length;
+                System.arraycopy(selected, 0, own, 1, selected.length);
+            }
+
+            for (int neighbor : selected) {
+                link(neighbor, node, layer);
+            }
+
+            // closest candidate is the entry point for the next layer down
+            cur = nodeOf(candidates[0]);
+            curDist = distanceOf(candidates[0]);
+        }
+
+        if (level > topLevel) {
+            synchronized (entryLock) {
+                if (level > entryLevel(entry)) {
+                    entry = encodeEntry(node, level);
+                }
+            }
+        }
+    }
+
+    // adds `node` to `target`'s link list, pruning with the heuristic when it overflows
+    private void link(int target, int node, int layer) {
+        synchronized (links[target]) {
+            int[] list = links[target][layer];
+            int count = list[0];
+            int cap = list.length - 1;
+
+            if (count < cap) {
+                list[count + 1] = node;
+                list[0] = count + 1;
+                return;
+            }
+
+            long[] candidates = new long[count + 1];
+            for (int i = 0; i < count; i++) {
+                candidates[i] = encode(distance(target, list[i + 1]), list[i + 1]);
+            }
+            candidates[count] = encode(distance(target, node), node);
+            Arrays.sort(candidates);
+
+            int[] kept = selectNeighbors(candidates, candidates.length, cap);
+            list[0] = kept.length;
+            System.arraycopy(kept, 0, list, 1, kept.length);
+        }
+    }
+
+    /**
+     * Neighbour selection heuristic (algorithm 4 in the paper): skip a candidate if it's closer
+     * to an already selected neighbour than to the base node. Keeps the graph navigable across
+     * clusters; pruned candidates fill any remaining slots.
+     */
+    private int[] selectNeighbors(long[] ascending, int count, int max) {
+        int[] selected = new int[Math.min(max, count)];
+        int n = 0;
+        boolean[] pruned = new boolean[count];
+
+        for (int i = 0; i < count && n < selected.length; i++) {
+            int candidate = nodeOf(ascending[i]);
+            float distToBase = distanceOf(ascending[i]);
+
+            boolean keep = true;
+            for (int j = 0; j < n; j++) {
+                if (distance(candidate, selected[j]) < distToBase) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[n++] = candidate;
+            } else {
+                pruned[i] = true;
+            }
+        }
+
+        for (int i = 0; i < count && n < selected.length; i++) {
+            if (pruned[i]) selected[n++] = nodeOf(ascending[i]);
+        }
+        return n == selected.length ? selected : Arrays.copyOf(selected, n);
+    }
+
+    // --- graph search ---
+
+    // walk to the closest node on one layer, moving while a neighbour is closer
+    private long greedyClosest(float[] q, int start, float startDist, int layer, SearchContext ctx) {
+        int cur = start;
+        float curDist = startDist;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int count = copyLinks(cur, layer, ctx.neighbors);
+            for (int i = 0; i < count; i++) {
+                int candidate = ctx.neighbors[i];
+                float d = distance(q, candidate);
+                if (d < curDist) {
+                    cur = candidate;
+                    curDist = d;
+                    changed = true;
+                }
+            }
+        }
+        return encode(curDist, cur);
+    }
+
+    // best-first search on one layer, returns a max-heap of the ef closest nodes found
+    private LongHeap searchLayer(float[] q, int start, float startDist, int ef, int layer, SearchContext ctx) {
+        ctx.nextVisit();
+        ctx.visit(start);
+
+        LongHeap candidates = ctx.candidates;
+        LongHeap results = ctx.results;
+        candidates.clear();
+        results.clear();
+
+        long startEncoded = encode(startDist, start);
+        candidates.push(startEncoded);
+        results.push(startEncoded);
+
+        while (!candidates.isEmpty()) {
+            long closest = candidates.pop();
+            if (results.size() >= ef && distanceOf(closest) > distanceOf(results.peek())) break;
+
+            int count = copyLinks(nodeOf(closest), layer, ctx.neighbors);
+            for (int i = 0; i < count; i++) {
+                int candidate = ctx.neighbors[i];
+                if (!ctx.visit(candidate)) continue;
+
+                float d = distance(q, candidate);
+                if (results.size() < ef || d < distanceOf(results.peek())) {
+                    long encoded = encode(d, candidate);
+                    candidates.push(encoded);
+                    results.push(encoded);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    private int copyLinks(int node, int layer, int[] out) {
+        synchronized (links[node]) {
+            int[] list = links[node][layer];
+            int count = list[0];
+            System.arraycopy(list, 1, out, 0, count);
+            return count;
+        }
+    }
+
+    private static long[] drainAscending(LongHeap maxHeap) {
+        long[] out = new long[maxHeap.size()];
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = maxHeap.pop();
+        }
+        return out;
+    }
+
+    // --- vectors & distances ---
+
+    private void storeVector(int node, float[] v) {
+        int offset = node * dim;
+        if (heapVectors != null) {
+            System.arraycopy(v, 0, heapVectors, offset, dim);
+        } else {
+            offHeapVectors.put(offset, v);
+        }
+    }
+
+    private float distance(float[] q, int node) {
+        int offset = node * dim;
+        float dot = 0f;
+        if (heapVectors != null) {
+            for (int i = 0; i < dim; i++) dot += q[i] * heapVectors[offset + i];
+        } else {
+            for (int i = 0; i < dim; i++) dot += q[i] * offHeapVectors.get(offset + i);
+        }
+        // clamp: rounding can push 1 - dot slightly below 0, which would break encode()
+        return Math.max(0f, 1f - dot);
+    }
+
+    private float distance(int a, int b) {
+        int offA = a * dim;
+        int offB = b * dim;
+        float dot = 0f;
+        if (heapVectors != null) {
+            for (int i = 0; i < dim; i++) dot += heapVectors[offA + i] * heapVectors[offB + i];
+        } else {
+            for (int i = 0; i < dim; i++) dot += offHeapVectors.get(offA + i) * offHeapVectors.get(offB + i);
+        }
+        return Math.max(0f, 1f - dot);
+    }
+
+    private float[] normalized(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        norm = Math.sqrt(norm);
+
+        float[] out = new float[v.length];
+        if (norm == 0) return out;
+        for (int i = 0; i < v.length; i++) out[i] = (float) (v[i] / norm);
+        return out;
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? mMax0 : m;
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(1.0 - r) * levelMult));
+    }
+
+    // non-negative float bits sort like ints, so (distance, node) packs into one comparable long
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToRawIntBits(distance) << 32) | (node & 0xffffffffL);
+    }
+
+    private static float distanceOf(long encoded) {
+        return Float.intBitsToFloat((int) (encoded >>> 32));
+    }
+
+    private static int nodeOf(long encoded) {
+        return (int) encoded;
+    }
+
+    private static long encodeEntry(int node, int level) {
+        return ((long) level << 32) | (node & 0xffffffffL);
+    }
+
+    private static int entryNode(long entry) {
+        return (int) entry;
+    }
+
+    private static int entryLevel(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Per-thread search buffers: visited marks (generation stamped, so no clearing),
+     * the two heaps and a neighbour copy buffer.
+     */
+    private static class SearchContext {
+        final int[] visitedAt;
+        int generation;
+        final LongHeap candidates = LongHeap.minHeap(64);
+        final LongHeap results = LongHeap.maxHeap(64);
+        final int[] neighbors;
+
+        SearchContext(int capacity, int maxLinks) {
+            this.visitedAt = new int[capacity];
+            this.neighbors = new int[maxLinks];
+        }
+
+        void nextVisit() {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(visitedAt, 0);
+                generation = 1;
+            }
+        }
+
+        // true if the node hadn't been visited yet in this search
+        boolean visit(int node) {
+            if (visitedAt[node] == generation) return false;
+            visitedAt[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blends the lexical (TF-IDF) and vector (HNSW) result lists with reciprocal rank fusion:
+ *
+ *   score(d) = sum over lists of 1 / (rrfK + rank(d))
+ *
+ * RRF only looks at ranks, so the two very different score scales never need calibrating.
+ */
+class HybridSearcher {
+    private final InvertedIndex index;
+    private final HnswIndex ann;
+    private final RandomProjectionEmbedder embedder;
+
+    private int depth = 50;     // how deep we read each list before fusing
+    private int rrfK = 60;      // the usual constant from Cormack et al.
+
+    HybridSearcher(InvertedIndex index, HnswIndex ann, RandomProjectionEmbedder embedder) {
+        this.index = index;
+        this.ann = ann;
+        this.embedder = embedder;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void setRrfK(int rrfK) {
+        this.rrfK = rrfK;
+    }
+
+    public List<SearchResult> search(String query, int k) {
+        int n = Math.max(depth, k);
+        List<SearchResult> lexical = index.search(query, n);
+        List<SearchResult> vector = ann.search(embedder.embed(query), n);
+
+        Map<Integer, Double> fused = new HashMap<>();
+        addRanks(fused, lexical);
+        addRanks(fused, vector);
+
+        List<SearchResult> results = new ArrayList<>();
+        for (Map.Entry<Integer, Double> e : fused.entrySet()) {
+            results.add(new SearchResult(e.getKey(), e.getValue(), index.getDocument(e.getKey())));
+        }
+
+        // sort descending by fused score
+        results.sort((a, b) -> Double.compare(b.score, a.score));
+
+        if (results.size() > k) {
+            return results.subList(0, k);
+        }
+        return results;
+    }
+
+    private void addRanks(Map<Integer, Double> fused, List<SearchResult> ranked) {
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            fused.merge(ranked.get(rank).docId, 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.PrintStream;
+
+/**
+ * Snapshot of how much heap the index is holding on to.
+ *
+ * Sizes are estimates for a 64-bit JVM with compressed oops (12 byte headers,
+ * 4 byte refs, 8 byte alignment) - good enough to spot which structure grows.
+ */
+class IndexMemoryReport {
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REF = 4;
+    static final int HASHMAP_NODE = 32;   // hash, key, value, next
+    static final int ARRAYLIST = 24;      // header + size + modCount + elementData
+    static final int BOXED_INT = 16;
+
+    long termDictionaryBytes;
+    long postingsBytes;
+    long positionsBytes;
+    long storedTextBytes;   // snippet text + token offsets
+    long docLengthsBytes;
+    long documentsBytes;
+
+    int termCount;
+    long postingCount;
+    long positionCount;
+    int maxPostingLength;
+
+    // bucket i counts terms whose posting list length is in [2^(i-1), 2^i)
+    final long[] postingLengthBuckets = new long[32];
+
+    long totalBytes() {
+        return termDictionaryBytes + postingsBytes + positionsBytes + storedTextBytes + docLengthsBytes + documentsBytes;
+    }
+
+    void addPostingLength(int length) {
+        postingLengthBuckets[32 - Integer.numberOfLeadingZeros(length)]++;
+        if (length > maxPostingLength) maxPostingLength = length;
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long stringBytes(String s) {
+        if (s == null) return 0;
+        // String object + latin1 byte[] (close enough for the mostly-ASCII news data)
+        return align(OBJECT_HEADER + 12) + align(ARRAY_HEADER + s.length());
+    }
+
+    static long refArrayBytes(int length) {
+        return align(ARRAY_HEADER + (long) length * REF);
+    }
+
+    // Integer.valueOf caches -128..127, those boxes are shared and cost nothing extra
+    static long boxedIntBytes(int value) {
+        return (value >= -128 && value <= 127) ? 0 : BOXED_INT;
+    }
+
+    // table array of a HashMap holding `size` entries at the default 0.75 load factor
+    static long hashTableBytes(int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+        return refArrayBytes(capacity);
+    }
+
+    void dump(PrintStream out) {
+        out.println("Index memory (estimated):");
+        out.printf("  term dictionary : %,14d bytes (%,d terms)%n", termDictionaryBytes, termCount);
+        out.printf("  postings        : %,14d bytes (%,d postings)%n", postingsBytes, postingCount);
+        out.printf("  positions       : %,14d bytes (%,d positions)%n", positionsBytes, positionCount);
+        out.printf("  text + offsets  : %,14d bytes%n", storedTextBytes);
+        out.printf("  docLengths      : %,14d bytes%n", docLengthsBytes);
+        out.printf("  documents       : %,14d bytes%n", documentsBytes);
+        out.printf("  total           : %,14d bytes%n", totalBytes());
+
+        out.printf("Posting list lengths (max %,d):%n", maxPostingLength);
+        for (int i = 0; i < postingLengthBuckets.length; i++) {
+            if (postingLengthBuckets[i] == 0) continue;
+            long lo = i == 0 ? 0 : 1L << (i - 1);
+            long hi = (1L << i) - 1;
+            out.printf("  %9d - %-9d : %,d terms%n", lo, hi, postingLengthBuckets[i]);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+import static java.lang.Math.log;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+class InvertedIndex {
+    // term -> list of postings
+    private final Map<String, List<Posting>> index = new HashMap<>();
+
+    // docId -> length (number of tokens) in that doc
+    private final Map<Integer, Integer> docLengths = new HashMap<>();
+
+    // optional: store docs by id so you can print results later
+    private final Map<Integer, NewsItem> documents = new HashMap<>();
+
+    // indexed text + [start, end) char offsets of every token, so snippets never re-tokenize
+    private final Map<Integer, String> docTexts = new HashMap<>();
+    private final Map<Integer, int[]> tokenOffsets = new HashMap<>();
+
+    // --- intra-query parallelism ---
+    // posting lists are only sorted by docId while docs arrive in ascending order,
+    // and the range split below relies on that to binary-search partition bounds
+    private int maxDocId = -1;
+    private boolean docIdsAscending = true;
+
+    private ForkJoinPool searchPool = ForkJoinPool.commonPool();
+    private int searchPartitions = 1;            // 1 = always run single-threaded
+    private long parallelWorkThreshold = 50_000; // postings to scan before we bother splitting
+
+    // per-phase search timings, always on (a few nanoTime calls per query)
+    private final QueryMetrics metrics = new QueryMetrics();
+
+    // buffers for callers that don't bring their own SearchScratch
+    private final ThreadLocal<SearchScratch> localScratch = ThreadLocal.withInitial(SearchScratch::new);
+
+    /**
+     * Lets a single heavy query fan out over docId-range partitions.
+     * Queries whose posting lists add up to less than workThreshold stay on the calling thread.
+     */
+    public void enableParallelSearch(ForkJoinPool pool, int partitions, long workThreshold) {
+        this.searchPool = pool;
+        this.searchPartitions = Math.max(1, partitions);
+        this.parallelWorkThreshold = workThreshold;
+    }
+
+    public void addDocument(int docId, NewsItem item, String text) {
+        // scoring accumulates into arrays indexed by docId
+        if (docId < 0) {
+            throw new IllegalArgumentException("docId must be non-negative, got " + docId);
+        }
+        documents.put(docId, item);
+
+        if (docId > maxDocId) {
+            maxDocId = docId;
+        } else {
+            docIdsAscending = false;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        IntStream.Builder offsets = IntStream.builder();
+        String stored = tokenizeInto(text, tokens, offsets);
+        docLengths.put(docId, tokens.size());
+        if (stored != null) {
+            docTexts.put(docId, stored);
+            tokenOffsets.put(docId, offsets.build().toArray());
+        }
+
+        // term -> posting for this doc (so we don't create duplicates)
+        Map<String, Posting> postingsForDoc = new HashMap<>();
+
+        for (int position = 0; position < tokens.size(); position++) {
+            String term = tokens.get(position);
+
+            Posting posting = postingsForDoc.get(term);
+            if (posting == null) {
+                posting = new Posting(docId);
+                postingsForDoc.put(term, posting);
+            }
+            posting.addPosition(position);
+        }
+
+        // merge into global index
+        for (Map.Entry<String, Posting> e : postingsForDoc.entrySet()) {
+            String term = e.getKey();
+            Posting posting = e.getValue();
+
+            List<Posting> postingsList = index.computeIfAbsent(term, t -> new ArrayList<>());
+            postingsList.add(posting);
+        }
+    }
+
+    public List<Posting> getPostings(String term) {
+        return index.getOrDefault(term, Collections.emptyList());
+    }
+
+    public int getDocLength(int docId) {
+        return docLengths.getOrDefault(docId, 0);
+    }
+
+    public Set<String> getTerms() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    public int getDocumentFrequency(String term) {
+        List<Posting> postings = index.get(term);
+        return postings == null ? 0 : postings.size();
+    }
+
+    public NewsItem getDocument(int docId) {
+        return documents.get(docId);
+    }
+
+    String getDocText(int docId) {
+        return docTexts.get(docId);
+    }
+
+    // flattened [start0, end0, start1, end1, ...] for token positions 0, 1, ...
+    int[] getTokenOffsets(int docId) {
+        return tokenOffsets.get(docId);
+    }
+
+    // this doc's posting for a term, or null
+    Posting findPosting(String term, int docId) {
+        List<Posting> postings = index.get(term);
+        if (postings == null) return null;
+
+        if (docIdsAscending) {
+            int i = lowerBound(postings, docId);
+            return i < postings.size() && postings.get(i).docId == docId ? postings.get(i) : null;
+        }
+        for (Posting p : postings) {
+            if (p.docId == docId) return p;
+        }
+        return null;
+    }
+
+    // --- tokenizer ---
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenizeInto(text, tokens);
+        return tokens;
+    }
+
+    // appends tokens to `out` instead of allocating a new list (and skips the regex split)
+    private static void tokenizeInto(String text, List<String> out) {
+        tokenizeInto(text, out, null);
+    }
+
+    /**
+     * Tokenizes and, if offsets != null, records each token's [start, end) char range.
+     * Returns the string those offsets point into: the text itself, or its lowercase form
+     * in the rare case lowercasing changed the length.
+     */
+    private static String tokenizeInto(String text, List<String> out, IntStream.Builder offsets) {
+        if (text == null) return null;
+
+        // lowercase
+        String lower = text.toLowerCase(Locale.ROOT);
+
+        // split on non-letter/non-digit
+        // this turns "omicron-targeted" -> ["omicron", "targeted"]
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            boolean wordChar = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                out.add(lower.substring(start, i));
+                if (offsets != null) {
+                    offsets.add(start);
+                    offsets.add(i);
+                }
+                start = -1;
+            }
+        }
+        return lower.length() == text.length() ? text : lower;
+    }
+
+    public int getDocCount() {
+        return documents.size();
+    }
+
+    public QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Walks every structure and estimates its heap footprint.
+     * O(index size), so call it on demand - not per query.
+     */
+    public IndexMemoryReport memoryReport() {
+        IndexMemoryReport report = new IndexMemoryReport();
+
+        report.termDictionaryBytes = IndexMemoryReport.hashTableBytes(index.size());
+        for (Map.Entry<String, List<Posting>> e : index.entrySet()) {
+            List<Posting> postings = e.getValue();
+
+            report.termCount++;
+            report.termDictionaryBytes += IndexMemoryReport.HASHMAP_NODE + IndexMemoryReport.stringBytes(e.getKey());
+
+            report.addPostingLength(postings.size());
+            report.postingCount += postings.size();
+            report.postingsBytes += IndexMemoryReport.ARRAYLIST + IndexMemoryReport.refArrayBytes(postings.size());
+
+            for (Posting p : postings) {
+                // header + docId + positions ref
+                report.postingsBytes += IndexMemoryReport.align(IndexMemoryReport.OBJECT_HEADER + 4 + IndexMemoryReport.REF);
+
+                report.positionCount += p.positions.size();
+                report.positionsBytes += IndexMemoryReport.ARRAYLIST + IndexMemoryReport.refArrayBytes(p.positions.size());
+                for (int pos : p.positions) {
+                    report.positionsBytes += IndexMemoryReport.boxedIntBytes(pos);
+                }
+            }
+        }
+
+        report.storedTextBytes = IndexMemoryReport.hashTableBytes(docTexts.size())
+                + IndexMemoryReport.hashTableBytes(tokenOffsets.size());
+        for (Map.Entry<Integer, String> e : docTexts.entrySet()) {
+            report.storedTextBytes += 2L * IndexMemoryReport.HASHMAP_NODE + IndexMemoryReport.stringBytes(e.getValue());
+        }
+        for (int[] offsets : tokenOffsets.values()) {
+            report.storedTextBytes += IndexMemoryReport.align(IndexMemoryReport.ARRAY_HEADER + 4L * offsets.length);
+        }
+
+        report.docLengthsBytes = IndexMemoryReport.hashTableBytes(docLengths.size());
+        for (Map.Entry<Integer, Integer> e : docLengths.entrySet()) {
+            report.docLengthsBytes += IndexMemoryReport.HASHMAP_NODE
+                    + IndexMemoryReport.boxedIntBytes(e.getKey())
+                    + IndexMemoryReport.boxedIntBytes(e.getValue());
+        }
+
+        report.documentsBytes = IndexMemoryReport.hashTableBytes(documents.size());
+        for (Map.Entry<Integer, NewsItem> e : documents.entrySet()) {
+            NewsItem item = e.getValue();
+            report.documentsBytes += IndexMemoryReport.HASHMAP_NODE + IndexMemoryReport.boxedIntBytes(e.getKey());
+            if (item == null) continue;
+
+            // NewsItem itself: header + 6 String refs + embedding ref
+            report.documentsBytes += IndexMemoryReport.align(IndexMemoryReport.OBJECT_HEADER + 7 * IndexMemoryReport.REF)
+                    + (item.embedding == null ? 0 : IndexMemoryReport.align(IndexMemoryReport.ARRAY_HEADER + 4L * item.embedding.length))
+                    + IndexMemoryReport.stringBytes(item.category)
+                    + IndexMemoryReport.stringBytes(item.headline)
+                    + IndexMemoryReport.stringBytes(item.authors)
+                    + IndexMemoryReport.stringBytes(item.link)
+                    + IndexMemoryReport.stringBytes(item.short_description)
+                    + IndexMemoryReport.stringBytes(item.date);
+        }
+
+        return report;
+    }
+
+    // --- TF-IDF search ---
+    public List<SearchResult> search(String query, int k) {
+        return search(query, k, localScratch.get());
+    }
+
+    /**
+     * Same as search(query, k) but reuses the caller's buffers.
+     * The scratch must not be shared between threads.
+     */
+    public List<SearchResult> search(String query, int k, SearchScratch scratch) {
+        long t0 = System.nanoTime();
+        scratch.reset(maxDocId + 1);
+
+        List<String> queryTerms = scratch.tokens;
+        tokenizeInto(query, queryTerms);
+        long t1 = System.nanoTime();
+        metrics.record(QueryPhase.TOKENIZE, t1 - t0);
+
+        int N = getDocCount();
+
+        // resolve postings + idf once, both scoring paths share them read-only
+        List<List<Posting>> termPostings = scratch.termPostings;
+        List<Double> termIdfs = scratch.termIdfs;
+        long work = 0; // estimated work = total postings we'd have to walk
+
+        for (String term : queryTerms) {
+            List<Posting> postings = index.get(term);
+            if (postings == null) continue;
+
+            int df = postings.size();
+            if (df == 0) continue;
+
+            // idf = log(N / df)
+            double idf = log((N + 1.0) / (df + 1.0)); // +1 to be safe
+
+            termPostings.add(postings);
+            termIdfs.add(idf);
+            work += df;
+        }
+        metrics.record(QueryPhase.LOOKUP, System.nanoTime() - t1);
+
+        List<SearchResult> results = shouldSplit(work)
+                ? searchPartitioned(termPostings, termIdfs, k)
+                : searchSequential(scratch, k);
+        metrics.queryDone();
+        return results;
+    }
+
+    private List<SearchResult> searchSequential(SearchScratch scratch, int k) {
+        long t0 = System.nanoTime();
+        double[] scores = scratch.scores;
+        boolean[] matched = scratch.matched;
+
+        for (int t = 0; t < scratch.termPostings.size(); t++) {
+            double idf = scratch.termIdfs.get(t);
+
+            for (Posting p : scratch.termPostings.get(t)) {
+                int tf = p.positions.size();                // tf(term, doc)
+                double tfWeight = 1.0 + log(tf);            // log-scaled TF
+                double scoreAdd = tfWeight * idf;
+
+                if (!matched[p.docId]) {
+                    matched[p.docId] = true;
+                    scratch.touched[scratch.touchedCount++] = p.docId;
+                }
+                scores[p.docId] += scoreAdd;
+            }
+        }
+        long t1 = System.nanoTime();
+        metrics.record(QueryPhase.SCORE, t1 - t0);
+
+        // keep the top K in a min-heap instead of sorting every match
+        PriorityQueue<SearchResult> topK = scratch.topK;
+        if (k > 0) {
+            for (int i = 0; i < scratch.touchedCount; i++) {
+                int docId = scratch.touched[i];
+                offer(topK, docId, scores[docId], k);
+            }
+        }
+
+        // best first
+        List<SearchResult> results = new ArrayList<>(topK);
+        results.sort(SearchResult.BEST_FIRST);
+        long t2 = System.nanoTime();
+        metrics.record(QueryPhase.TOP_K, t2 - t1);
+
+        List<SearchResult> fetched = fetchDocuments(results);
+        metrics.record(QueryPhase.FETCH, System.nanoTime() - t2);
+        return fetched;
+    }
+
+    private List<SearchResult> fetchDocuments(List<SearchResult> hits) {
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (SearchResult r : hits) {
+            results.add(new SearchResult(r.docId, r.score, documents.get(r.docId)));
+        }
+        return results;
+    }
+
+    private boolean shouldSplit(long work) {
+        if (searchPartitions <= 1 || !docIdsAscending) return false;
+        return work >= parallelWorkThreshold;
+    }
+
+    private List<SearchResult> searchPartitioned(List<List<Posting>> termPostings, List<Double> termIdfs, int k) {
+        if (k <= 0) return new ArrayList<>();
+
+        long t0 = System.nanoTime();
+
+        // split [0, maxDocId] into equal docId ranges
+        int docRange = maxDocId + 1;
+        int partitions = Math.min(searchPartitions, Math.max(1, docRange));
+        int width = (docRange + partitions - 1) / partitions;
+
+        List<PartitionTask> tasks = new ArrayList<>();
+        for (int lo = 0; lo < docRange; lo += width) {
+            PartitionTask task = new PartitionTask(termPostings, termIdfs, lo, Math.min(docRange, lo + width), k);
+            searchPool.execute(task);
+            tasks.add(task);
+        }
+
+        List<List<SearchResult>> partitionTops = new ArrayList<>(tasks.size());
+        for (PartitionTask task : tasks) {
+            partitionTops.add(task.join());
+        }
+        long t1 = System.nanoTime();
+        metrics.record(QueryPhase.SCORE, t1 - t0);
+
+        // merge the partition-local top-k heaps into a global one
+        PriorityQueue<SearchResult> topK = new PriorityQueue<>(k, SearchResult.WORST_FIRST);
+        for (List<SearchResult> partitionTop : partitionTops) {
+            for (SearchResult r : partitionTop) {
+                offer(topK, r, k);
+            }
+        }
+
+        List<SearchResult> results = new ArrayList<>(topK);
+        results.sort(SearchResult.BEST_FIRST);
+        long t2 = System.nanoTime();
+        metrics.record(QueryPhase.TOP_K, t2 - t1);
+
+        List<SearchResult> fetched = fetchDocuments(results);
+        metrics.record(QueryPhase.FETCH, System.nanoTime() - t2);
+        return fetched;
+    }
+
+    // same as below, but only allocates a SearchResult when the doc actually makes the cut
+    private static void offer(PriorityQueue<SearchResult> heap, int docId, double score, int k) {
+        if (heap.size() < k) {
+            heap.add(new SearchResult(docId, score, null));
+        } else if (score > heap.peek().score || (score == heap.peek().score && docId < heap.peek().docId)) {
+            heap.poll();
+            heap.add(new SearchResult(docId, score, null));
+        }
+    }
+
+    // keep only the k best in a min-heap (worst at the head, see SearchResult.WORST_FIRST)
+    private static void offer(PriorityQueue<SearchResult> heap, SearchResult r, int k) {
+        if (heap.size() < k) {
+            heap.add(r);
+        } else if (SearchResult.BEST_FIRST.compare(r, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(r);
+        }
+    }
+
+    // first posting with docId >= target (posting lists are sorted by docId)
+    private static int lowerBound(List<Posting> postings, int target) {
+        int lo = 0, hi = postings.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (postings.get(mid).docId < target) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Scores one docId range [lo, hi) and keeps a local top-k.
+     * Accumulates into a dense array instead of a HashMap since the range is known up front.
+     * Never serialized; ForkJoinTask just happens to implement Serializable.
+     */
+    @SuppressWarnings("serial")
+    private static class PartitionTask extends RecursiveTask<List<SearchResult>> {
+        private final List<List<Posting>> termPostings;
+        private final List<Double> termIdfs;
+        private final int lo;
+        private final int hi;
+        private final int k;
+
+        PartitionTask(List<List<Posting>> termPostings, List<Double> termIdfs, int lo, int hi, int k) {
+            this.termPostings = termPostings;
+            this.termIdfs = termIdfs;
+            this.lo = lo;
+            this.hi = hi;
+            this.k = k;
+        }
+
+        @Override
+        protected List<SearchResult> compute() {
+            double[] scores = new double[hi - lo];
+            boolean[] matched = new boolean[hi - lo];
+
+            for (int t = 0; t < termPostings.size(); t++) {
+                List<Posting> postings = termPostings.get(t);
+                double idf = termIdfs.get(t);
+
+                for (int i = lowerBound(postings, lo); i < postings.size(); i++) {
+                    Posting p = postings.get(i);
+                    if (p.docId >= hi) break;
+
+                    int tf = p.positions.size();
+                    scores[p.docId - lo] += (1.0 + log(tf)) * idf;
+                    matched[p.docId - lo] = true;
+                }
+            }
+
+            PriorityQueue<SearchResult> topK = new PriorityQueue<>(k, SearchResult.WORST_FIRST);
+            for (int i = 0; i < scores.length; i++) {
+                if (matched[i]) {
+                    offer(topK, new SearchResult(lo + i, scores[i], null), k);
+                }
+            }
+            return new ArrayList<>(topK);
+        }
+    }
+}
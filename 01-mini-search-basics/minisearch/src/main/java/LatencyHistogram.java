@@ -0,0 +1,45 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two nanosecond buckets.
+ * Recording is one array increment + two adders, so it's cheap enough for the hot path.
+ */
+class LatencyHistogram {
+    // bucket i holds samples in [2^(i-1), 2^i) ns, bucket 0 holds 0ns
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    double meanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) totalNanos.sum() / n;
+    }
+
+    // upper bound of the bucket containing quantile q (0..1), so it over-reports by at most 2x
+    long percentileNanos(double q) {
+        long n = count.sum();
+        if (n == 0) return 0;
+
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Binary heap of primitive longs, so hot loops don't box.
+ * HnswIndex packs (distance, nodeId) into one long - see HnswIndex.encode.
+ */
+class LongHeap {
+    private final boolean max;
+    private long[] heap;
+    private int size;
+
+    LongHeap(int initialCapacity, boolean max) {
+        this.heap = new long[Math.max(1, initialCapacity)];
+        this.max = max;
+    }
+
+    static LongHeap minHeap(int initialCapacity) {
+        return new LongHeap(initialCapacity, false);
+    }
+
+    static LongHeap maxHeap(int initialCapacity) {
+        return new LongHeap(initialCapacity, true);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    long peek() {
+        return heap[0];
+    }
+
+    void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        heap[i] = value;
+
+        // sift up
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(heap[i], heap[parent])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    long pop() {
+        long top = heap[0];
+        heap[0] = heap[--size];
+
+        // sift down
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+
+            int child = left;
+            if (left + 1 < size && before(heap[left + 1], heap[left])) child = left + 1;
+            if (!before(heap[child], heap[i])) break;
+
+            swap(i, child);
+            i = child;
+        }
+        return top;
+    }
+
+    private boolean before(long a, long b) {
+        return max ? a > b : a < b;
+    }
+
+    private void swap(int i, int j) {
+        long tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
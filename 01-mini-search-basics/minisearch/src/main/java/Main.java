@@ -1,224 +1,141 @@
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import static java.lang.Math.log;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
-class NewsItem {
-    public String category;
-    public String headline;
-    public String authors;
-    public String link;
-    public String short_description;
-    public String date;
-}
-
-class SearchResult {
-    final int docId;
-    final double score;
-    final NewsItem doc;
-
-    SearchResult(int docId, double score, NewsItem doc) {
-        this.docId = docId;
-        this.score = score;
-        this.doc = doc;
-    }
-}
-
-class Searching {
-    public List<NewsItem> LoadJson() throws IOException {
-        Path jsonPath = Path.of("data", "News_Category_Dataset.json");
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        List<NewsItem> items = new ArrayList<>();
-
-        try (var reader = Files.newBufferedReader(jsonPath, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue; // skip blank lines
-
-                NewsItem item = objectMapper.readValue(line, NewsItem.class);
-                items.add(item);
-            }
+public class Main {
+    /**
+     * Interactive by default. Other modes:
+     *   java Main --ann                                              (hybrid TF-IDF + HNSW search)
+     *   java Main --batch <queries.txt> <results.tsv> [workers] [k]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--batch") && args.length < 3) {
+            System.err.println("Usage: java Main --batch <queries.txt> <results.tsv> [workers] [k]");
+            System.exit(2);
         }
 
-        System.out.println("Loaded " + items.size() + " news items.");
-        return items;
-    }
-}
-
-class Posting {
-    int docId;
-    List<Integer> positions = new ArrayList<>();
-
-    Posting(int docId) {
-        this.docId = docId;
-    }
-
-    void addPosition(int pos) {
-        positions.add(pos);
-    }
-}
-
-class InvertedIndex {
-    // term -> list of postings
-    private final Map<String, List<Posting>> index = new HashMap<>();
-
-    // docId -> length (number of tokens) in that doc
-    private final Map<Integer, Integer> docLengths = new HashMap<>();
-
-    // optional: store docs by id so you can print results later
-    private final Map<Integer, NewsItem> documents = new HashMap<>();
-
-    public void addDocument(int docId, NewsItem item, String text) {
-        documents.put(docId, item);
-
-        List<String> tokens = tokenize(text);
-        docLengths.put(docId, tokens.size());
-
-        // term -> posting for this doc (so we don't create duplicates)
-        Map<String, Posting> postingsForDoc = new HashMap<>();
-
-        for (int position = 0; position < tokens.size(); position++) {
-            String term = tokens.get(position);
+        Searching srch = new Searching();
+        List<NewsItem> items = srch.LoadJson();
 
-            Posting posting = postingsForDoc.get(term);
-            if (posting == null) {
-                posting = new Posting(docId);
-                postingsForDoc.put(term, posting);
-            }
-            posting.addPosition(position);
+        InvertedIndex index = new InvertedIndex();
+        for (int docId = 0; docId < items.size(); docId++) {
+            NewsItem item = items.get(docId);
+            String text = item.headline + " " + item.short_description;
+            index.addDocument(docId, item, text);
         }
 
-        // merge into global index
-        for (Map.Entry<String, Posting> e : postingsForDoc.entrySet()) {
-            String term = e.getKey();
-            Posting posting = e.getValue();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            int k = args.length > 4 ? Integer.parseInt(args[4]) : 10;
 
-            List<Posting> postingsList = index.computeIfAbsent(term, t -> new ArrayList<>());
-            postingsList.add(posting);
+            // the workers already keep every core busy, so no intra-query splitting here
+            BatchRunner runner = new BatchRunner(index, workers, k);
+            runner.run(Path.of(args[1]), Path.of(args[2])).print();
+            index.getQueryMetrics().dump(System.out);
+            return;
         }
-    }
-
-    public List<Posting> getPostings(String term) {
-        return index.getOrDefault(term, Collections.emptyList());
-    }
-
-    public int getDocLength(int docId) {
-        return docLengths.getOrDefault(docId, 0);
-    }
-
-    public int getDocumentFrequency(String term) {
-        List<Posting> postings = index.get(term);
-        return postings == null ? 0 : postings.size();
-    }
-
-    public NewsItem getDocument(int docId) {
-        return documents.get(docId);
-    }
-
-    // --- tokenizer ---
-    private static List<String> tokenize(String text) {
-        List<String> tokens = new ArrayList<>();
-        if (text == null) return tokens;
-
-        // lowercase
-        String lower = text.toLowerCase(Locale.ROOT);
 
-        // split on non-letter/non-digit
-        // this turns "omicron-targeted" -> ["omicron", "targeted"]
-        String[] parts = lower.split("[^a-z0-9]+");
-
-        for (String p : parts) {
-            if (!p.isEmpty()) {
-                tokens.add(p);
+        // split heavy queries across all cores; cheap ones stay single-threaded
+        index.enableParallelSearch(ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors(), 50_000);
+
+        // optional vector side: dataset vectors if every item has one, else random projection of TF-IDF
+        HnswIndex ann = null;
+        HybridSearcher hybrid = null;
+        float[][] vectors = null;
+        if (args.length > 0 && args[0].equals("--ann")) {
+            vectors = datasetVectors(items);
+            RandomProjectionEmbedder embedder = null;
+            if (vectors == null) {
+                embedder = new RandomProjectionEmbedder(index, 256);
+                List<String> texts = new ArrayList<>();
+                for (NewsItem item : items) texts.add(item.headline + " " + item.short_description);
+                vectors = embedder.embedAll(texts);
             }
-        }
-        return tokens;
-    }
-
-    public int getDocCount() {
-        return documents.size();
-    }
-
-    // --- TF-IDF search ---
-    public List<SearchResult> search(String query, int k) {
-        List<String> queryTerms = tokenize(query);
-        Map<Integer, Double> scores = new HashMap<>();
-
-        int N = getDocCount();
-
-        for (String term : queryTerms) {
-            List<Posting> postings = index.get(term);
-            if (postings == null) continue;
 
-            int df = postings.size();
-            if (df == 0) continue;
+            int[] docIds = new int[items.size()];
+            for (int i = 0; i < docIds.length; i++) docIds[i] = i;
 
-            // idf = log(N / df)
-            double idf = log((N + 1.0) / (df + 1.0)); // +1 to be safe
+            long start = System.nanoTime();
+            ann = new HnswIndex(vectors.length > 0 ? vectors[0].length : 1, Math.max(1, items.size()), 16, 200, 64, false);
+            ann.build(docIds, vectors, Runtime.getRuntime().availableProcessors());
+            System.out.printf("Built HNSW over %d vectors in %.1fs%n", ann.size(), (System.nanoTime() - start) / 1e9);
 
-            for (Posting p : postings) {
-                int tf = p.positions.size();                // tf(term, doc)
-                double tfWeight = 1.0 + log(tf);            // log-scaled TF
-                double scoreAdd = tfWeight * idf;
-
-                scores.merge(p.docId, scoreAdd, Double::sum);
+            // queries can only be embedded when we produced the doc vectors ourselves
+            if (embedder != null) {
+                hybrid = new HybridSearcher(index, ann, embedder);
             }
         }
 
-        // Convert to SearchResult list
-        List<SearchResult> results = new ArrayList<>();
-        for (Map.Entry<Integer, Double> e : scores.entrySet()) {
-            int docId = e.getKey();
-            double score = e.getValue();
-            NewsItem doc = documents.get(docId);
-            results.add(new SearchResult(docId, score, doc));
-        }
-
-        // sort descending by score
-        results.sort((a, b) -> Double.compare(b.score, a.score));
-
-        // return top K
-        if (results.size() > k) {
-            return results.subList(0, k);
-        }
-        return results;
-    }
-}
-
-
-public class Main {
-    public static void main(String[] args) throws Exception {
-        Searching srch = new Searching();
-        List<NewsItem> items = srch.LoadJson();
-
-        InvertedIndex index = new InvertedIndex();
-        for (int docId = 0; docId < items.size(); docId++) {
-            NewsItem item = items.get(docId);
-            String text = item.headline + " " + item.short_description;
-            index.addDocument(docId, item, text);
-        }
+        SpellingSuggester speller = SpellingSuggester.fromIndex(index);
+        SnippetGenerator snippetGenerator = new SnippetGenerator(index);
 
         Scanner scanner = new Scanner(System.in);
         while (true) {
-            System.out.print("\nEnter query (or blank to quit): ");
+            System.out.print("\nEnter query (:stats for index stats, blank to quit): ");
             String q = scanner.nextLine().trim();
             if (q.isEmpty()) break;
 
-            List<SearchResult> results = index.search(q, 5); // top 5
-            for (SearchResult r : results) {
+            if (q.equals(":stats")) {
+                index.memoryReport().dump(System.out);
+                index.getQueryMetrics().dump(System.out);
+                continue;
+            }
+
+            if (q.startsWith(":similar ") && ann != null) {
+                int docId = parseDocId(q.substring(9).trim(), vectors.length);
+                if (docId < 0) {
+                    System.out.println("Usage: :similar <docId>, with 0 <= docId < " + vectors.length);
+                    continue;
+                }
+                for (SearchResult r : ann.search(vectors[docId], 6)) {
+                    if (r.docId == docId) continue;
+                    System.out.printf("sim=%.4f | %s%n", r.score, index.getDocument(r.docId).headline);
+                }
+                continue;
+            }
+
+            List<SearchResult> results = hybrid != null
+                    ? hybrid.search(q, 5)
+                    : index.search(q, 5); // top 5
+            if (results.isEmpty()) {
+                String suggestion = speller.suggest(q);
+                System.out.println(suggestion != null ? "No results. Did you mean: " + suggestion + "?" : "No results.");
+                continue;
+            }
+            List<String> snippets = snippetGenerator.snippets(q, results);
+            for (int i = 0; i < results.size(); i++) {
+                SearchResult r = results.get(i);
                 System.out.printf("score=%.4f | %s (%s)%n",
                         r.score,
                         r.doc.headline,
                         r.doc.link);
+                System.out.println("    " + snippets.get(i));
             }
         }
     }
-}
 
+    // -1 unless the text is a docId in [0, docCount)
+    private static int parseDocId(String text, int docCount) {
+        try {
+            int docId = Integer.parseInt(text);
+            return docId >= 0 && docId < docCount ? docId : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // null unless every item carries an embedding of the same size
+    private static float[][] datasetVectors(List<NewsItem> items) {
+        if (items.isEmpty() || items.get(0).embedding == null) return null;
+
+        int dim = items.get(0).embedding.length;
+        float[][] vectors = new float[items.size()][];
+        for (int i = 0; i < items.size(); i++) {
+            float[] v = items.get(i).embedding;
+            if (v == null || v.length != dim) return null;
+            vectors[i] = v;
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,9 @@
+class NewsItem {
+    public String category;
+    public String headline;
+    public String authors;
+    public String link;
+    public String short_description;
+    public String date;
+    public float[] embedding; // optional precomputed dense vector, used by the ANN index
+}
@@ -0,0 +1,14 @@
+import java.util.*;
+
+class Posting {
+    int docId;
+    List<Integer> positions = new ArrayList<>();
+
+    Posting(int docId) {
+        this.docId = docId;
+    }
+
+    void addPosition(int pos) {
+        positions.add(pos);
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase timings for InvertedIndex.search.
+ */
+class QueryMetrics {
+    private final Map<QueryPhase, LatencyHistogram> phases = new EnumMap<>(QueryPhase.class);
+    private final LongAdder queries = new LongAdder();
+
+    QueryMetrics() {
+        for (QueryPhase phase : QueryPhase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    void record(QueryPhase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    void queryDone() {
+        queries.increment();
+    }
+
+    LatencyHistogram histogram(QueryPhase phase) {
+        return phases.get(phase);
+    }
+
+    long queryCount() {
+        return queries.sum();
+    }
+
+    void dump(PrintStream out) {
+        out.printf("Query phases (%d queries, times in us):%n", queryCount());
+        out.printf("  %-9s %10s %10s %10s %10s%n", "phase", "mean", "p50", "p95", "p99");
+        for (QueryPhase phase : QueryPhase.values()) {
+            LatencyHistogram h = phases.get(phase);
+            out.printf("  %-9s %10.1f %10.1f %10.1f %10.1f%n",
+                    phase,
+                    h.meanNanos() / 1000.0,
+                    h.percentileNanos(0.50) / 1000.0,
+                    h.percentileNanos(0.95) / 1000.0,
+                    h.percentileNanos(0.99) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+// the steps every search goes through, in order
+enum QueryPhase {
+    TOKENIZE, LOOKUP, SCORE, TOP_K, FETCH
+}
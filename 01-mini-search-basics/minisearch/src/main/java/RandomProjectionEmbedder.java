@@ -0,0 +1,75 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Math.log;
+
+/**
+ * Turns text into a dense vector without any external model: the sparse TF-IDF vector
+ * (same weighting as InvertedIndex.search) is multiplied by a random +-1 matrix.
+ * By Johnson-Lindenstrauss, cosine similarity is roughly preserved.
+ *
+ * The matrix is never stored - each term's row is regenerated from a hash of the term,
+ * so documents and queries always land in the same space.
+ */
+class RandomProjectionEmbedder {
+    private final InvertedIndex index;
+    private final int dim;
+
+    RandomProjectionEmbedder(InvertedIndex index, int dim) {
+        this.index = index;
+        this.dim = dim;
+    }
+
+    public int dimension() {
+        return dim;
+    }
+
+    public float[] embed(String text) {
+        Map<String, Integer> termFreqs = new HashMap<>();
+        for (String term : InvertedIndex.tokenize(text)) {
+            termFreqs.merge(term, 1, Integer::sum);
+        }
+
+        float[] v = new float[dim];
+        int N = index.getDocCount();
+
+        for (Map.Entry<String, Integer> e : termFreqs.entrySet()) {
+            int df = index.getDocumentFrequency(e.getKey());
+            if (df == 0) continue; // unknown terms carry no signal
+
+            double weight = (1.0 + log(e.getValue())) * log((N + 1.0) / (df + 1.0));
+            addRow(v, e.getKey().hashCode(), (float) weight);
+        }
+        return v;
+    }
+
+    // v += weight * row(term), row entries are +-1 drawn from a splitmix64 stream
+    private void addRow(float[] v, int termHash, float weight) {
+        long state = termHash * 0x9E3779B97F4A7C15L;
+        long bits = 0;
+
+        for (int i = 0; i < dim; i++) {
+            if ((i & 63) == 0) {
+                state += 0x9E3779B97F4A7C15L;
+                bits = mix(state);
+            }
+            v[i] += ((bits >>> (i & 63)) & 1) == 0 ? weight : -weight;
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // convenience for building the ANN index from what's already in the inverted index
+    public float[][] embedAll(List<String> texts) {
+        float[][] vectors = new float[texts.size()][];
+        for (int i = 0; i < texts.size(); i++) {
+            vectors[i] = embed(texts.get(i));
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,21 @@
+import java.util.Comparator;
+
+class SearchResult {
+    // higher score first, lower docId on a tie, so every search path makes the same top-k cut
+    static final Comparator<SearchResult> BEST_FIRST = (a, b) -> {
+        int c = Double.compare(b.score, a.score);
+        return c != 0 ? c : Integer.compare(a.docId, b.docId);
+    };
+    // heap order for a top-k cut: the result that would be dropped next at the head
+    static final Comparator<SearchResult> WORST_FIRST = BEST_FIRST.reversed();
+
+    final int docId;
+    final double score;
+    final NewsItem doc;
+
+    SearchResult(int docId, double score, NewsItem doc) {
+        this.docId = docId;
+        this.score = score;
+        this.doc = doc;
+    }
+}
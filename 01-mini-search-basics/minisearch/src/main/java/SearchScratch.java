@@ -0,0 +1,44 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Reusable buffers for one InvertedIndex.search call.
+ * A worker keeps one of these and hands it to every query it runs, so steady-state
+ * searching doesn't allocate a new token list / score map / heap per query.
+ *
+ * Not thread-safe - one instance per thread.
+ */
+class SearchScratch {
+    final List<String> tokens = new ArrayList<>();
+    final List<List<Posting>> termPostings = new ArrayList<>();
+    final List<Double> termIdfs = new ArrayList<>();
+
+    // dense docId -> score accumulator; only the slots we touched get cleared again
+    double[] scores = new double[0];
+    boolean[] matched = new boolean[0];
+    int[] touched = new int[0];
+    int touchedCount;
+
+    // min-heap (worst result at the head) used for the top-k cut
+    final PriorityQueue<SearchResult> topK = new PriorityQueue<>(SearchResult.WORST_FIRST);
+
+    void reset(int docRange) {
+        if (scores.length < docRange) {
+            scores = new double[docRange];
+            matched = new boolean[docRange];
+            touched = new int[docRange];
+        } else {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0.0;
+                matched[touched[i]] = false;
+            }
+        }
+        touchedCount = 0;
+
+        tokens.clear();
+        termPostings.clear();
+        termIdfs.clear();
+        topK.clear();
+    }
+}
@@ -0,0 +1,30 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+class Searching {
+    public List<NewsItem> LoadJson() throws IOException {
+        Path jsonPath = Path.of("data", "News_Category_Dataset.json");
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<NewsItem> items = new ArrayList<>();
+
+        try (var reader = Files.newBufferedReader(jsonPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue; // skip blank lines
+
+                NewsItem item = objectMapper.readValue(line, NewsItem.class);
+                items.add(item);
+            }
+        }
+
+        System.out.println("Loaded " + items.size() + " news items.");
+        return items;
+    }
+}
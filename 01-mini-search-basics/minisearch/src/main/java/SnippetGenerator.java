@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static java.lang.Math.log;
+
+/**
+ * Query-highlighted snippets for search hits.
+ *
+ * Match positions come straight from the postings and are mapped to characters through the
+ * token offsets recorded at index time, so the stored text is never re-tokenized.
+ * The snippet is the window of windowTokens tokens that covers the most (idf-weighted)
+ * distinct query terms.
+ */
+class SnippetGenerator {
+    private final InvertedIndex index;
+
+    private int windowTokens = 24;
+    private String preTag = "**";
+    private String postTag = "**";
+
+    SnippetGenerator(InvertedIndex index) {
+        this.index = index;
+    }
+
+    public void setWindowTokens(int windowTokens) {
+        this.windowTokens = Math.max(1, windowTokens);
+    }
+
+    public void setTags(String preTag, String postTag) {
+        this.preTag = preTag;
+        this.postTag = postTag;
+    }
+
+    /**
+     * One snippet per hit, in the same order. The query is tokenized once for all hits.
+     */
+    public List<String> snippets(String query, List<SearchResult> hits) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(InvertedIndex.tokenize(query)));
+
+        // rarer terms make a window more interesting, same idf as the scorer
+        int N = index.getDocCount();
+        double[] weights = new double[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            int df = index.getDocumentFrequency(terms.get(t));
+            weights[t] = log((N + 1.0) / (df + 1.0)) + 0.01; // keep very common terms above zero
+        }
+
+        List<String> snippets = new ArrayList<>(hits.size());
+        for (SearchResult hit : hits) {
+            snippets.add(snippet(hit.docId, terms, weights));
+        }
+        return snippets;
+    }
+
+    String snippet(int docId, List<String> terms, double[] weights) {
+        String text = index.getDocText(docId);
+        int[] offsets = index.getTokenOffsets(docId);
+        if (text == null || offsets == null || offsets.length == 0) return "";
+
+        int tokenCount = offsets.length / 2;
+        long[] matches = collectMatches(docId, terms);
+
+        // pick the window [start, end) in token positions
+        int start = 0;
+        if (matches.length > 0) {
+            int[] best = bestWindow(matches, terms.size(), weights);
+            int covered = best[1] - best[0] + 1;
+            start = Math.max(0, best[0] - (windowTokens - covered) / 2);
+        }
+        int end = Math.min(tokenCount, start + windowTokens);
+        start = Math.max(0, end - windowTokens);
+
+        StringBuilder sb = new StringBuilder();
+        if (start > 0) sb.append("...");
+
+        int cursor = offsets[2 * start];
+        int lastPos = -1;
+        for (long m : matches) {
+            int pos = positionOf(m);
+            if (pos < start || pos >= end || pos == lastPos) continue;
+            lastPos = pos;
+
+            int tokStart = offsets[2 * pos];
+            int tokEnd = offsets[2 * pos + 1];
+            sb.append(text, cursor, tokStart).append(preTag).append(text, tokStart, tokEnd).append(postTag);
+            cursor = tokEnd;
+        }
+        sb.append(text, cursor, offsets[2 * (end - 1) + 1]);
+
+        if (end < tokenCount) sb.append("...");
+        return sb.toString();
+    }
+
+    // every (position, term) match in this doc, sorted by position; packed as position << 16 | term
+    private long[] collectMatches(int docId, List<String> terms) {
+        List<Posting> postings = new ArrayList<>(terms.size());
+        int total = 0;
+        for (String term : terms) {
+            Posting p = index.findPosting(term, docId);
+            postings.add(p);
+            if (p != null) total += p.positions.size();
+        }
+
+        long[] matches = new long[total];
+        int n = 0;
+        for (int t = 0; t < postings.size(); t++) {
+            Posting p = postings.get(t);
+            if (p == null) continue;
+            for (int pos : p.positions) {
+                matches[n++] = ((long) pos << 16) | t;
+            }
+        }
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Sliding window over the sorted matches; score = idf of each distinct term inside
+     * plus a little for repeats. Returns {firstPosition, lastPosition} of the best window.
+     */
+    private int[] bestWindow(long[] matches, int termCount, double[] weights) {
+        int[] inWindow = new int[termCount];
+        double score = 0;
+        double bestScore = -1;
+        int[] best = {positionOf(matches[0]), positionOf(matches[0])};
+
+        int left = 0;
+        for (int right = 0; right < matches.length; right++) {
+            int t = termOf(matches[right]);
+            score += inWindow[t]++ == 0 ? weights[t] : 0.1 * weights[t];
+
+            while (positionOf(matches[right]) - positionOf(matches[left]) >= windowTokens) {
+                int lt = termOf(matches[left]);
+                score -= --inWindow[lt] == 0 ? weights[lt] : 0.1 * weights[lt];
+                left++;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                best[0] = positionOf(matches[left]);
+                best[1] = positionOf(matches[right]);
+            }
+        }
+        return best;
+    }
+
+    private static int positionOf(long match) {
+        return (int) (match >>> 16);
+    }
+
+    private static int termOf(long match) {
+        return (int) (match & 0xffff);
+    }
+}
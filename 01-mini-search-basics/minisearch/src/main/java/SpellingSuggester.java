@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "Did you mean" suggestions using symmetric delete (the SymSpell idea):
+ * every dictionary word is indexed under all strings reachable by deleting up to
+ * maxEditDistance characters; a misspelling is looked up the same way, so a lookup is a
+ * handful of hash probes instead of a scan over the vocabulary.
+ *
+ * Delete strings are only stored as 64-bit hashes. A collision just adds a candidate,
+ * and every candidate is checked with a real edit distance anyway.
+ *
+ * Build it once with addWord, then lookups are safe from any number of threads.
+ */
+class SpellingSuggester {
+    private final int maxEditDistance;
+    private final int prefixLength;   // only the first N chars generate deletes, keeps the table small
+
+    private final List<String> words = new ArrayList<>();
+    private long[] freqs = new long[1024];
+    private final Map<String, Integer> wordIds = new HashMap<>();
+
+    // open-addressing table: delete hash -> head of a linked list of word ids
+    private long[] slotKeys = new long[1 << 16];
+    private int[] slotHeads = newHeads(1 << 16);
+    private int usedSlots;
+
+    private int[] entryWord = new int[1 << 16];
+    private int[] entryNext = new int[1 << 16];
+    private int entryCount;
+
+    SpellingSuggester(int maxEditDistance, int prefixLength) {
+        this.maxEditDistance = maxEditDistance;
+        this.prefixLength = Math.max(prefixLength, maxEditDistance + 1);
+    }
+
+    /**
+     * Adds `count` to a word's frequency, indexing it the first time we see it.
+     */
+    public void addWord(String word, long count) {
+        if (word.isEmpty()) return;
+
+        Integer id = wordIds.get(word);
+        if (id != null) {
+            freqs[id] += count;
+            return;
+        }
+
+        id = words.size();
+        words.add(word);
+        wordIds.put(word, id);
+        if (id == freqs.length) freqs = Arrays.copyOf(freqs, id * 2);
+        freqs[id] = count;
+
+        Set<String> deletes = new HashSet<>();
+        String prefix = word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+        deletes.add(prefix);
+        collectDeletes(prefix, maxEditDistance, deletes);
+        for (String d : deletes) {
+            addEntry(hash(d), id);
+        }
+    }
+
+    public long frequency(String word) {
+        Integer id = wordIds.get(word);
+        return id == null ? 0 : freqs[id];
+    }
+
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Best correction for one word: smallest edit distance, then highest frequency.
+     * Returns null if the word is already known or nothing is close enough.
+     */
+    public String suggestWord(String input) {
+        if (wordIds.containsKey(input)) return null;
+
+        String prefix = input.length() > prefixLength ? input.substring(0, prefixLength) : input;
+        Set<String> deletes = new HashSet<>();
+        deletes.add(prefix);
+        collectDeletes(prefix, maxEditDistance, deletes);
+
+        String best = null;
+        int bestDistance = maxEditDistance + 1;
+        long bestFreq = -1;
+        Set<Integer> checked = new HashSet<>();
+
+        for (String d : deletes) {
+            for (int e = lookup(hash(d)); e >= 0; e = entryNext[e]) {
+                int id = entryWord[e];
+                if (!checked.add(id)) continue;
+
+                String candidate = words.get(id);
+                if (Math.abs(candidate.length() - input.length()) > maxEditDistance) continue;
+
+                int distance = editDistance(input, candidate, bestDistance);
+                if (distance < bestDistance || (distance == bestDistance && freqs[id] > bestFreq)) {
+                    best = candidate;
+                    bestDistance = distance;
+                    bestFreq = freqs[id];
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Corrects every unknown token of a query. Null when nothing would change.
+     */
+    public String suggest(String query) {
+        List<String> tokens = InvertedIndex.tokenize(query);
+        boolean changed = false;
+
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            String fixed = suggestWord(token);
+            if (fixed != null) changed = true;
+
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(fixed != null ? fixed : token);
+        }
+        return changed ? sb.toString() : null;
+    }
+
+    public static SpellingSuggester fromIndex(InvertedIndex index) {
+        SpellingSuggester suggester = new SpellingSuggester(2, 7);
+        for (String term : index.getTerms()) {
+            suggester.addWord(term, index.getDocumentFrequency(term));
+        }
+        return suggester;
+    }
+
+    // --- deletes ---
+
+    private static void collectDeletes(String word, int remaining, Set<String> out) {
+        if (remaining == 0 || word.length() <= 1) return;
+
+        for (int i = 0; i < word.length(); i++) {
+            String d = word.substring(0, i) + word.substring(i + 1);
+            if (out.add(d)) {
+                collectDeletes(d, remaining - 1, out);
+            }
+        }
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein + adjacent transpositions).
+     * Gives up early once every cell in a row exceeds `limit`.
+     */
+    static int editDistance(String a, String b, int limit) {
+        int n = a.length(), m = b.length();
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    v = Math.min(v, prev2[j - 2] + 1);
+                }
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > limit) return limit + 1;
+
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[m];
+    }
+
+    // --- hash table ---
+
+    private static long hash(String s) {
+        // FNV-1a, 64 bit
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static int[] newHeads(int size) {
+        int[] heads = new int[size];
+        Arrays.fill(heads, -1);
+        return heads;
+    }
+
+    private int slotFor(long key, long[] keys, int[] heads) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (heads[slot] >= 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int lookup(long key) {
+        return slotHeads[slotFor(key, slotKeys, slotHeads)];
+    }
+
+    private void addEntry(long key, int wordId) {
+        if (entryCount == entryWord.length) {
+            entryWord = Arrays.copyOf(entryWord, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+
+        int slot = slotFor(key, slotKeys, slotHeads);
+        if (slotHeads[slot] < 0) {
+            slotKeys[slot] = key;
+            usedSlots++;
+        }
+        entryWord[entryCount] = wordId;
+        entryNext[entryCount] = slotHeads[slot];
+        slotHeads[slot] = entryCount++;
+
+        if (usedSlots * 2 > slotKeys.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        long[] keys = new long[slotKeys.length * 2];
+        int[] heads = newHeads(keys.length);
+        for (int i = 0; i < slotKeys.length; i++) {
+            if (slotHeads[i] < 0) continue;
+            int slot = slotFor(slotKeys[i], keys, heads);
+            keys[slot] = slotKeys[i];
+            heads[slot] = slotHeads[i];
+        }
+        slotKeys = keys;
+        slotHeads = heads;
+    }
+}
@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void aThrowingQueryIsReportedAsFailedAndTheRestStillRun() throws Exception {
+        InvertedIndex index = new InvertedIndex() {
+            @Override
+            public List<SearchResult> search(String query, int k, SearchScratch scratch) {
+                if (query.equals("boom")) throw new IllegalStateException("bad query");
+                return super.search(query, k, scratch);
+            }
+        };
+        for (int docId = 0; docId < 3; docId++) {
+            NewsItem item = new NewsItem();
+            item.headline = "storm news " + docId;
+            index.addDocument(docId, item, item.headline);
+        }
+
+        Path queries = Files.writeString(dir.resolve("q.txt"), "storm\nboom\nnews\nboom\nstorm news\n");
+        Path output = dir.resolve("out.tsv");
+
+        BatchRunner.BatchReport report = new BatchRunner(index, 2, 5).run(queries, output);
+
+        assertEquals(5, report.queryCount);
+        assertEquals(3, report.succeeded());
+        assertEquals(List.of("1: boom -> java.lang.IllegalStateException: bad query",
+                "3: boom -> java.lang.IllegalStateException: bad query"), report.failures);
+
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(9, lines.size()); // three hits for each of the three good queries
+        assertTrue(lines.stream().noneMatch(l -> l.startsWith("1\t") || l.startsWith("3\t")));
+    }
+}
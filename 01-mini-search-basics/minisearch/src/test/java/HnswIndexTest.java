@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIM = 32;
+    private static final int DOCS = 3000;
+    private static final int K = 10;
+
+    // clustered, like real embeddings: a random center per cluster plus noise
+    private static float[][] vectors(int n, Random rnd) {
+        float[][] centers = new float[20][DIM];
+        for (float[] c : centers) for (int d = 0; d < DIM; d++) c[d] = (float) rnd.nextGaussian();
+        float[][] out = new float[n][DIM];
+        for (int i = 0; i < n; i++) {
+            float[] c = centers[rnd.nextInt(centers.length)];
+            for (int d = 0; d < DIM; d++) out[i][d] = c[d] + 0.5f * (float) rnd.nextGaussian();
+        }
+        return out;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int d = 0; d < a.length; d++) {
+            dot += a[d] * b[d];
+            na += a[d] * a[d];
+            nb += b[d] * b[d];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+
+    private static Set<Integer> bruteForce(float[][] docs, int[] ids, float[] query, int k) {
+        Integer[] order = new Integer[docs.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(cosine(query, docs[b]), cosine(query, docs[a])));
+        Set<Integer> top = new HashSet<>();
+        for (int i = 0; i < k; i++) top.add(ids[order[i]]);
+        return top;
+    }
+
+    private static double recall(HnswIndex index, float[][] docs, int[] ids, float[][] queries) {
+        int hits = 0;
+        for (float[] q : queries) {
+            Set<Integer> truth = bruteForce(docs, ids, q, K);
+            for (SearchResult r : index.search(q, K)) {
+                if (truth.contains(r.docId)) hits++;
+            }
+        }
+        return hits / (double) (queries.length * K);
+    }
+
+    private static int[] ids(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = 1000 + i; // not the internal node ids
+        return ids;
+    }
+
+    @Test
+    void recallAgainstBruteForce() throws InterruptedException {
+        Random rnd = new Random(7);
+        float[][] docs = vectors(DOCS, rnd);
+        float[][] queries = vectors(100, rnd);
+        int[] ids = ids(DOCS);
+
+        HnswIndex index = new HnswIndex(DIM, DOCS, 16, 200, 64, false);
+        index.build(ids, docs, 1);
+        assertEquals(DOCS, index.size());
+        assertTrue(recall(index, docs, ids, queries) >= 0.9);
+    }
+
+    @Test
+    void parallelBuildAndOffHeapStorageKeepRecall() throws InterruptedException {
+        Random rnd = new Random(11);
+        float[][] docs = vectors(DOCS, rnd);
+        float[][] queries = vectors(100, rnd);
+        int[] ids = ids(DOCS);
+
+        HnswIndex index = new HnswIndex(DIM, DOCS, 16, 200, 64, true);
+        index.build(ids, docs, 4);
+        assertEquals(DOCS, index.size());
+        assertTrue(recall(index, docs, ids, queries) >= 0.9);
+    }
+
+    @Test
+    void resultsAreBestFirstWithCosineScores() throws InterruptedException {
+        Random rnd = new Random(3);
+        float[][] docs = vectors(500, rnd);
+        int[] ids = ids(docs.length);
+        HnswIndex index = new HnswIndex(DIM, docs.length, 8, 100, 50, false);
+        index.build(ids, docs, 2);
+
+        List<SearchResult> results = index.search(docs[42], 5);
+        assertEquals(5, results.size());
+        assertEquals(ids[42], results.get(0).docId); // a doc is its own nearest neighbour
+        assertEquals(1.0, results.get(0).score, 1e-5);
+        for (int i = 0; i < results.size(); i++) {
+            SearchResult r = results.get(i);
+            assertEquals(cosine(docs[42], docs[r.docId - 1000]), r.score, 1e-4);
+            if (i > 0) assertTrue(results.get(i - 1).score >= r.score);
+        }
+    }
+
+    @Test
+    void emptyIndexAndCapacity() {
+        HnswIndex index = new HnswIndex(2, 1, 4, 10, 10, false);
+        assertTrue(index.search(new float[] {1, 0}, 3).isEmpty());
+
+        index.add(5, new float[] {1, 0});
+        assertThrows(IllegalStateException.class, () -> index.add(6, new float[] {0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> index.search(new float[] {1, 0, 0}, 1).size());
+        assertEquals(1, index.size());
+    }
+}
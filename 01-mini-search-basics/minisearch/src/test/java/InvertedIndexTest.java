@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private static final String[] WORDS = {
+            "climate", "election", "market", "storm", "vaccine", "court", "music", "travel", "budget", "school"};
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    // short texts over a tiny vocabulary, so lots of documents tie on the same score
+    private static InvertedIndex index(Random rnd, int docs) {
+        InvertedIndex index = new InvertedIndex();
+        for (int id = 0; id < docs; id++) {
+            StringBuilder text = new StringBuilder();
+            int len = 1 + rnd.nextInt(4);
+            for (int i = 0; i < len; i++) text.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+            NewsItem item = new NewsItem();
+            item.headline = text.toString().trim();
+            index.addDocument(id, item, item.headline);
+        }
+        return index;
+    }
+
+    private static List<String> hits(List<SearchResult> results) {
+        List<String> out = new ArrayList<>();
+        for (SearchResult r : results) out.add(r.docId + "=" + r.score);
+        return out;
+    }
+
+    @Test
+    void partitionedSearchReturnsTheSequentialTopK() {
+        InvertedIndex index = index(new Random(26), 5000);
+        Random rnd = new Random(7);
+
+        for (int q = 0; q < 100; q++) {
+            String query = WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)];
+            for (int k : new int[] {1, 10, 100}) {
+                index.enableParallelSearch(pool, 1, 0);
+                List<String> sequential = hits(index.search(query, k));
+
+                index.enableParallelSearch(pool, 4, 0); // every query splits
+                List<String> partitioned = hits(index.search(query, k));
+
+                assertEquals(sequential, partitioned, "query '" + query + "', k=" + k);
+                assertEquals(k, sequential.size());
+            }
+        }
+    }
+
+    @Test
+    void tiesGoToTheLowerDocId() {
+        InvertedIndex index = new InvertedIndex();
+        for (int id = 0; id < 20; id++) {
+            NewsItem item = new NewsItem();
+            item.headline = id % 2 == 0 ? "storm warning" : "storm";
+            index.addDocument(id, item, item.headline);
+        }
+
+        List<SearchResult> top = index.search("storm", 3);
+        assertEquals(List.of(0, 1, 2), top.stream().map(r -> r.docId).toList());
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetGeneratorTest {
+
+    private final InvertedIndex index = new InvertedIndex();
+    private final SnippetGenerator snippets = new SnippetGenerator(index);
+
+    private int add(String text) {
+        int docId = index.getDocCount();
+        NewsItem item = new NewsItem();
+        item.headline = text;
+        index.addDocument(docId, item, text);
+        return docId;
+    }
+
+    private String snippet(String query, int docId) {
+        return snippets.snippets(query, List.of(new SearchResult(docId, 1.0, null))).get(0);
+    }
+
+    @Test
+    void matchAtTheStart() {
+        int doc = add("Storm hits the coast tonight, more rain expected over the weekend.");
+        snippets.setWindowTokens(5);
+
+        assertEquals("**Storm** hits the coast tonight...", snippet("storm", doc));
+    }
+
+    @Test
+    void matchAtTheEnd() {
+        int doc = add("Officials met on Monday to talk about next year's budget.");
+        snippets.setWindowTokens(4);
+
+        // the window is pulled back to end on the last token, so no trailing "...";
+        // "year's" is two tokens
+        assertEquals("...next year's **budget**", snippet("budget", doc));
+    }
+
+    @Test
+    void adjacentAndRepeatedTermsAreEachHighlightedOnce() {
+        int doc = add("Climate change: why climate policy stalls");
+        snippets.setWindowTokens(10);
+
+        assertEquals("**Climate** **change**: why **climate** policy stalls",
+                snippet("climate climate change", doc));
+    }
+
+    @Test
+    void windowGoesWhereMostQueryTermsAre() {
+        add("filler text without the words");
+        int doc = add("Vaccine news today. Some unrelated words follow here for a while and then more of "
+                + "them until finally the vaccine rollout in rural clinics is described.");
+        snippets.setWindowTokens(6);
+
+        String s = snippet("vaccine rollout", doc);
+        assertTrue(s.contains("**vaccine** **rollout**"), s);
+        assertTrue(s.startsWith("..."), s);
+    }
+
+    @Test
+    void queryWithoutHitsGivesTheStartOfTheText() {
+        int doc = add("Markets rallied on Friday after the jobs report beat expectations.");
+        snippets.setWindowTokens(3);
+
+        assertEquals("Markets rallied on...", snippet("volcano", doc));
+    }
+
+    @Test
+    void offsetsAreUtf16AroundNonAsciiText() {
+        // é and ü split tokens (the tokenizer is ASCII-only), the emoji is a surrogate pair
+        int doc = add("Zürich café 😀 climate — crisis déjà vu");
+        snippets.setWindowTokens(20);
+
+        assertEquals("Zürich café 😀 **climate** — **crisis** déjà vu", snippet("climate crisis", doc));
+    }
+
+    @Test
+    void textWhoseLowercaseChangesLengthIsServedLowercased() {
+        // U+0130 lowercases to two chars, so the offsets point into the lowercase text
+        int doc = add("İstanbul climate summit");
+        snippets.setWindowTokens(20);
+
+        String s = snippet("summit", doc);
+        assertTrue(s.endsWith("climate **summit**"), s);
+    }
+}
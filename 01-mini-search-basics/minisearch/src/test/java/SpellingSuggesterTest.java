@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpellingSuggesterTest {
+
+    private static SpellingSuggester suggester() {
+        SpellingSuggester s = new SpellingSuggester(2, 7);
+        s.addWord("climate", 50);
+        s.addWord("change", 40);
+        s.addWord("charge", 5);
+        s.addWord("election", 30);
+        s.addWord("elections", 10);
+        return s;
+    }
+
+    @Test
+    void knownWordHasNoSuggestion() {
+        assertNull(suggester().suggestWord("climate"));
+    }
+
+    @Test
+    void correctsSingleEdits() {
+        SpellingSuggester s = suggester();
+        assertEquals("climate", s.suggestWord("climte"));    // deletion
+        assertEquals("climate", s.suggestWord("climatte"));  // insertion
+        assertEquals("climate", s.suggestWord("climxte"));   // substitution
+        assertEquals("climate", s.suggestWord("cilmate"));   // transposition
+    }
+
+    @Test
+    void prefersSmallerDistanceThenHigherFrequency() {
+        SpellingSuggester s = suggester();
+        assertEquals("change", s.suggestWord("chaxge"));     // one edit from change (40) and charge (5)
+        assertEquals("election", s.suggestWord("elction"));  // two edits from elections
+    }
+
+    @Test
+    void nothingBeyondMaxEditDistance() {
+        assertNull(suggester().suggestWord("clmt"));
+        assertNull(suggester().suggestWord("xyzzyq"));
+    }
+
+    @Test
+    void wordsLongerThanThePrefixStillMatch() {
+        SpellingSuggester s = new SpellingSuggester(2, 7);
+        s.addWord("infrastructure", 3);
+        assertEquals("infrastructure", s.suggestWord("infrastrcture"));
+    }
+
+    @Test
+    void frequenciesAddUp() {
+        SpellingSuggester s = new SpellingSuggester(2, 7);
+        s.addWord("change", 1);
+        s.addWord("charge", 3);
+        s.addWord("change", 5);
+        assertEquals(2, s.size());
+        assertEquals(6, s.frequency("change"));
+        assertEquals("change", s.suggestWord("chaxge"));
+    }
+
+    @Test
+    void manyWordsSurviveRehashing() {
+        SpellingSuggester s = new SpellingSuggester(2, 7);
+        for (int i = 0; i < 20_000; i++) s.addWord("word" + i, 1);
+        s.addWord("newspaper", 1);
+        assertEquals("newspaper", s.suggestWord("nwespaper"));
+        assertEquals("word12345", s.suggestWord("wrd12345"));
+    }
+
+    @Test
+    void suggestUsesTheIndexTokenizerAndVocabulary() {
+        InvertedIndex index = new InvertedIndex();
+        NewsItem item = new NewsItem();
+        item.headline = "Climate change talks";
+        item.short_description = "Leaders meet";
+        index.addDocument(0, item, item.headline + " " + item.short_description);
+
+        SpellingSuggester s = SpellingSuggester.fromIndex(index);
+        assertEquals("climate change", s.suggest("climte change"));
+        assertNull(s.suggest("climate talks"));
+    }
+
+    @Test
+    void editDistance() {
+        assertEquals(1, SpellingSuggester.editDistance("ab", "ba", 5));
+        assertEquals(3, SpellingSuggester.editDistance("kitten", "sitting", 5));
+        assertEquals(2, SpellingSuggester.editDistance("kitten", "sitting", 1));
+    }
+}
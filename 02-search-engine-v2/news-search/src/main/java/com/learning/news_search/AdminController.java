@@ -1,5 +1,6 @@
 package com.learning.news_search;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -11,19 +12,51 @@ public class AdminController {
 
     private final MLTrainingService mlTrainingService;
     private final RankingConfig rankingConfig;
+    private final SpellingService spellingService;
+    private final IngestionService ingestionService;
+    private final EventLogService eventLogService;
+    private final ClickCounterService clickCounterService;
+    private final SearchResultCache resultCache;
+    private final NewsService newsService;
+    private final RankingCascade rankingCascade;
+    private final ArticleFeatureStore featureStore;
+    private final GbdtRanker gbdtRanker;
 
-    public AdminController(MLTrainingService mlTrainingService, RankingConfig rankingConfig) {
+    public AdminController(MLTrainingService mlTrainingService, RankingConfig rankingConfig,
+                           SpellingService spellingService, IngestionService ingestionService,
+                           EventLogService eventLogService, ClickCounterService clickCounterService,
+                           SearchResultCache resultCache, NewsService newsService,
+                           RankingCascade rankingCascade, ArticleFeatureStore featureStore,
+                           GbdtRanker gbdtRanker) {
         this.mlTrainingService = mlTrainingService;
         this.rankingConfig = rankingConfig;
+        this.spellingService = spellingService;
+        this.ingestionService = ingestionService;
+        this.eventLogService = eventLogService;
+        this.clickCounterService = clickCounterService;
+        this.resultCache = resultCache;
+        this.newsService = newsService;
+        this.rankingCascade = rankingCascade;
+        this.featureStore = featureStore;
+        this.gbdtRanker = gbdtRanker;
     }
 
     /**
-     * Train the ML model on historical click data.
+     * Train the ML model on historical click data in the background.
+     * model=LOGISTIC (default) or GBDT; for GBDT epochs is the number of trees.
+     * epochs is an upper bound; training stops early once the held-out metric stalls.
+     * Poll /api/admin/train/status for progress.
      */
     @PostMapping("/train")
-    public MLTrainingService.TrainingResult trainModel(
-            @RequestParam(defaultValue = "100") int epochs) {
-        return mlTrainingService.trainModel(epochs);
+    public MLTrainingService.TrainingStatus trainModel(
+            @RequestParam(defaultValue = "100") int epochs,
+            @RequestParam(defaultValue = "LOGISTIC") RankingConfig.MlModel model) {
+        return mlTrainingService.startTraining(epochs, model);
+    }
+
+    @GetMapping("/train/status")
+    public MLTrainingService.TrainingStatus getTrainingStatus() {
+        return mlTrainingService.getTrainingStatus();
     }
 
     /**
@@ -34,6 +67,14 @@ public class AdminController {
         return mlTrainingService.getWeights();
     }
 
+    /**
+     * Size of the trained GBDT ensemble (all zero until one has been trained).
+     */
+    @GetMapping("/model/gbdt")
+    public GbdtRanker.ModelInfo getGbdtModel() {
+        return gbdtRanker.info();
+    }
+
     /**
      * Manually set model weights.
      */
@@ -46,6 +87,7 @@ public class AdminController {
                 request.categoryWeight(),
                 request.bias()
         );
+        resultCache.invalidateAll();
         return "Weights updated successfully";
     }
 
@@ -72,6 +114,14 @@ public class AdminController {
         if (request.mlRerankEnabled() != null) {
             rankingConfig.setMlRerankEnabled(request.mlRerankEnabled());
         }
+        if (request.reRankMode() != null) {
+            rankingConfig.setReRankMode(request.reRankMode());
+        }
+        if (request.mlModel() != null) {
+            rankingConfig.setMlModel(request.mlModel());
+        }
+        // cached responses were ranked with the old weights
+        resultCache.invalidateAll();
         return "Config updated";
     }
 
@@ -88,10 +138,91 @@ public class AdminController {
                 rankingConfig.getAbTestPercentage(),
                 rankingConfig.getFreshnessDecayDays(),
                 rankingConfig.getReRankPoolSize(),
-                rankingConfig.isMlRerankEnabled()
+                rankingConfig.isMlRerankEnabled(),
+                rankingConfig.getReRankMode(),
+                rankingConfig.getMlModel()
         );
     }
 
+    /**
+     * Runs one variant B page through both re-rank modes (JAVA and RESCORE) and returns
+     * their order, latency and _source payload side by side.
+     */
+    @GetMapping("/rerank/compare")
+    public NewsService.ReRankComparison compareReRankModes(
+            @RequestParam String keyword,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String fields,
+            Pageable pageable) {
+        return newsService.compareReRankModes(keyword, category, FieldProjection.parse(fields), pageable);
+    }
+
+    /**
+     * Per-stage latency vs. budget and the current (adapted) pool sizes of the variant B cascade.
+     */
+    @GetMapping("/cascade/stats")
+    public RankingCascade.CascadeStats getCascadeStats() {
+        return rankingCascade.stats();
+    }
+
+    /**
+     * Rebuild the "did you mean" dictionary from the news index + query log.
+     */
+    @PostMapping("/spelling/rebuild")
+    public String rebuildSpelling() {
+        spellingService.rebuildAsync();
+        return "Spelling dictionary rebuild started (current size: " + spellingService.vocabularySize() + " words)";
+    }
+
+    /**
+     * Build a new versioned news index and swap the "news" alias to it when done.
+     * source=DATASET reloads the JSON file, source=LIVE copies the current index.
+     * Poll /api/news/load/status for progress.
+     */
+    @PostMapping("/reindex")
+    public IngestionService.IngestionStatus reindex(
+            @RequestParam(defaultValue = "LIVE") IngestionService.ReindexSource source) {
+        return ingestionService.startReindex(source);
+    }
+
+    /**
+     * Spool / shipper counters and the in-memory fallback queues of the event logger.
+     */
+    @GetMapping("/events/stats")
+    public EventLogService.EventLogStats getEventStats() {
+        return eventLogService.stats();
+    }
+
+    /**
+     * Clicks counted in memory vs. written to the articles.
+     */
+    @GetMapping("/clicks/stats")
+    public ClickCounterService.ClickCounterStats getClickStats() {
+        return clickCounterService.stats();
+    }
+
+    /**
+     * Size and hit rate of the response cache and the variant B pool cache.
+     */
+    @GetMapping("/cache/stats")
+    public SearchResultCache.SearchCacheStats getCacheStats() {
+        return resultCache.stats();
+    }
+
+    /**
+     * Size and hit rate of the per-article feature cache used by training.
+     */
+    @GetMapping("/features/stats")
+    public TinyLfuCache.CacheStats getFeatureCacheStats() {
+        return featureStore.stats();
+    }
+
+    @PostMapping("/cache/clear")
+    public String clearCache() {
+        resultCache.invalidateAll();
+        return "Search cache cleared";
+    }
+
     // Request/Response DTOs
     public record WeightsRequest(
             double esWeight,
@@ -107,7 +238,9 @@ public class AdminController {
             Double freshnessWeight,
             Double categoryMatchBoost,
             Double abTestPercentage,
-            Boolean mlRerankEnabled
+            Boolean mlRerankEnabled,
+            RankingConfig.ReRankMode reRankMode,
+            RankingConfig.MlModel mlModel
     ) {}
 
     public record RankingConfigResponse(
@@ -118,6 +251,8 @@ public class AdminController {
             double abTestPercentage,
             double freshnessDecayDays,
             int reRankPoolSize,
-            boolean mlRerankEnabled
+            boolean mlRerankEnabled,
+            RankingConfig.ReRankMode reRankMode,
+            RankingConfig.MlModel mlModel
     ) {}
 }
\ No newline at end of file
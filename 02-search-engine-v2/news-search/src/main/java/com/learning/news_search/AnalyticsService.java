@@ -1,12 +1,21 @@
 package com.learning.news_search;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * Analytics service for measuring search quality metrics.
@@ -22,11 +31,14 @@ public class AnalyticsService {
 
     private final SearchEventRepository searchEventRepository;
     private final ClickEventRepository clickEventRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
 
     public AnalyticsService(SearchEventRepository searchEventRepository,
-                            ClickEventRepository clickEventRepository) {
+                            ClickEventRepository clickEventRepository,
+                            ElasticsearchOperations elasticsearchOperations) {
         this.searchEventRepository = searchEventRepository;
         this.clickEventRepository = clickEventRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
     }
 
     /**
@@ -142,36 +154,169 @@ public class AnalyticsService {
     }
 
     /**
-     * Generate training data for ML model.
-     * Returns list of (features, label) for each query-doc pair.
+     * Stream training data for the ML model: every result shown in a search is one
+     * (query, doc) example, labeled 1 if that doc was clicked for the same query.
+     * Results of variant B searches come with the features they were ranked by
+     * (SearchEvent.features); the others have none and need to be hydrated.
+     *
+     * Both event indices are paged with a point in time + search_after, so memory holds one
+     * page of events plus one 64-bit key per distinct clicked (query, doc) pair instead of the
+     * whole logs. Examples are handed to `sink` one page of searches at a time.
+     *
+     * @return number of examples produced
      */
-    public List<TrainingExample> generateTrainingData() {
-        // Get all clicks grouped by query
-        Iterable<ClickEvent> allClicks = clickEventRepository.findAll();
-        Iterable<SearchEvent> allSearches = searchEventRepository.findAll();
-
-        Map<String, Set<String>> clickedDocsByQuery = StreamSupport.stream(allClicks.spliterator(), false)
-                .filter(c -> c.getQuery() != null && c.getArticleId() != null)
-                .collect(Collectors.groupingBy(
-                        ClickEvent::getQuery,
-                        Collectors.mapping(ClickEvent::getArticleId, Collectors.toSet())
-                ));
+    public long streamTrainingData(int pageSize, Duration keepAlive, Consumer<List<TrainingExample>> sink) {
+        // clicks first: they are the small side of the join
+        LongHashSet clicked = new LongHashSet();
+        forEachPage(ClickEvent.class, new String[]{"query", "articleId"}, pageSize, keepAlive, page -> {
+            for (ClickEvent click : page) {
+                if (click.getQuery() != null && click.getArticleId() != null) {
+                    clicked.add(joinKey(click.getQuery(), click.getArticleId()));
+                }
+            }
+        });
 
         // For each search, the shown but not clicked docs are negative examples
-        List<TrainingExample> examples = new ArrayList<>();
+        long[] produced = {0};
+        forEachPage(SearchEvent.class, new String[]{"query", "resultIds", "features"}, pageSize, keepAlive, page -> {
+            List<TrainingExample> examples = new ArrayList<>();
+            for (SearchEvent search : page) {
+                if (search.getQuery() == null || search.getResultIds() == null) continue;
+
+                List<String> resultIds = search.getResultIds();
+                ImpressionFeatures logged = search.getFeatures();
+                if (logged != null && (logged.size() != resultIds.size()
+                        || logged.getWidth() != RankingService.FEATURE_COUNT)) {
+                    logged = null; // written by a different feature set, re-derive instead
+                }
+
+                for (int i = 0; i < resultIds.size(); i++) {
+                    String docId = resultIds.get(i);
+                    int label = clicked.contains(joinKey(search.getQuery(), docId)) ? 1 : 0;
+                    double[] features = null;
+                    if (logged != null) {
+                        features = new double[RankingService.FEATURE_COUNT];
+                        logged.row(i, features);
+                    }
+                    examples.add(new TrainingExample(search.getQuery(), docId, i, label, features));
+                }
+            }
+            if (!examples.isEmpty()) {
+                produced[0] += examples.size();
+                sink.accept(examples);
+            }
+        });
+        return produced[0];
+    }
+
+    // walks a whole index in _shard_doc order under one point in time, `pageSize` docs at a time
+    private <T> void forEachPage(Class<T> type, String[] fields, int pageSize, Duration keepAlive,
+                                 Consumer<List<T>> consumer) {
+        if (!elasticsearchOperations.indexOps(type).exists()) return;
+
+        String pitId = elasticsearchOperations.openPointInTime(
+                elasticsearchOperations.getIndexCoordinatesFor(type), keepAlive);
+        try {
+            List<Object> searchAfter = null;
+            while (true) {
+                NativeQueryBuilder builder = NativeQuery.builder()
+                        .withQuery(q -> q.matchAll(m -> m))
+                        .withSourceFilter(new FetchSourceFilter(true, fields, null))
+                        .withPointInTime(new Query.PointInTime(pitId, keepAlive))
+                        .withSort(s -> s.field(f -> f.field("_shard_doc")))
+                        .withPageable(PageRequest.of(0, pageSize))
+                        .withTrackTotalHits(false);
+                if (searchAfter != null) {
+                    builder.withSearchAfter(searchAfter);
+                }
+
+                SearchHits<T> hits = elasticsearchOperations.search(builder.build(), type);
+                if (hits.getPointInTimeId() != null) {
+                    pitId = hits.getPointInTimeId(); // may change from page to page
+                }
+                List<SearchHit<T>> page = hits.getSearchHits();
+                if (page.isEmpty()) break;
+
+                consumer.accept(page.stream().map(SearchHit::getContent).toList());
+                if (page.size() < pageSize) break;
+                searchAfter = page.get(page.size() - 1).getSortValues();
+            }
+        } finally {
+            try {
+                elasticsearchOperations.closePointInTime(pitId);
+            } catch (Exception e) {
+                System.err.println("Failed to close point in time: " + e.getMessage()); // expires on its own
+            }
+        }
+    }
+
+    // 64-bit FNV-1a of query + separator + doc id; collisions are negligible at click-log sizes
+    static long joinKey(String query, String docId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < query.length(); i++) {
+            h = (h ^ query.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xFFFF) * 0x100000001b3L;
+        for (int i = 0; i < docId.length(); i++) {
+            h = (h ^ docId.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Open-addressing set of longs: 8 bytes per slot instead of a boxed Long plus a HashMap
+     * node per clicked pair.
+     */
+    private static final class LongHashSet {
+        private long[] slots = new long[1024];
+        private boolean hasZero;
+        private int size;
+
+        void add(long key) {
+            if (key == 0) {
+                hasZero = true;
+                return;
+            }
+            if ((size + 1) * 2 > slots.length) {
+                grow();
+            }
+            if (insert(slots, key)) size++;
+        }
 
-        for (SearchEvent search : allSearches) {
-            if (search.getQuery() == null || search.getResultIds() == null) continue;
+        boolean contains(long key) {
+            if (key == 0) return hasZero;
+            int mask = slots.length - 1;
+            for (int i = mix(key) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == key) return true;
+            }
+            return false;
+        }
 
-            Set<String> clicked = clickedDocsByQuery.getOrDefault(search.getQuery(), Collections.emptySet());
+        private static boolean insert(long[] table, long key) {
+            int mask = table.length - 1;
+            int i = mix(key) & mask;
+            while (table[i] != 0) {
+                if (table[i] == key) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            return true;
+        }
 
-            for (String docId : search.getResultIds()) {
-                int label = clicked.contains(docId) ? 1 : 0;
-                examples.add(new TrainingExample(search.getQuery(), docId, label));
+        private void grow() {
+            long[] bigger = new long[slots.length * 2];
+            for (long key : slots) {
+                if (key != 0) insert(bigger, key);
             }
+            slots = bigger;
         }
 
-        return examples;
+        private static int mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return (int) key;
+        }
     }
 
     // Record classes for clean data transfer
@@ -194,6 +339,8 @@ public class AnalyticsService {
     public record TrainingExample(
             String query,
             String docId,
-            int label // 1 = clicked, 0 = not clicked
+            int position, // 0-based rank in the search's results; 0 starts a new search
+            int label, // 1 = clicked, 0 = not clicked
+            double[] features // as logged at impression time, null if not logged
     ) {}
 }
\ No newline at end of file
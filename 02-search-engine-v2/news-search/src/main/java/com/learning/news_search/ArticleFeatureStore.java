@@ -0,0 +1,133 @@
+package com.learning.news_search;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The per-article inputs of the ranking features (click count, date, category), fetched in
+ * bulk and kept in a bounded TinyLFU cache.
+ *
+ * Misses are loaded with one multi-get per `batchSize` ids that only pulls the RankHit
+ * fields, instead of one GET of the whole document per id. Ids that don't exist (deleted
+ * articles still referenced by old events) are cached too, so they cost one lookup.
+ * Entries of articles whose click count was just flushed are dropped.
+ */
+@Service
+public class ArticleFeatureStore {
+
+    private static final Features MISSING = new Features(0, null, null);
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final RankingConfig config;
+    private final TinyLfuCache<String, Features> cache;
+
+    public ArticleFeatureStore(ElasticsearchOperations elasticsearchOperations, RankingConfig config) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.config = config;
+        this.cache = new TinyLfuCache<>(config.getFeatureCacheMaxEntries(),
+                config.getFeatureCacheTtlSeconds() * 1000L);
+    }
+
+    public record Features(int clickCount, LocalDate date, String category) {}
+
+    /**
+     * Features of every id that exists; ids without an article are left out.
+     */
+    public Map<String, Features> getAll(Collection<String> articleIds) {
+        Map<String, Features> found = new HashMap<>(articleIds.size() * 2);
+        List<String> misses = new ArrayList<>();
+        for (String id : articleIds) {
+            if (found.containsKey(id)) continue;
+            Features cached = cache.get(id);
+            if (cached == null) {
+                misses.add(id);
+            } else if (cached != MISSING) {
+                found.put(id, cached);
+            }
+        }
+
+        int batchSize = Math.max(1, config.getFeatureFetchBatchSize());
+        for (int start = 0; start < misses.size(); start += batchSize) {
+            load(misses.subList(start, Math.min(start + batchSize, misses.size())), found);
+        }
+        return found;
+    }
+
+    // one multi-get; items come back in request order, empty for ids that don't exist
+    private void load(List<String> ids, Map<String, Features> found) {
+        NativeQuery query = NativeQuery.builder()
+                .withIds(ids)
+                .withSourceFilter(RankHit.SOURCE_FILTER)
+                .build();
+        List<MultiGetItem<NewsArticle>> items = elasticsearchOperations.multiGet(query, NewsArticle.class);
+
+        for (int i = 0; i < ids.size(); i++) {
+            MultiGetItem<NewsArticle> item = items.get(i);
+            if (item.isFailed()) continue; // shard trouble, not an answer: try again next time
+
+            String id = ids.get(i);
+            if (!item.hasItem()) {
+                cache.put(id, MISSING);
+                continue;
+            }
+            NewsArticle article = item.getItem();
+            Features features = new Features(article.getClickCount() != null ? article.getClickCount() : 0,
+                    article.getDate(), article.getCategory());
+            cache.put(id, features);
+            found.put(id, features);
+        }
+    }
+
+    /**
+     * Highest click count in the news index, from a max aggregation (no documents fetched).
+     */
+    public int maxClickCount() {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .withAggregation("max_clicks", Aggregation.of(a -> a.max(m -> m.field("clickCount"))))
+                .withMaxResults(0)
+                .withTrackTotalHits(false)
+                .build();
+        SearchHits<NewsArticle> hits = elasticsearchOperations.search(query, NewsArticle.class);
+
+        if (hits.getAggregations() != null) {
+            ElasticsearchAggregation max = ((ElasticsearchAggregations) hits.getAggregations()).get("max_clicks");
+            if (max != null) {
+                Aggregate aggregate = max.aggregation().getAggregate();
+                Double value = aggregate.isMax() ? aggregate.max().value() : null;
+                if (value != null && value > 0) {
+                    return value.intValue(); // null / -Infinity when no article has a click count
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Called after click counts were written for these articles.
+     */
+    public void invalidate(Set<String> articleIds) {
+        for (String id : articleIds) {
+            cache.invalidate(id);
+        }
+    }
+
+    public TinyLfuCache.CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,151 @@
+package com.learning.news_search;
+
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Takes events off the request thread: offer() is a lock-free enqueue, and one background
+ * thread drains the queue into bulk requests of batchSize events, or whatever has piled up
+ * once flushIntervalMs has passed.
+ *
+ * The queue is bounded by a separate atomic counter; when it's full (or, with SAMPLE,
+ * getting full) events are dropped and counted instead of blocking the caller.
+ */
+public class AsyncEventWriter<T> {
+
+    private final String name;
+    private final Function<T, String> idOf;
+    private final EventLogConfig config;
+    private final BulkIndexer indexer;
+
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+
+    /**
+     * Events must carry an id (idOf) so a retried bulk doesn't write them twice.
+     */
+    public AsyncEventWriter(String name, ElasticsearchOperations elasticsearchOperations,
+                            IndexCoordinates index, Function<T, String> idOf, EventLogConfig config) {
+        this.name = name;
+        this.idOf = idOf;
+        this.config = config;
+        // one bulk at a time is plenty for logging, and keeps ES load from events predictable
+        this.indexer = new BulkIndexer(elasticsearchOperations, index, 1, 3, 500);
+
+        this.writer = new Thread(this::drainLoop, name + "-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Never blocks. Returns false if the event was dropped by the overflow policy.
+     */
+    public boolean offer(T event) {
+        int capacity = config.getQueueCapacity();
+        int current = size.get();
+
+        if (config.getOverflowPolicy() == EventLogConfig.OverflowPolicy.SAMPLE
+                && current >= capacity * config.getSampleThreshold()
+                && ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) {
+            sampledOut.increment();
+            return false;
+        }
+
+        // reserve a slot first so the queue can never grow past capacity
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+
+        queue.offer(event);
+        accepted.increment();
+
+        if (size.get() >= config.getBatchSize()) {
+            LockSupport.unpark(writer); // a full batch is waiting, don't sit out the interval
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        int batchSize = Math.max(1, config.getBatchSize());
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMs());
+        long nextFlush = System.nanoTime() + intervalNanos;
+        List<IndexQuery> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            T event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                size.decrementAndGet();
+                batch.add(new IndexQueryBuilder().withId(idOf.apply(event)).withObject(event).build());
+            }
+
+            boolean stopping = !running;
+            long now = System.nanoTime();
+            if (batch.size() >= batchSize || (!batch.isEmpty() && (now >= nextFlush || stopping))) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+                nextFlush = now + intervalNanos;
+                continue;
+            }
+            if (stopping && queue.isEmpty()) break;
+
+            if (batch.isEmpty()) nextFlush = now + intervalNanos;
+            LockSupport.parkNanos(this, Math.max(1, nextFlush - now));
+        }
+    }
+
+    private void flush(List<IndexQuery> batch) {
+        try {
+            indexer.submit(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Failed to write " + batch.size() + " " + name + " events: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the writer after draining what's queued, and waits for the last bulk.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        indexer.close();
+    }
+
+    public EventWriterStats stats() {
+        return new EventWriterStats(name, size.get(), accepted.sum(), dropped.sum(), sampledOut.sum(),
+                indexer.getIndexed(), indexer.getFailed(), indexer.getRetried());
+    }
+
+    public record EventWriterStats(
+            String name,
+            int queued,
+            long accepted,
+            long dropped,
+            long sampledOut,
+            long flushed,
+            long failed,
+            long retried
+    ) {}
+}
@@ -0,0 +1,222 @@
+package com.learning.news_search;
+
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.BulkOptions;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sends batches of documents to Elasticsearch as bulk requests, several at a time.
+ *
+ * - at most maxInFlight bulks run concurrently; submit() blocks when they're all busy,
+ *   which bounds memory no matter how fast the producer reads
+ * - items that fail with a retryable error (429, 5xx, connection problems) are resent
+ *   with exponential backoff; everything else is counted as failed straight away
+ *
+ * Documents need ids set by the caller so a retried item overwrites instead of duplicating.
+ * Index requests and (partial / upsert) update requests go through the same machinery.
+ */
+public class BulkIndexer implements AutoCloseable {
+
+    private static final BulkOptions OPTIONS = BulkOptions.builder()
+            .withRefreshPolicy(RefreshPolicy.NONE) // refreshing per bulk would kill throughput
+            .build();
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final IndexCoordinates index;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private volatile String lastError;
+
+    public BulkIndexer(ElasticsearchOperations elasticsearchOperations, IndexCoordinates index,
+                       int maxInFlight, int maxRetries, long retryBackoffMs) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.index = index;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, maxInFlight), r -> {
+            Thread t = new Thread(r, "bulk-" + index.getIndexName() + "-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Queue one batch. Blocks while maxInFlight bulks are already running.
+     */
+    public void submit(List<IndexQuery> batch) throws InterruptedException {
+        submit(batch, IndexQuery::getId,
+                pending -> elasticsearchOperations.bulkIndex(pending, OPTIONS, index));
+    }
+
+    /**
+     * Same as submit, for update requests (partial docs, upserts, scripts).
+     */
+    public void submitUpdates(List<UpdateQuery> batch) throws InterruptedException {
+        submit(batch, UpdateQuery::getId,
+                pending -> elasticsearchOperations.bulkUpdate(pending, OPTIONS, index));
+    }
+
+    private <Q> void submit(List<Q> batch, Function<Q, String> idOf, Consumer<List<Q>> bulk)
+            throws InterruptedException {
+        if (batch.isEmpty()) return;
+
+        inFlight.acquire();
+        try {
+            workers.execute(() -> {
+                try {
+                    send(batch, idOf, bulk, null);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends one batch on the calling thread, with the usual retries.
+     * Returns how many docs still couldn't be delivered because of retryable errors
+     * (0 means everything is in, or was rejected for good and counted as failed).
+     */
+    public int indexNow(List<IndexQuery> batch) {
+        if (batch.isEmpty()) return 0;
+        return send(batch, IndexQuery::getId,
+                pending -> elasticsearchOperations.bulkIndex(pending, OPTIONS, index), null).size();
+    }
+
+    /**
+     * Like indexNow, but says what happened to each doc: ids still undelivered after the
+     * retries, and ids ES rejected for good with its error message.
+     */
+    public BulkResult indexWithResults(List<IndexQuery> batch) {
+        if (batch.isEmpty()) return new BulkResult(List.of(), Map.of());
+
+        Map<String, String> rejected = new HashMap<>();
+        List<String> undelivered = send(batch, IndexQuery::getId,
+                pending -> elasticsearchOperations.bulkIndex(pending, OPTIONS, index), rejected)
+                .stream().map(IndexQuery::getId).toList();
+        return new BulkResult(undelivered, rejected);
+    }
+
+    public record BulkResult(List<String> undeliveredIds, Map<String, String> rejected) {}
+
+    /**
+     * Synchronous updates; returns the requests that still couldn't be delivered.
+     */
+    public List<UpdateQuery> updateNow(List<UpdateQuery> batch) {
+        if (batch.isEmpty()) return List.of();
+        return send(batch, UpdateQuery::getId,
+                pending -> elasticsearchOperations.bulkUpdate(pending, OPTIONS, index), null);
+    }
+
+    // returns what's left undelivered after the retries (empty = all done);
+    // permanently rejected items go into `rejectedOut` (id -> error) when it's given
+    private <Q> List<Q> send(List<Q> batch, Function<Q, String> idOf, Consumer<List<Q>> bulk,
+                             Map<String, String> rejectedOut) {
+        List<Q> pending = batch;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                bulk.accept(pending);
+                indexed.add(pending.size());
+                return List.of();
+            } catch (BulkFailureException e) {
+                // partial failure: keep only the items worth retrying
+                Map<String, BulkFailureException.FailureDetails> failures = e.getFailedDocuments();
+                List<Q> retryable = new ArrayList<>();
+                int permanent = 0;
+                for (Q query : pending) {
+                    BulkFailureException.FailureDetails details = failures.get(idOf.apply(query));
+                    if (details == null) continue;
+
+                    if (isRetryable(details.status())) {
+                        retryable.add(query);
+                    } else {
+                        permanent++;
+                        lastError = details.errorMessage();
+                        if (rejectedOut != null) rejectedOut.put(idOf.apply(query), details.errorMessage());
+                    }
+                }
+                indexed.add(pending.size() - retryable.size() - permanent);
+                failed.add(permanent);
+                pending = retryable;
+                if (pending.isEmpty()) return List.of();
+            } catch (Exception e) {
+                // whole request failed (timeout, node down...) - resend all of it
+                lastError = e.getMessage();
+            }
+
+            if (attempt >= maxRetries) {
+                failed.add(pending.size());
+                System.err.println("Bulk to " + index.getIndexName() + " gave up on " + pending.size()
+                        + " docs: " + lastError);
+                return pending;
+            }
+
+            retried.add(pending.size());
+            try {
+                Thread.sleep(retryBackoffMs << attempt);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                failed.add(pending.size());
+                return pending;
+            }
+        }
+    }
+
+    private static boolean isRetryable(Integer status) {
+        return status == null || status == 429 || status >= 500;
+    }
+
+    /**
+     * Waits for every submitted batch to finish. If the waiting thread is interrupted, the
+     * remaining bulks are cancelled and the interrupt flag is left set for the caller.
+     * (Not declared as throwing InterruptedException, which try-with-resources would warn about.)
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(1, TimeUnit.HOURS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getIndexed() { return indexed.sum(); }
+    public long getFailed() { return failed.sum(); }
+    public long getRetried() { return retried.sum(); }
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,53 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Variant B ranking cascade:
+ * ES retrieval (ranking.re-rank-pool-size candidates) -> linear weighted sum over all of them
+ * -> ML model over the top mlTopN survivors (only with ranking.ml-rerank-enabled).
+ *
+ * Every stage has a latency budget. A stage that goes over it shrinks the pool it works on,
+ * one that stays well under it grows the pool back towards the configured size.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ranking.cascade")
+public class CascadeConfig {
+    // Survivors of the linear stage that the ML model re-scores
+    private int mlTopN = 50;
+
+    // Per-stage latency budgets
+    private long retrievalBudgetMs = 50;
+    private long linearBudgetMs = 5;
+    private long mlBudgetMs = 5;
+
+    // Shrink/grow pools to stay within the budgets
+    private boolean adaptive = true;
+
+    // Adaptive sizes never go below these
+    private int minCandidates = 50;
+    private int minMlTopN = 10;
+
+    // Getters and Setters
+    public int getMlTopN() { return mlTopN; }
+    public void setMlTopN(int mlTopN) { this.mlTopN = mlTopN; }
+
+    public long getRetrievalBudgetMs() { return retrievalBudgetMs; }
+    public void setRetrievalBudgetMs(long retrievalBudgetMs) { this.retrievalBudgetMs = retrievalBudgetMs; }
+
+    public long getLinearBudgetMs() { return linearBudgetMs; }
+    public void setLinearBudgetMs(long linearBudgetMs) { this.linearBudgetMs = linearBudgetMs; }
+
+    public long getMlBudgetMs() { return mlBudgetMs; }
+    public void setMlBudgetMs(long mlBudgetMs) { this.mlBudgetMs = mlBudgetMs; }
+
+    public boolean isAdaptive() { return adaptive; }
+    public void setAdaptive(boolean adaptive) { this.adaptive = adaptive; }
+
+    public int getMinCandidates() { return minCandidates; }
+    public void setMinCandidates(int minCandidates) { this.minCandidates = minCandidates; }
+
+    public int getMinMlTopN() { return minMlTopN; }
+    public void setMinMlTopN(int minMlTopN) { this.minMlTopN = minMlTopN; }
+}
@@ -0,0 +1,190 @@
+package com.learning.news_search;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.ScriptType;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Click counts are aggregated in memory and written to the articles in bulk.
+ *
+ * A click is one LongAdder increment (striped, so a viral article doesn't turn into a
+ * single contended counter). Every flush interval the deltas are taken with sumThenReset
+ * and sent as scripted partial updates (clickCount += n): no read-modify-write of the
+ * whole document, and concurrent clicks can't overwrite each other.
+ *
+ * Deltas that can't be delivered are added back and go out with the next flush.
+ * Cached search responses showing an updated article, and its cached ranking features, are
+ * invalidated after each flush.
+ */
+@Service
+public class ClickCounterService {
+
+    private static final String INCREMENT_SCRIPT =
+            "ctx._source.clickCount = (ctx._source.clickCount == null ? 0 : ctx._source.clickCount) + params.n";
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final EventLogConfig config;
+    private final SearchResultCache resultCache;
+    private final ArticleFeatureStore featureStore;
+    private final BulkIndexer indexer;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder clicks = new LongAdder();
+    private final LongAdder flushedClicks = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+
+    public ClickCounterService(ElasticsearchOperations elasticsearchOperations, EventLogConfig config,
+                               SearchResultCache resultCache, ArticleFeatureStore featureStore) {
+        this.config = config;
+        this.resultCache = resultCache;
+        this.featureStore = featureStore;
+        // no retries inside the bulk: a script isn't idempotent, so failed deltas wait for the next flush
+        this.indexer = new BulkIndexer(elasticsearchOperations,
+                elasticsearchOperations.getIndexCoordinatesFor(NewsArticle.class), 1, 0, 0);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "click-counter-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getClickFlushIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void increment(String articleId) {
+        add(articleId, 1);
+    }
+
+    public void add(String articleId, long n) {
+        if (articleId == null || n <= 0) return;
+        deposit(articleId, n);
+        clicks.add(n);
+    }
+
+    // an idle adder can be evicted by flush() between our lookup and our add; whatever lands
+    // on an evicted adder is taken back off it and goes into the live one
+    private void deposit(String articleId, long n) {
+        while (n > 0) {
+            LongAdder adder = pending.computeIfAbsent(articleId, k -> new LongAdder());
+            adder.add(n);
+            if (pending.get(articleId) == adder) return;
+            n = adder.sumThenReset();
+        }
+    }
+
+    /**
+     * Clicks counted but not yet written, for read-your-own-clicks style displays.
+     */
+    public long pendingFor(String articleId) {
+        LongAdder adder = pending.get(articleId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Click count flush failed: " + e.getMessage());
+        }
+    }
+
+    public synchronized void flush() {
+        Map<String, Long> deltas = new HashMap<>();
+        for (Map.Entry<String, LongAdder> e : pending.entrySet()) {
+            long n = e.getValue().sumThenReset();
+            if (n > 0) {
+                deltas.put(e.getKey(), n);
+            } else {
+                // idle: evicted only if still empty; add() moves a click that lands on it afterwards
+                pending.computeIfPresent(e.getKey(), (id, adder) -> adder.sum() == 0 ? null : adder);
+            }
+        }
+        if (deltas.isEmpty()) return;
+
+        int batchSize = Math.max(1, config.getBatchSize());
+        Set<String> updated = new HashSet<>();
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String articleId : deltas.keySet()) {
+            batch.add(articleId);
+            if (batch.size() == batchSize) {
+                send(batch, deltas, updated);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        send(batch, deltas, updated);
+        flushes.increment();
+
+        resultCache.invalidateArticles(updated);
+        featureStore.invalidate(updated);
+    }
+
+    // the deltas are already taken out of `pending`, so whatever doesn't make it goes back in
+    private void send(List<String> articleIds, Map<String, Long> deltas, Set<String> updated) {
+        if (articleIds.isEmpty()) return;
+
+        List<String> undelivered = articleIds;
+        try {
+            List<UpdateQuery> queries = new ArrayList<>(articleIds.size());
+            for (String articleId : articleIds) {
+                queries.add(UpdateQuery.builder(articleId)
+                        .withScript(INCREMENT_SCRIPT)
+                        .withScriptType(ScriptType.INLINE)
+                        .withLang("painless")
+                        .withParams(Map.<String, Object>of("n", deltas.get(articleId)))
+                        .withRetryOnConflict(3)
+                        .build());
+            }
+            undelivered = indexer.updateNow(queries).stream().map(UpdateQuery::getId).toList();
+        } catch (Exception e) {
+            System.err.println("Click count flush failed: " + e.getMessage());
+        }
+
+        long sent = 0;
+        for (String articleId : articleIds) sent += deltas.get(articleId);
+        updated.addAll(articleIds);
+        for (String articleId : undelivered) {
+            updated.remove(articleId);
+            long n = deltas.get(articleId);
+            deposit(articleId, n);
+            requeued.add(n);
+            sent -= n;
+        }
+        flushedClicks.add(sent);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        flushQuietly(); // last deltas out before the JVM goes
+        indexer.close();
+    }
+
+    public ClickCounterStats stats() {
+        return new ClickCounterStats(clicks.sum(), flushedClicks.sum(), requeued.sum(),
+                flushes.sum(), pending.size());
+    }
+
+    public record ClickCounterStats(
+            long clicks,
+            long flushedClicks,
+            long requeuedClicks,
+            long flushes,
+            int pendingArticles
+    ) {}
+}
@@ -0,0 +1,90 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Settings for the asynchronous search/click event writer and its on-disk spool.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "events")
+public class EventLogConfig {
+
+    public enum OverflowPolicy { DROP, SAMPLE }
+
+    // Events buffered in memory before the overflow policy kicks in
+    private int queueCapacity = 10_000;
+
+    // Events per bulk request
+    private int batchSize = 500;
+
+    // Max time an event waits in the queue before a (smaller) bulk is sent anyway
+    private long flushIntervalMs = 1000;
+
+    // DROP: reject new events once the queue is full
+    // SAMPLE: past sampleThreshold fill, keep only sampleRate of new events (still drop when full)
+    private OverflowPolicy overflowPolicy = OverflowPolicy.SAMPLE;
+    private double sampleThreshold = 0.8;
+    private double sampleRate = 0.1;
+
+    // Max items accepted by the batched click endpoint
+    private int maxClickBatch = 500;
+
+    // How often aggregated click counts are written to the articles
+    private long clickFlushIntervalMs = 2000;
+
+    // ---- durable spool ----
+
+    // Write events to a memory-mapped spool on disk first, so nothing is lost while ES is down
+    private boolean spoolEnabled = true;
+    private String spoolDir = "data/event-spool";
+
+    // Segment file size; a full segment rolls over to a new file
+    private int spoolSegmentMb = 64;
+
+    // Unshipped segments allowed on disk; past that, events fall back to the in-memory queue
+    private int spoolMaxSegments = 16;
+
+    // How often mapped pages are forced to disk (protects against machine crashes, not just JVM ones)
+    private long spoolForceIntervalMs = 1000;
+
+    // Getters and Setters
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public long getFlushIntervalMs() { return flushIntervalMs; }
+    public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+
+    public double getSampleThreshold() { return sampleThreshold; }
+    public void setSampleThreshold(double sampleThreshold) { this.sampleThreshold = sampleThreshold; }
+
+    public double getSampleRate() { return sampleRate; }
+    public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
+
+    public int getMaxClickBatch() { return maxClickBatch; }
+    public void setMaxClickBatch(int maxClickBatch) { this.maxClickBatch = maxClickBatch; }
+
+    public long getClickFlushIntervalMs() { return clickFlushIntervalMs; }
+    public void setClickFlushIntervalMs(long clickFlushIntervalMs) { this.clickFlushIntervalMs = clickFlushIntervalMs; }
+
+    public boolean isSpoolEnabled() { return spoolEnabled; }
+    public void setSpoolEnabled(boolean spoolEnabled) { this.spoolEnabled = spoolEnabled; }
+
+    public String getSpoolDir() { return spoolDir; }
+    public void setSpoolDir(String spoolDir) { this.spoolDir = spoolDir; }
+
+    public int getSpoolSegmentMb() { return spoolSegmentMb; }
+    public void setSpoolSegmentMb(int spoolSegmentMb) { this.spoolSegmentMb = spoolSegmentMb; }
+
+    public int getSpoolMaxSegments() { return spoolMaxSegments; }
+    public void setSpoolMaxSegments(int spoolMaxSegments) { this.spoolMaxSegments = spoolMaxSegments; }
+
+    public long getSpoolForceIntervalMs() { return spoolForceIntervalMs; }
+    public void setSpoolForceIntervalMs(long spoolForceIntervalMs) { this.spoolForceIntervalMs = spoolForceIntervalMs; }
+}
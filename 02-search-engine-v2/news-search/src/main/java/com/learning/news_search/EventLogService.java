@@ -0,0 +1,149 @@
+package com.learning.news_search;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Analytics event logging that stays off the search path.
+ *
+ * With the spool enabled, events are encoded and appended to EventSpool (durable, shipped
+ * to ES by EventSpoolShipper). The in-memory AsyncEventWriters are the fallback when the
+ * spool is disabled, full, or can't be opened.
+ *
+ * Events get their id here, so every retry / replay downstream overwrites instead of duplicating.
+ */
+@Service
+public class EventLogService {
+
+    // one scratch buffer per request thread for encoding
+    private static final ThreadLocal<ByteBuffer> ENCODE_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(64 * 1024));
+
+    private final AsyncEventWriter<SearchEvent> searchEvents;
+    private final AsyncEventWriter<ClickEvent> clickEvents;
+
+    // synchronous path for batched click uploads that want per-item results
+    private final BulkIndexer clickBulk;
+
+    private final EventSpool spool;
+    private final EventSpoolShipper shipper;
+
+    public EventLogService(ElasticsearchOperations elasticsearchOperations, EventLogConfig config) {
+        this.searchEvents = new AsyncEventWriter<>("search",
+                elasticsearchOperations,
+                elasticsearchOperations.getIndexCoordinatesFor(SearchEvent.class),
+                SearchEvent::getId,
+                config);
+        this.clickEvents = new AsyncEventWriter<>("click",
+                elasticsearchOperations,
+                elasticsearchOperations.getIndexCoordinatesFor(ClickEvent.class),
+                ClickEvent::getId,
+                config);
+
+        this.clickBulk = new BulkIndexer(elasticsearchOperations,
+                elasticsearchOperations.getIndexCoordinatesFor(ClickEvent.class), 1, 1, 200);
+
+        EventSpool opened = null;
+        if (config.isSpoolEnabled()) {
+            try {
+                opened = new EventSpool(Path.of(config.getSpoolDir()),
+                        config.getSpoolSegmentMb() << 20, config.getSpoolMaxSegments());
+            } catch (IOException e) {
+                System.err.println("Event spool unavailable, using the in-memory queue only: " + e.getMessage());
+            }
+        }
+        this.spool = opened;
+        this.shipper = opened != null ? new EventSpoolShipper(opened, elasticsearchOperations, config) : null;
+    }
+
+    public void logSearch(SearchEvent event) {
+        if (event.getId() == null) event.setId(UUID.randomUUID().toString());
+
+        if (spool != null) {
+            ByteBuffer buf = ENCODE_BUFFER.get().clear();
+            try {
+                EventCodec.encodeSearch(event, buf);
+                if (spool.append(buf.flip())) return;
+            } catch (BufferOverflowException e) {
+                // absurdly large event, let the memory queue take it
+            }
+        }
+        searchEvents.offer(event);
+    }
+
+    public void logClick(ClickEvent event) {
+        if (event.getId() == null) event.setId(UUID.randomUUID().toString());
+
+        if (spool != null) {
+            ByteBuffer buf = ENCODE_BUFFER.get().clear();
+            try {
+                EventCodec.encodeClick(event, buf);
+                if (spool.append(buf.flip())) return;
+            } catch (BufferOverflowException e) {
+                // see logSearch
+            }
+        }
+        clickEvents.offer(event);
+    }
+
+    /**
+     * Writes a batch of click events with a single bulk request, on the calling thread.
+     * Events ES couldn't take right now are handed to logClick (spool / queue) and reported
+     * as queued; events ES rejected outright are reported with its error.
+     */
+    public ClickWriteResult logClicksNow(List<ClickEvent> events) {
+        List<IndexQuery> queries = new ArrayList<>(events.size());
+        for (ClickEvent event : events) {
+            if (event.getId() == null) event.setId(UUID.randomUUID().toString());
+            queries.add(new IndexQueryBuilder().withId(event.getId()).withObject(event).build());
+        }
+
+        BulkIndexer.BulkResult result = clickBulk.indexWithResults(queries);
+
+        Set<String> queued = new HashSet<>(result.undeliveredIds());
+        for (ClickEvent event : events) {
+            if (queued.contains(event.getId())) logClick(event);
+        }
+        return new ClickWriteResult(queued, result.rejected());
+    }
+
+    public record ClickWriteResult(Set<String> queuedIds, Map<String, String> rejected) {}
+
+    public EventLogStats stats() {
+        return new EventLogStats(
+                shipper != null ? shipper.stats() : null,
+                searchEvents.stats(),
+                clickEvents.stats());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (shipper != null) {
+            shipper.close();
+            spool.close(); // whatever is left ships on the next start
+        }
+        searchEvents.close();
+        clickEvents.close();
+        clickBulk.close();
+    }
+
+    public record EventLogStats(
+            EventSpoolShipper.ShipperStats spool,
+            AsyncEventWriter.EventWriterStats searchQueue,
+            AsyncEventWriter.EventWriterStats clickQueue
+    ) {}
+}
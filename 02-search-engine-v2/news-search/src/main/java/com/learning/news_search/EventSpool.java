@@ -0,0 +1,367 @@
+package com.learning.news_search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped log of encoded events, split into fixed-size segment files
+ * (events-&lt;seq&gt;.spool). Any number of threads append; one reader (the shipper) consumes.
+ *
+ * Record layout, 4-byte aligned:
+ *
+ *   length:i32  crc32c:i32  payload[length]
+ *
+ * A writer reserves its slot with a getAndAdd on the segment position, immediately marks it
+ * with -slotSize, copies the payload, and publishes it by writing the length last with
+ * release semantics. The reader acquire-reads the length:
+ *
+ *   0         nothing reserved here (yet): caught up, or the end of a crashed run's segment
+ *   -1        segment ends here, go to the next one
+ *   -slotSize reserved, still being written: wait, unless the writer is gone (the segment
+ *             was sealed long ago, or left over from a crash) - then step over the slot
+ *
+ * so one append that never finished costs only its own record, not the rest of the segment.
+ * No locks on the append path except when a segment fills up.
+ *
+ * The reader's committed position lives in spool.offset; everything before it has been
+ * delivered, and fully-consumed segments are deleted. After a crash the reader starts again
+ * from the last commit, so delivery is at-least-once.
+ */
+public class EventSpool implements AutoCloseable {
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final int END_OF_SEGMENT = -1;
+    private static final int RECORD_HEADER = 8;
+
+    // a slot reserved in a segment that has since been sealed but never published (writer
+    // thread died mid-append) is stepped over after this long
+    private static final long ABANDONED_SLOT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment head;
+
+    // reader state, only touched by the shipper thread
+    private long readSeq;
+    private int readOffset;
+    private long pendingSeq;
+    private int pendingOffset;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder corrupt = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public EventSpool(Path dir, int segmentBytes, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(2, maxSegments);
+        Files.createDirectories(dir);
+
+        // whatever a previous run left behind is sealed and only waits to be shipped
+        long lastSeq = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.filter(f -> f.getFileName().toString().endsWith(".spool")).toList()) {
+                Segment seg = Segment.open(p, seqOf(p), (int) Files.size(p));
+                seg.sealedAtNanos = System.nanoTime() - ABANDONED_SLOT_NANOS;
+                segments.put(seg.seq, seg);
+                lastSeq = Math.max(lastSeq, seg.seq);
+            }
+        }
+
+        long[] committed = readOffsetFile();
+        readSeq = committed[0];
+        readOffset = (int) committed[1];
+        if (segments.isEmpty() || readSeq < segments.firstKey()) {
+            readSeq = segments.isEmpty() ? lastSeq + 1 : segments.firstKey();
+            readOffset = 0;
+        }
+        pendingSeq = readSeq;
+        pendingOffset = readOffset;
+
+        head = createSegment(Math.max(lastSeq, readSeq) + 1);
+        if (segments.size() > 1) {
+            System.out.println("Event spool: " + (segments.size() - 1) + " segment(s) left to ship from the last run");
+        }
+    }
+
+    // ==================== Writing ====================
+
+    /**
+     * Appends one encoded record (position..limit of the buffer). Never blocks on I/O;
+     * returns false if the record is empty or too big, or the spool already has maxSegments
+     * unshipped. (An empty record would publish length 0, which reads as "nothing here".)
+     */
+    public boolean append(ByteBuffer record) {
+        int length = record.remaining();
+        int size = align(RECORD_HEADER + length);
+        if (length == 0 || size > segmentBytes - 4) {
+            rejected.increment();
+            return false;
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(record.duplicate());
+        int checksum = (int) crc.getValue();
+
+        while (true) {
+            Segment seg = head;
+            int limit = seg.capacity - 4; // always room for the end marker
+
+            if (seg.position.get() <= limit) {
+                int pos = seg.position.getAndAdd(size);
+                if (pos + size <= limit) {
+                    // reserved: lets the reader step over the slot if we never get to publish it
+                    INT.setRelease(seg.buffer, pos, -size);
+                    seg.buffer.slice(pos + RECORD_HEADER, length).put(record.duplicate());
+                    seg.buffer.putInt(pos + 4, checksum);
+                    INT.setRelease(seg.buffer, pos, length); // publish
+                    appended.increment();
+                    return true;
+                }
+                if (pos <= limit) {
+                    // this reservation crossed the end: tell the reader to move on
+                    INT.setRelease(seg.buffer, pos, END_OF_SEGMENT);
+                }
+            }
+
+            if (!roll(seg)) {
+                rejected.increment();
+                return false;
+            }
+        }
+    }
+
+    private synchronized boolean roll(Segment full) {
+        if (head != full) return true; // somebody else already rolled
+        if (segments.size() >= maxSegments) return false;
+
+        try {
+            Segment next = createSegment(full.seq + 1);
+            full.sealedAtNanos = System.nanoTime();
+            head = next;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Event spool: cannot create segment: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Segment createSegment(long seq) throws IOException {
+        Segment seg = Segment.open(dir.resolve(String.format("events-%016d.spool", seq)), seq, segmentBytes);
+        segments.put(seq, seg);
+        return seg;
+    }
+
+    /**
+     * Pushes dirty pages to disk. Appends survive a process crash without this (the OS owns
+     * the pages), this is for surviving a machine crash.
+     */
+    public void force() {
+        for (Segment seg : segments.values()) {
+            seg.buffer.force(); // cheap when nothing is dirty
+        }
+    }
+
+    // ==================== Reading (single consumer) ====================
+
+    /**
+     * Up to max records after the last poll, as heap copies of their payloads.
+     * They only count as consumed once commit() is called.
+     */
+    public List<ByteBuffer> poll(int max) {
+        List<ByteBuffer> records = new ArrayList<>(Math.min(max, 1024));
+        long seq = pendingSeq;
+        int offset = pendingOffset;
+
+        while (records.size() < max) {
+            Segment seg = segments.get(seq);
+            if (seg == null) {
+                Long next = segments.higherKey(seq);
+                if (next == null) break;
+                seq = next;
+                offset = 0;
+                continue;
+            }
+
+            // writers never start a record (or the end marker) past capacity - 4
+            int length = offset <= seg.capacity - 4 ? (int) INT.getAcquire(seg.buffer, offset) : END_OF_SEGMENT;
+
+            boolean writersGone = seg.sealedAtNanos != 0
+                    && System.nanoTime() - seg.sealedAtNanos > ABANDONED_SLOT_NANOS;
+            if (length == 0) {
+                if (!writersGone) break; // caught up with the writers
+                length = END_OF_SEGMENT; // no reservation got this far
+            }
+
+            if (length < END_OF_SEGMENT) {
+                int slot = -length;
+                if (slot < RECORD_HEADER || (slot & 3) != 0 || offset + slot > seg.capacity - 4) {
+                    System.err.println("Event spool: bad slot marker " + length + " in segment " + seq);
+                    corrupt.increment();
+                    length = END_OF_SEGMENT;
+                } else if (!writersGone) {
+                    break; // still being written
+                } else {
+                    abandoned.increment(); // its writer died mid-append; the records after it are fine
+                    offset += slot;
+                    continue;
+                }
+            }
+
+            if (length != END_OF_SEGMENT && (length < 0 || offset + RECORD_HEADER + length > seg.capacity)) {
+                System.err.println("Event spool: bad record length " + length + " in segment " + seq);
+                corrupt.increment();
+                length = END_OF_SEGMENT;
+            }
+
+            if (length == END_OF_SEGMENT) {
+                Long next = segments.higherKey(seq);
+                if (next == null) break;
+                seq = next;
+                offset = 0;
+                continue;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            payload.put(seg.buffer.slice(offset + RECORD_HEADER, length)).flip();
+
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() == seg.buffer.getInt(offset + 4)) {
+                records.add(payload);
+            } else {
+                corrupt.increment(); // torn write from a machine crash, skip just this record
+            }
+            offset += align(RECORD_HEADER + length);
+        }
+
+        pendingSeq = seq;
+        pendingOffset = offset;
+        return records;
+    }
+
+    /**
+     * Marks everything returned by poll() so far as delivered: persists the position and
+     * deletes segments that are now fully behind it.
+     */
+    public void commit() throws IOException {
+        readSeq = pendingSeq;
+        readOffset = pendingOffset;
+        writeOffsetFile(readSeq, readOffset);
+
+        for (Map.Entry<Long, Segment> e : segments.headMap(readSeq).entrySet()) {
+            Segment seg = e.getValue();
+            if (seg == head) continue;
+            segments.remove(e.getKey());
+            seg.close();
+            Files.deleteIfExists(seg.path);
+        }
+    }
+
+    /**
+     * Forget what poll() returned since the last commit, so it's read again.
+     */
+    public void rewind() {
+        pendingSeq = readSeq;
+        pendingOffset = readOffset;
+    }
+
+    // ==================== Bookkeeping ====================
+
+    private long[] readOffsetFile() throws IOException {
+        Path file = dir.resolve("spool.offset");
+        if (!Files.exists(file)) return new long[] {0, 0};
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return new long[] {in.readLong(), in.readLong()};
+        }
+    }
+
+    private void writeOffsetFile(long seq, int offset) throws IOException {
+        Path file = dir.resolve("spool.offset");
+        Path tmp = dir.resolve("spool.offset.tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeLong(seq);
+            out.writeLong(offset);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long seqOf(Path p) {
+        String name = p.getFileName().toString();
+        return Long.parseLong(name.substring("events-".length(), name.length() - ".spool".length()));
+    }
+
+    private static int align(int n) {
+        return (n + 3) & ~3;
+    }
+
+    @Override
+    public void close() {
+        force();
+        for (Segment seg : segments.values()) seg.close();
+    }
+
+    public SpoolStats stats() {
+        return new SpoolStats(segments.size(), appended.sum(), rejected.sum(), corrupt.sum(), abandoned.sum());
+    }
+
+    public record SpoolStats(int segments, long appended, long rejected, long corrupt, long abandoned) {}
+
+    private static final class Segment {
+        final long seq;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final AtomicInteger position = new AtomicInteger();
+        volatile long sealedAtNanos; // 0 while it's the head
+
+        private Segment(long seq, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.seq = seq;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment open(Path path, long seq, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // mapping past the end grows the file; the new bytes read as zero = "not written"
+            return new Segment(seq, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the mapping stays valid until GC, nothing useful to do here
+            }
+        }
+    }
+}
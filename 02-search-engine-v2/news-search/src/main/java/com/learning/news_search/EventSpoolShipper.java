@@ -0,0 +1,141 @@
+package com.learning.news_search;
+
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the event spool into Elasticsearch.
+ *
+ * Reads a batch, bulk-indexes search and click events into their indices, and only then
+ * commits the spool position. If ES is down the same batch is retried (with backoff) until
+ * it goes through - events carry their ids, so a resend overwrites instead of duplicating.
+ */
+public class EventSpoolShipper {
+
+    private final EventSpool spool;
+    private final EventLogConfig config;
+    private final BulkIndexer searchIndexer;
+    private final BulkIndexer clickIndexer;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final LongAdder shipped = new LongAdder();
+    private final LongAdder undecodable = new LongAdder();
+    private volatile long backlogRetries;
+
+    public EventSpoolShipper(EventSpool spool, ElasticsearchOperations elasticsearchOperations,
+                             EventLogConfig config) {
+        this.spool = spool;
+        this.config = config;
+        this.searchIndexer = new BulkIndexer(elasticsearchOperations,
+                elasticsearchOperations.getIndexCoordinatesFor(SearchEvent.class), 1, 3, 500);
+        this.clickIndexer = new BulkIndexer(elasticsearchOperations,
+                elasticsearchOperations.getIndexCoordinatesFor(ClickEvent.class), 1, 3, 500);
+
+        this.thread = new Thread(this::shipLoop, "event-spool-shipper");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void shipLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMs());
+        long forceNanos = TimeUnit.MILLISECONDS.toNanos(config.getSpoolForceIntervalMs());
+        long nextForce = System.nanoTime() + forceNanos;
+        long backoffMs = 1000;
+
+        while (running) {
+            if (System.nanoTime() >= nextForce) {
+                spool.force();
+                nextForce = System.nanoTime() + forceNanos;
+            }
+
+            List<ByteBuffer> records = spool.poll(config.getBatchSize());
+            if (records.isEmpty()) {
+                LockSupport.parkNanos(this, intervalNanos);
+                continue;
+            }
+
+            try {
+                if (ship(records)) {
+                    spool.commit();
+                    shipped.add(records.size());
+                    backoffMs = 1000;
+                } else {
+                    // ES is struggling: keep the batch in the spool and try again later
+                    spool.rewind();
+                    backlogRetries++;
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                    backoffMs = Math.min(backoffMs * 2, 60_000);
+                    continue;
+                }
+            } catch (Exception e) {
+                System.err.println("Event spool shipping failed: " + e.getMessage());
+                spool.rewind();
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                continue;
+            }
+
+            // partial batch = we're caught up; let the next one fill instead of sending dribbles
+            if (records.size() < config.getBatchSize()) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+        }
+        spool.force();
+    }
+
+    // true if everything was delivered (or rejected for good by ES)
+    private boolean ship(List<ByteBuffer> records) {
+        List<IndexQuery> searches = new ArrayList<>();
+        List<IndexQuery> clicks = new ArrayList<>();
+
+        for (ByteBuffer record : records) {
+            Object event;
+            try {
+                event = EventCodec.decode(record);
+            } catch (RuntimeException e) {
+                undecodable.increment();
+                continue;
+            }
+
+            if (event instanceof SearchEvent s) {
+                searches.add(new IndexQueryBuilder().withId(s.getId()).withObject(s).build());
+            } else if (event instanceof ClickEvent c) {
+                clicks.add(new IndexQueryBuilder().withId(c.getId()).withObject(c).build());
+            }
+        }
+
+        int undelivered = searchIndexer.indexNow(searches);
+        if (undelivered == 0) undelivered = clickIndexer.indexNow(clicks);
+        return undelivered == 0;
+    }
+
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+        searchIndexer.close();
+        clickIndexer.close();
+    }
+
+    public ShipperStats stats() {
+        return new ShipperStats(shipped.sum(), undecodable.sum(), backlogRetries,
+                searchIndexer.getFailed() + clickIndexer.getFailed(), spool.stats());
+    }
+
+    public record ShipperStats(
+            long shipped,
+            long undecodable,
+            long backlogRetries,
+            long rejectedByElasticsearch,
+            EventSpool.SpoolStats spool
+    ) {}
+}
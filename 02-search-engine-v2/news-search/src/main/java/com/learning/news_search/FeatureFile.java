@@ -0,0 +1,218 @@
+package com.learning.news_search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Training examples on disk, written once and then read front to back every epoch, so the
+ * training set doesn't have to fit in the heap.
+ *
+ * Layout:
+ *
+ *   header:  magic:i32 ("LTRF")  version:i32  width:i32  rows:i64  positives:i64
+ *   rows:    flags:i8  feature:f32 * width
+ *
+ * flags bit 0 is the label, bit 1 marks the first row of a query group (the results of one
+ * search, kept together for pairwise training).
+ *
+ * Features are stored as floats (17 bytes per row for the usual four features); they are
+ * normalized scores, so single precision loses nothing that matters. The row counts in the
+ * header are filled in when the writer is closed.
+ */
+public final class FeatureFile {
+
+    private static final int MAGIC = 0x4C545246;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final Path path;
+    private final int width;
+    private final long rows;
+    private final long positives;
+
+    private FeatureFile(Path path, int width, long rows, long positives) {
+        this.path = path;
+        this.width = width;
+        this.rows = rows;
+        this.positives = positives;
+    }
+
+    public static Writer create(Path path, int width) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        return new Writer(path, width);
+    }
+
+    public static FeatureFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a feature file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + " has unsupported version " + version);
+            }
+            return new FeatureFile(path, header.getInt(), header.getLong(), header.getLong());
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long positives() {
+        return positives;
+    }
+
+    public long negatives() {
+        return rows - positives;
+    }
+
+    public Reader reader() throws IOException {
+        return new Reader(path, width);
+    }
+
+    private static int rowBytes(int width) {
+        return 1 + width * Float.BYTES;
+    }
+
+    public static final class Writer implements Closeable {
+        private final Path path;
+        private final int width;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long rows;
+        private long positives;
+
+        private Writer(Path path, int width) throws IOException {
+            this.path = path;
+            this.width = width;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES); // header goes in last, once the counts are known
+        }
+
+        public void add(double[] features, int label) throws IOException {
+            add(features, label, false);
+        }
+
+        public void add(double[] features, int label, boolean groupStart) throws IOException {
+            if (features.length != width) {
+                throw new IllegalArgumentException("Expected " + width + " features, got " + features.length);
+            }
+            if (buffer.remaining() < rowBytes(width)) {
+                drain();
+            }
+            int bit = label > 0 ? 1 : 0;
+            buffer.put((byte) (bit | (groupStart ? 2 : 0)));
+            for (double f : features) {
+                buffer.putFloat((float) f);
+            }
+            rows++;
+            positives += bit;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putLong(rows).putLong(positives).flip();
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+
+        // the finished file; only valid after close()
+        public FeatureFile toFile() {
+            return new FeatureFile(path, width, rows, positives);
+        }
+    }
+
+    /**
+     * Sequential reader, a block of rows at a time.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final double[] row;
+        private boolean eof;
+
+        private Reader(Path path, int width) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.row = new double[width];
+            channel.position(HEADER_BYTES);
+            buffer.flip(); // start empty
+        }
+
+        /**
+         * Replaces the content of `block` with up to maxRows next rows.
+         * @return rows read, 0 at the end of the file
+         */
+        public int read(FeatureMatrix block, int maxRows) throws IOException {
+            block.clear();
+            int rowBytes = rowBytes(row.length);
+            while (block.rows() < maxRows) {
+                if (buffer.remaining() < rowBytes && !fill()) break;
+
+                int flags = buffer.get();
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = buffer.getFloat();
+                }
+                block.add(row, flags & 1, (flags & 2) != 0);
+            }
+            return block.rows();
+        }
+
+        // false once nothing is left to read
+        private boolean fill() throws IOException {
+            if (eof) return false; // a torn last row (writer died) is dropped
+            buffer.compact();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= rowBytes(row.length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.learning.news_search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Training data as two primitive arrays instead of one object per example:
+ * features row-major (rows x width doubles) and one 0/1 label byte per row.
+ * FeatureFile.Reader fills one block at a time for the trainer.
+ * Rows that start a new query group (the results of one search) are flagged, for the
+ * pairwise GBDT trainer.
+ */
+public final class FeatureMatrix {
+
+    private final int width;
+    private double[] features;
+    private byte[] labels;
+    private final BitSet groupStarts = new BitSet();
+    private int rows;
+
+    public FeatureMatrix(int width, int expectedRows) {
+        this.width = width;
+        int capacity = Math.max(16, expectedRows);
+        this.features = new double[capacity * width];
+        this.labels = new byte[capacity];
+    }
+
+    public void add(double[] row, int label) {
+        add(row, label, false);
+    }
+
+    public void add(double[] row, int label, boolean groupStart) {
+        if (row.length != width) {
+            throw new IllegalArgumentException("Expected " + width + " features, got " + row.length);
+        }
+        if (rows == labels.length) {
+            int capacity = rows * 2;
+            features = Arrays.copyOf(features, capacity * width);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        System.arraycopy(row, 0, features, rows * width, width);
+        groupStarts.set(rows, groupStart);
+        labels[rows++] = (byte) (label > 0 ? 1 : 0);
+    }
+
+    // keeps the capacity, so one matrix can be refilled block after block
+    public void clear() {
+        rows = 0;
+        groupStarts.clear();
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public double feature(int row, int column) {
+        return features[row * width + column];
+    }
+
+    public int label(int row) {
+        return labels[row];
+    }
+
+    public boolean groupStart(int row) {
+        return groupStarts.get(row);
+    }
+
+    // backing arrays, valid up to rows(); for the trainer's inner loops
+    double[] features() {
+        return features;
+    }
+
+    byte[] labels() {
+        return labels;
+    }
+}
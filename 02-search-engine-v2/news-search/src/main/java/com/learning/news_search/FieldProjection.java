@@ -0,0 +1,74 @@
+package com.learning.news_search;
+
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Which article fields a search returns, from the `fields` request parameter
+ * (e.g. fields=headline,category). Becomes a _source includes filter, so Elasticsearch
+ * only sends those fields; the id always comes along as hit metadata.
+ */
+public record FieldProjection(List<String> fields) {
+
+    // _source field names, same as the JSON property names of NewsArticle
+    static final Set<String> ARTICLE_FIELDS = Set.of(
+            "category", "headline", "authors", "link", "short_description", "date", "clickCount");
+
+    public static final FieldProjection ALL = new FieldProjection(List.of());
+
+    /**
+     * Null or blank means every field. Unknown field names are a 400.
+     */
+    public static FieldProjection parse(String fieldsParam) {
+        if (fieldsParam == null || fieldsParam.isBlank()) return ALL;
+
+        Set<String> fields = new TreeSet<>(); // sorted, so equal projections make equal cache keys
+        for (String field : fieldsParam.split(",")) {
+            field = field.trim();
+            if (field.isEmpty() || field.equals("id")) continue;
+            if (!ARTICLE_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field '" + field + "', expected some of " + new TreeSet<>(ARTICLE_FIELDS));
+            }
+            fields.add(field);
+        }
+        // only "id" asked for: still need some _source filter, category is the smallest useful one
+        if (fields.isEmpty()) fields.add("category");
+        return new FieldProjection(List.copyOf(fields));
+    }
+
+    public boolean isAll() {
+        return fields.isEmpty();
+    }
+
+    public boolean includes(String field) {
+        return isAll() || fields.contains(field);
+    }
+
+    /**
+     * Null when everything is wanted (no filter on the request).
+     */
+    public SourceFilter sourceFilter() {
+        if (isAll()) return null;
+        return new FetchSourceFilter(true, fields.toArray(String[]::new), null);
+    }
+
+    // clickCount defaults to 0 in NewsArticle, don't report 0 for a field ES didn't send
+    public List<NewsArticle> strip(List<NewsArticle> articles) {
+        if (!includes("clickCount")) {
+            for (NewsArticle article : articles) article.setClickCount(null);
+        }
+        return articles;
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "*" : String.join(",", fields);
+    }
+}
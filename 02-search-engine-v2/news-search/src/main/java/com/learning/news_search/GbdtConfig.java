@@ -0,0 +1,63 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gradient-boosted tree ranker (see GbdtTrainer / GbdtModel), trained with
+ * POST /api/admin/train?model=GBDT and used when ranking.ml-model=GBDT.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "training.gbdt")
+public class GbdtConfig {
+    // Every tree is a complete binary tree of this depth (2^depth leaves)
+    private int depth = 5;
+
+    // Shrinkage applied to every tree's leaf values
+    private double learningRate = 0.1;
+
+    // Feature values are bucketed into at most this many quantile bins (max 256)
+    private int bins = 64;
+
+    // A split needs at least this much hessian / this many rows on both sides
+    private double minChildHessian = 1.0;
+    private int minChildRows = 20;
+
+    // L2 regularization of the leaf values
+    private double l2 = 1.0;
+
+    // Holdout NDCG is measured at this cutoff; stop after `patience` trees without improvement
+    private int ndcgAt = 10;
+    private int patience = 20;
+
+    // Rows loaded for training (whole query groups, from the start of the file)
+    private int maxRows = 2_000_000;
+
+    // Getters and Setters
+    public int getDepth() { return depth; }
+    public void setDepth(int depth) { this.depth = depth; }
+
+    public double getLearningRate() { return learningRate; }
+    public void setLearningRate(double learningRate) { this.learningRate = learningRate; }
+
+    public int getBins() { return bins; }
+    public void setBins(int bins) { this.bins = bins; }
+
+    public double getMinChildHessian() { return minChildHessian; }
+    public void setMinChildHessian(double minChildHessian) { this.minChildHessian = minChildHessian; }
+
+    public int getMinChildRows() { return minChildRows; }
+    public void setMinChildRows(int minChildRows) { this.minChildRows = minChildRows; }
+
+    public double getL2() { return l2; }
+    public void setL2(double l2) { this.l2 = l2; }
+
+    public int getNdcgAt() { return ndcgAt; }
+    public void setNdcgAt(int ndcgAt) { this.ndcgAt = ndcgAt; }
+
+    public int getPatience() { return patience; }
+    public void setPatience(int patience) { this.patience = patience; }
+
+    public int getMaxRows() { return maxRows; }
+    public void setMaxRows(int maxRows) { this.maxRows = maxRows; }
+}
@@ -0,0 +1,125 @@
+package com.learning.news_search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A trained tree ensemble laid out in flat primitive arrays for scoring.
+ *
+ * Every tree is a complete binary tree of the same depth, stored breadth first: internal node
+ * i of a tree has children 2i+1 and 2i+2, and its leaves follow in order. Nodes that didn't
+ * need a split carry one that sends everything left (threshold +inf), so every walk is exactly
+ * `depth` compare-and-shift steps with no pointer chasing and no data-dependent loop exit.
+ * All trees share the same three arrays:
+ *
+ *   splitFeature[tree * internal + i], threshold[tree * internal + i], leaf[tree * leaves + j]
+ *
+ * Scoring runs tree by tree over a block of candidates, so one tree's nodes stay in L1 while
+ * the block goes through it.
+ */
+final class GbdtModel {
+
+    // candidates per block: their feature rows and partial scores fit in L1 alongside one tree
+    private static final int BLOCK = 64;
+
+    private final int width;
+    private final int depth;
+    private final int trees;
+    private final int[] splitFeature;
+    private final double[] threshold;
+    private final double[] leaf;
+
+    GbdtModel(int width, int depth, int trees, int[] splitFeature, double[] threshold, double[] leaf) {
+        int internal = (1 << depth) - 1;
+        if (splitFeature.length != trees * internal || threshold.length != trees * internal
+                || leaf.length != trees * (1 << depth)) {
+            throw new IllegalArgumentException("Array sizes don't match " + trees + " trees of depth " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.trees = trees;
+        this.splitFeature = splitFeature;
+        this.threshold = threshold;
+        this.leaf = leaf;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    int trees() {
+        return trees;
+    }
+
+    /**
+     * Raw ensemble scores (sum of leaf values) of `rows` row-major feature vectors.
+     */
+    void score(double[] features, int rows, double[] out) {
+        score(features, rows, trees, out);
+    }
+
+    // only the first `treeCount` trees, for evaluating a model while it grows
+    void score(double[] features, int rows, int treeCount, double[] out) {
+        Arrays.fill(out, 0, rows, 0.0);
+        int internal = (1 << depth) - 1;
+        int leaves = internal + 1;
+
+        for (int blockStart = 0; blockStart < rows; blockStart += BLOCK) {
+            int blockEnd = Math.min(blockStart + BLOCK, rows);
+            for (int t = 0; t < treeCount; t++) {
+                int nodes = t * internal;
+                int leafBase = t * leaves - internal;
+                for (int r = blockStart; r < blockEnd; r++) {
+                    int base = r * width;
+                    int i = 0;
+                    for (int d = 0; d < depth; d++) {
+                        int n = nodes + i;
+                        i = 2 * i + 1 + (features[base + splitFeature[n]] > threshold[n] ? 1 : 0);
+                    }
+                    out[r] += leaf[leafBase + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * This model with only its first `treeCount` trees (early stopping).
+     */
+    GbdtModel truncate(int treeCount) {
+        if (treeCount >= trees) return this;
+        int internal = (1 << depth) - 1;
+        return new GbdtModel(width, depth, treeCount,
+                Arrays.copyOf(splitFeature, treeCount * internal),
+                Arrays.copyOf(threshold, treeCount * internal),
+                Arrays.copyOf(leaf, treeCount * (internal + 1)));
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(depth);
+        out.writeInt(trees);
+        for (int f : splitFeature) out.writeInt(f);
+        for (double t : threshold) out.writeDouble(t);
+        for (double v : leaf) out.writeDouble(v);
+    }
+
+    static GbdtModel read(DataInputStream in) throws IOException {
+        int width = in.readInt();
+        int depth = in.readInt();
+        int trees = in.readInt();
+        int internal = (1 << depth) - 1;
+        int[] splitFeature = new int[trees * internal];
+        double[] threshold = new double[trees * internal];
+        double[] leaf = new double[trees * (internal + 1)];
+        for (int i = 0; i < splitFeature.length; i++) splitFeature[i] = in.readInt();
+        for (int i = 0; i < threshold.length; i++) threshold[i] = in.readDouble();
+        for (int i = 0; i < leaf.length; i++) leaf[i] = in.readDouble();
+        return new GbdtModel(width, depth, trees, splitFeature, threshold, leaf);
+    }
+}
@@ -0,0 +1,125 @@
+package com.learning.news_search;
+
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gradient-boosted tree ranker (LambdaMART), the alternative to SimpleMLRanker selected by
+ * ranking.ml-model=GBDT. Same features, same scoring contract: one score per row of a
+ * row-major feature matrix, higher is better.
+ * <p>
+ * Trees can pick up interactions the logistic model can't ("freshness matters for politics
+ * but not for food"). The published model is an immutable GbdtModel behind an
+ * AtomicReference, swapped in one step after training; until one has been trained (or
+ * loaded from MODEL_FILE) isTrained() is false and the cascade keeps using SimpleMLRanker.
+ */
+@Component
+public class GbdtRanker {
+
+    private final AtomicReference<GbdtModel> model = new AtomicReference<>();
+
+    private static final String MODEL_FILE = "ltr_gbdt.bin";
+
+    public GbdtRanker() {
+        loadModel();
+    }
+
+    public boolean isTrained() {
+        GbdtModel m = model.get();
+        return m != null && m.trees() > 0;
+    }
+
+    /**
+     * Scores for `rows` feature vectors stored row-major in one flat array, squashed through
+     * a sigmoid so they sit in (0, 1) like SimpleMLRanker's probabilities. Only the order
+     * means anything: LambdaMART optimizes the ranking, not calibrated click probabilities.
+     *
+     * @param width  Features per row, must match the model
+     * @param out    Receives one score per row; must hold at least `rows` values
+     */
+    public void score(double[] features, int width, int rows, double[] out) {
+        GbdtModel m = model.get();
+        if (m == null) {
+            throw new IllegalStateException("No GBDT model trained yet");
+        }
+        if (width != m.width() || features.length < rows * width) {
+            throw new IllegalArgumentException(
+                    "Expected " + rows + " x " + m.width() + " features, got " + features.length + " with width " + width);
+        }
+        m.score(features, rows, out);
+        for (int r = 0; r < rows; r++) {
+            out[r] = 1.0 / (1.0 + Math.exp(-out[r]));
+        }
+    }
+
+    public double[] score(double[] features, int width, int rows) {
+        double[] out = new double[rows];
+        score(features, width, rows, out);
+        return out;
+    }
+
+    /**
+     * Boost a new ensemble from scratch on query-grouped examples. Stops once holdout NDCG
+     * stalls and publishes the best prefix of the ensemble.
+     *
+     * @param maxTrees  Upper bound on boosting rounds
+     * @param listener  Called after every tree with train and holdout NDCG@k
+     */
+    public synchronized GbdtTrainer.Result train(FeatureFile train, FeatureFile holdout, int maxTrees,
+                                                 GbdtConfig config, TrainingConfig trainingConfig,
+                                                 MiniBatchTrainer.EpochListener listener)
+            throws IOException, InterruptedException {
+        GbdtTrainer.Result result;
+        try (GbdtTrainer trainer = new GbdtTrainer(config, trainingConfig)) {
+            result = trainer.train(train, holdout, maxTrees, listener);
+        }
+
+        System.out.printf("GBDT training on %d examples: %d trees (kept %d), holdout ndcg = %.4f%n",
+                train.rows(), result.rounds(), result.bestTrees(), result.holdoutNdcg());
+        if (result.bestTrees() > 0) {
+            model.set(result.model());
+            saveModel();
+        }
+        return result;
+    }
+
+    /**
+     * Save model to file.
+     */
+    public void saveModel() {
+        GbdtModel m = model.get();
+        if (m == null) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(MODEL_FILE)))) {
+            m.write(out);
+            System.out.println("GBDT model saved to " + MODEL_FILE);
+        } catch (IOException e) {
+            System.err.println("Failed to save GBDT model: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load model from file.
+     */
+    public void loadModel() {
+        File file = new File(MODEL_FILE);
+        if (!file.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            model.set(GbdtModel.read(in));
+            System.out.println("GBDT model loaded from " + MODEL_FILE);
+        } catch (IOException e) {
+            System.err.println("Failed to load GBDT model: " + e.getMessage());
+        }
+    }
+
+    public ModelInfo info() {
+        GbdtModel m = model.get();
+        return m == null ? new ModelInfo(0, 0, 0) : new ModelInfo(m.trees(), m.depth(), m.width());
+    }
+
+    public record ModelInfo(int trees, int depth, int width) {}
+}
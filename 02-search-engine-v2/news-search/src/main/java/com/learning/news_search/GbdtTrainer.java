@@ -0,0 +1,504 @@
+package com.learning.news_search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * LambdaMART: gradient-boosted regression trees fitted to pairwise lambdas.
+ *
+ * Within every query group (the results of one search) each clicked/not-clicked pair pulls
+ * the clicked result up and the other down, weighted by how much swapping the two would
+ * change the group's NDCG. Each round fits one tree to those lambdas with a Newton step per
+ * leaf, so "freshness only matters for some categories" is just a split on category boost
+ * followed by a split on freshness.
+ *
+ * Trees are grown histogram-style on features bucketed into quantile bins (one byte per
+ * feature per row), level by level, to a fixed depth; see GbdtModel for the layout they end
+ * up in. Groups without both a clicked and an unclicked result carry no pairwise signal and
+ * only ride along. Training stops once holdout NDCG@k hasn't improved for `patience` trees
+ * and keeps the best prefix of the ensemble.
+ */
+final class GbdtTrainer implements AutoCloseable {
+
+    private static final int MIN_CHUNK = 4096;
+    private static final int BIN_SAMPLE = 100_000;
+
+    private final GbdtConfig config;
+    private final TrainingConfig trainingConfig;
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    GbdtTrainer(GbdtConfig config, TrainingConfig trainingConfig) {
+        this.config = config;
+        this.trainingConfig = trainingConfig;
+        this.threads = trainingConfig.getThreads() > 0
+                ? trainingConfig.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    record Result(GbdtModel model, int rounds, int bestTrees, double trainNdcg, double holdoutNdcg,
+                  boolean stoppedEarly, int trainRows, int holdoutRows, int trainGroups) {}
+
+    Result train(FeatureFile trainFile, FeatureFile holdoutFile, int maxTrees,
+                 MiniBatchTrainer.EpochListener listener) throws IOException, InterruptedException {
+        int width = trainFile.width();
+        int depth = Math.max(1, Math.min(config.getDepth(), 12));
+        int internal = (1 << depth) - 1;
+        int leaves = internal + 1;
+
+        double[][] edges = binEdges(trainFile, Math.max(2, Math.min(config.getBins(), 256)));
+        Dataset train = Dataset.load(trainFile, edges, config.getMaxRows());
+        Dataset holdout = Dataset.load(holdoutFile, edges, config.getMaxRows());
+        if (train.rows == 0) {
+            throw new IllegalStateException("No training rows");
+        }
+        Dataset eval = holdout.rows > 0 ? holdout : train;
+
+        double[] score = new double[train.rows];
+        double[] evalScore = eval == train ? score : new double[eval.rows];
+        double[] lambda = new double[train.rows];
+        double[] hess = new double[train.rows];
+        int[] node = new int[train.rows];
+
+        // the ensemble as it grows, in GbdtModel's layout
+        int[] splitFeature = new int[Math.max(1, maxTrees) * internal];
+        double[] threshold = new double[splitFeature.length];
+        double[] leaf = new double[Math.max(1, maxTrees) * leaves];
+
+        double bestNdcg = ndcg(eval, evalScore); // the logged order: nothing learned yet
+        double bestTrainNdcg = ndcg(train, score);
+        int bestTrees = 0;
+        int sinceBest = 0;
+        int trees = 0;
+        boolean stoppedEarly = false;
+
+        int[] treeFeature = new int[internal];
+        int[] treeBin = new int[internal];
+        double[] treeLeaf = new double[leaves];
+
+        while (trees < maxTrees) {
+            computeLambdas(train, score, lambda, hess);
+            growTree(train, edges, lambda, hess, node, depth, treeFeature, treeBin, treeLeaf);
+
+            for (int i = 0; i < internal; i++) {
+                splitFeature[trees * internal + i] = treeFeature[i];
+                threshold[trees * internal + i] = threshold(edges[treeFeature[i]], treeBin[i]);
+            }
+            System.arraycopy(treeLeaf, 0, leaf, trees * leaves, leaves);
+            trees++;
+
+            // node[] holds every training row's leaf already
+            for (int r = 0; r < train.rows; r++) {
+                score[r] += treeLeaf[node[r]];
+            }
+            if (eval != train) {
+                applyTree(eval, depth, treeFeature, treeBin, treeLeaf, evalScore);
+            }
+
+            double trainNdcg = ndcg(train, score);
+            double evalNdcg = eval == train ? trainNdcg : ndcg(eval, evalScore);
+            listener.onEpoch(trees, trainNdcg, evalNdcg);
+
+            if (evalNdcg > bestNdcg + 1e-6) {
+                bestNdcg = evalNdcg;
+                bestTrainNdcg = trainNdcg;
+                bestTrees = trees;
+                sinceBest = 0;
+            } else if (++sinceBest >= config.getPatience()) {
+                stoppedEarly = true;
+                break;
+            }
+        }
+
+        GbdtModel model = new GbdtModel(width, depth, trees,
+                Arrays.copyOf(splitFeature, trees * internal),
+                Arrays.copyOf(threshold, trees * internal),
+                Arrays.copyOf(leaf, trees * leaves)).truncate(bestTrees);
+        return new Result(model, trees, bestTrees, bestTrainNdcg, bestNdcg, stoppedEarly,
+                train.rows, holdout.rows, train.groups());
+    }
+
+    // ==================== Lambdas ====================
+
+    private void computeLambdas(Dataset data, double[] score, double[] lambda, double[] hess)
+            throws InterruptedException {
+        int groups = data.groups();
+        int chunk = Math.max(1, groups / (threads * 4));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < groups; start += chunk) {
+            int from = start, to = Math.min(start + chunk, groups);
+            tasks.add(() -> {
+                lambdas(data, score, lambda, hess, from, to);
+                return null;
+            });
+        }
+        run(tasks);
+    }
+
+    private static void lambdas(Dataset data, double[] score, double[] lambda, double[] hess, int fromGroup, int toGroup) {
+        int[] order = new int[16];
+        int[] rank = new int[16];
+        for (int g = fromGroup; g < toGroup; g++) {
+            int s = data.groupOffsets[g];
+            int e = data.groupOffsets[g + 1];
+            int n = e - s;
+            Arrays.fill(lambda, s, e, 0.0);
+            Arrays.fill(hess, s, e, 0.0);
+
+            int positives = 0;
+            for (int r = s; r < e; r++) positives += data.labels[r];
+            if (positives == 0 || positives == n) continue;
+
+            if (order.length < n) {
+                order = new int[n];
+                rank = new int[n];
+            }
+            sortByScore(score, s, n, order);
+            for (int k = 0; k < n; k++) rank[order[k]] = k;
+
+            double idealDcg = 0;
+            for (int k = 0; k < positives; k++) idealDcg += discount(k);
+
+            for (int i = 0; i < n; i++) {
+                if (data.labels[s + i] == 0) continue;
+                for (int j = 0; j < n; j++) {
+                    if (data.labels[s + j] == 1) continue;
+                    // |change in NDCG| if i and j swapped places
+                    double delta = Math.abs(discount(rank[i]) - discount(rank[j])) / idealDcg;
+                    double rho = 1.0 / (1.0 + Math.exp(score[s + i] - score[s + j]));
+                    double l = rho * delta;
+                    double h = rho * (1 - rho) * delta;
+                    lambda[s + i] += l;
+                    lambda[s + j] -= l;
+                    hess[s + i] += h;
+                    hess[s + j] += h;
+                }
+            }
+        }
+    }
+
+    // ==================== Trees ====================
+
+    /**
+     * Grows one complete tree of `depth` levels on the binned features. Afterwards node[r]
+     * is the leaf of row r. Nodes without a worthwhile split get bin = last (all go left).
+     *
+     * Histograms are as wide as the feature with the most bins; features with fewer bins
+     * leave the rest of their slots empty.
+     */
+    private void growTree(Dataset data, double[][] edges, double[] lambda, double[] hess, int[] node, int depth,
+                          int[] treeFeature, int[] treeBin, double[] treeLeaf) throws InterruptedException {
+        int width = data.width;
+        int bins = 1;
+        for (double[] e : edges) bins = Math.max(bins, e.length);
+        double l2 = config.getL2();
+        Arrays.fill(node, 0);
+
+        for (int d = 0; d < depth; d++) {
+            int levelNodes = 1 << d;
+            int levelBase = levelNodes - 1;
+            Histogram hist = histogram(data, lambda, hess, node, levelNodes, bins);
+
+            for (int nd = 0; nd < levelNodes; nd++) {
+                int bestFeature = 0;
+                int bestBin = bins - 1;
+                double bestGain = 0;
+
+                for (int f = 0; f < width; f++) {
+                    int at = (nd * width + f) * bins;
+                    double g = 0, h = 0;
+                    long c = 0;
+                    for (int b = 0; b < bins; b++) {
+                        g += hist.g[at + b];
+                        h += hist.h[at + b];
+                        c += hist.c[at + b];
+                    }
+                    double parent = g * g / (h + l2);
+
+                    double gl = 0, hl = 0;
+                    long cl = 0;
+                    for (int b = 0; b < edges[f].length - 1; b++) {
+                        gl += hist.g[at + b];
+                        hl += hist.h[at + b];
+                        cl += hist.c[at + b];
+                        double gr = g - gl, hr = h - hl;
+                        long cr = c - cl;
+                        if (cl < config.getMinChildRows() || cr < config.getMinChildRows()
+                                || hl < config.getMinChildHessian() || hr < config.getMinChildHessian()) continue;
+
+                        double gain = gl * gl / (hl + l2) + gr * gr / (hr + l2) - parent;
+                        if (gain > bestGain) {
+                            bestGain = gain;
+                            bestFeature = f;
+                            bestBin = b;
+                        }
+                    }
+                }
+                treeFeature[levelBase + nd] = bestFeature;
+                treeBin[levelBase + nd] = bestBin;
+            }
+
+            // send every row one level down
+            for (int r = 0; r < data.rows; r++) {
+                int nd = node[r];
+                int t = levelBase + nd;
+                int bin = data.bins[r * width + treeFeature[t]] & 0xFF;
+                node[r] = 2 * nd + (bin > treeBin[t] ? 1 : 0);
+            }
+        }
+
+        // Newton step per leaf, shrunk by the learning rate
+        int leaves = 1 << depth;
+        double[] g = new double[leaves];
+        double[] h = new double[leaves];
+        for (int r = 0; r < data.rows; r++) {
+            g[node[r]] += lambda[r];
+            h[node[r]] += hess[r];
+        }
+        for (int j = 0; j < leaves; j++) {
+            treeLeaf[j] = h[j] > 0 ? config.getLearningRate() * g[j] / (h[j] + l2) : 0.0;
+        }
+    }
+
+    private record Histogram(double[] g, double[] h, long[] c) {}
+
+    // per node, feature and bin: summed lambda, hessian and row count; row chunks in parallel
+    private Histogram histogram(Dataset data, double[] lambda, double[] hess, int[] node, int levelNodes, int bins)
+            throws InterruptedException {
+        int width = data.width;
+        int size = levelNodes * width * bins;
+        int chunks = Math.max(1, Math.min(threads, data.rows / MIN_CHUNK));
+        int chunkSize = (data.rows + chunks - 1) / chunks;
+
+        List<Callable<Histogram>> tasks = new ArrayList<>(chunks);
+        for (int start = 0; start < data.rows; start += chunkSize) {
+            int from = start, to = Math.min(start + chunkSize, data.rows);
+            tasks.add(() -> {
+                Histogram part = new Histogram(new double[size], new double[size], new long[size]);
+                for (int r = from; r < to; r++) {
+                    int rowBase = node[r] * width * bins;
+                    int binBase = r * width;
+                    for (int f = 0; f < width; f++) {
+                        int i = rowBase + f * bins + (data.bins[binBase + f] & 0xFF);
+                        part.g[i] += lambda[r];
+                        part.h[i] += hess[r];
+                        part.c[i]++;
+                    }
+                }
+                return part;
+            });
+        }
+
+        Histogram total = null;
+        for (Histogram part : run(tasks)) {
+            if (total == null) {
+                total = part;
+                continue;
+            }
+            for (int i = 0; i < size; i++) {
+                total.g[i] += part.g[i];
+                total.h[i] += part.h[i];
+                total.c[i] += part.c[i];
+            }
+        }
+        return total;
+    }
+
+    private static void applyTree(Dataset data, int depth, int[] treeFeature, int[] treeBin, double[] treeLeaf,
+                                  double[] score) {
+        int internal = (1 << depth) - 1;
+        for (int r = 0; r < data.rows; r++) {
+            int base = r * data.width;
+            int i = 0;
+            for (int d = 0; d < depth; d++) {
+                i = 2 * i + 1 + ((data.bins[base + treeFeature[i]] & 0xFF) > treeBin[i] ? 1 : 0);
+            }
+            score[r] += treeLeaf[i - internal];
+        }
+    }
+
+    /**
+     * The raw-feature threshold GbdtModel uses for a split at `bin`: bin(x) > bin exactly when
+     * x > threshold. Splits at or past the last bin send everything left.
+     */
+    static double threshold(double[] edges, int bin) {
+        return bin >= edges.length - 1 ? Double.POSITIVE_INFINITY : edges[bin];
+    }
+
+    // first edge >= x; the last edge is +inf, so every x has one
+    static int bin(double x, double[] edges) {
+        int lo = 0, hi = edges.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x <= edges[mid]) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    // ==================== Evaluation ====================
+
+    // mean NDCG@k over the groups that have a click
+    private double ndcg(Dataset data, double[] score) {
+        int k = Math.max(1, config.getNdcgAt());
+        int[] order = new int[16];
+        double sum = 0;
+        int counted = 0;
+        for (int g = 0; g < data.groups(); g++) {
+            int s = data.groupOffsets[g];
+            int n = data.groupOffsets[g + 1] - s;
+            int positives = 0;
+            for (int r = s; r < s + n; r++) positives += data.labels[r];
+            if (positives == 0) continue;
+
+            if (order.length < n) order = new int[n];
+            sortByScore(score, s, n, order);
+            double dcg = 0, ideal = 0;
+            for (int i = 0; i < Math.min(k, n); i++) {
+                if (data.labels[s + order[i]] == 1) dcg += discount(i);
+                if (i < positives) ideal += discount(i);
+            }
+            sum += dcg / ideal;
+            counted++;
+        }
+        return counted == 0 ? 0.0 : sum / counted;
+    }
+
+    private static double discount(int rank) {
+        return 1.0 / (Math.log(rank + 2) / Math.log(2));
+    }
+
+    // group-local indices, best score first; stable, so ties keep the logged order
+    private static void sortByScore(double[] score, int start, int n, int[] order) {
+        for (int i = 0; i < n; i++) {
+            int j = i;
+            while (j > 0 && score[start + order[j - 1]] < score[start + i]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+    }
+
+    // ==================== Data ====================
+
+    /**
+     * Quantile bin upper edges per feature from a reservoir sample of the training file;
+     * the last edge of every feature is +inf. bin(x) = first edge >= x.
+     */
+    private double[][] binEdges(FeatureFile file, int bins) throws IOException {
+        int width = file.width();
+        float[][] sample = new float[width][BIN_SAMPLE];
+        int sampled = 0;
+        long seen = 0;
+        Random random = new Random(trainingConfig.getSeed());
+
+        FeatureMatrix block = new FeatureMatrix(width, 65536);
+        try (FeatureFile.Reader reader = file.reader()) {
+            int rows;
+            while ((rows = reader.read(block, 65536)) > 0) {
+                for (int r = 0; r < rows; r++, seen++) {
+                    int slot = sampled < BIN_SAMPLE ? sampled++ : (int) (random.nextDouble() * (seen + 1));
+                    if (slot >= BIN_SAMPLE) continue;
+                    for (int f = 0; f < width; f++) sample[f][slot] = (float) block.feature(r, f);
+                }
+            }
+        }
+
+        double[][] edges = new double[width][];
+        for (int f = 0; f < width; f++) {
+            float[] values = Arrays.copyOf(sample[f], sampled);
+            Arrays.sort(values);
+            double[] e = new double[bins];
+            int n = 0;
+            for (int q = 1; q < bins && sampled > 0; q++) {
+                double v = values[(int) ((long) q * sampled / bins)];
+                if (n == 0 || v > e[n - 1]) e[n++] = v;
+            }
+            if (n > 0 && e[n - 1] >= values[sampled - 1]) n--; // the top edge is +inf anyway
+            e[n++] = Double.POSITIVE_INFINITY;
+            edges[f] = Arrays.copyOf(e, n);
+        }
+        return edges;
+    }
+
+    private static final class Dataset {
+        final int width;
+        final int rows;
+        final byte[] bins;
+        final byte[] labels;
+        final int[] groupOffsets; // group g is rows [groupOffsets[g], groupOffsets[g + 1])
+
+        private Dataset(int width, int rows, byte[] bins, byte[] labels, int[] groupOffsets) {
+            this.width = width;
+            this.rows = rows;
+            this.bins = bins;
+            this.labels = labels;
+            this.groupOffsets = groupOffsets;
+        }
+
+        int groups() {
+            return groupOffsets.length - 1;
+        }
+
+        // whole groups from the start of the file, up to maxRows rows
+        static Dataset load(FeatureFile file, double[][] edges, int maxRows) throws IOException {
+            int width = file.width();
+            int capacity = (int) Math.min(file.rows(), Math.max(0, maxRows));
+            byte[] bins = new byte[capacity * width];
+            byte[] labels = new byte[capacity];
+            int[] offsets = new int[Math.max(16, capacity / 8)];
+            int groups = 0;
+            int rows = 0;
+
+            FeatureMatrix block = new FeatureMatrix(width, 65536);
+            try (FeatureFile.Reader reader = file.reader()) {
+                int read;
+                outer:
+                while ((read = reader.read(block, 65536)) > 0) {
+                    for (int r = 0; r < read; r++) {
+                        if (block.groupStart(r) || rows == 0) {
+                            if (rows >= capacity) break outer;
+                            if (groups + 1 >= offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                            offsets[groups++] = rows;
+                        } else if (rows >= capacity) {
+                            // the group that hit the limit is cut short; drop it
+                            rows = offsets[--groups];
+                            break outer;
+                        }
+                        for (int f = 0; f < width; f++) {
+                            bins[rows * width + f] = (byte) bin(block.feature(r, f), edges[f]);
+                        }
+                        labels[rows++] = (byte) block.label(r);
+                    }
+                }
+            }
+            offsets[groups] = rows;
+            return new Dataset(width, rows, bins, labels, Arrays.copyOf(offsets, groups + 1));
+        }
+    }
+
+    private <T> List<T> run(List<Callable<T>> tasks) throws InterruptedException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> f : pool.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training worker failed", e.getCause());
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,78 @@
+package com.learning.news_search;
+
+import java.util.Arrays;
+
+/**
+ * The ranking inputs of the results a variant B search showed, exactly as RankingService
+ * computed them at serving time, so training doesn't have to re-derive them later.
+ *
+ * Stored column by column next to SearchEvent.resultIds: esScores holds the raw ES score of
+ * every shown result, values holds `width` columns (normalized ES score, popularity,
+ * freshness, category boost) of resultIds.size() floats each. In the index it is an object
+ * with mapping disabled: kept in _source, never indexed.
+ */
+public class ImpressionFeatures {
+
+    private int width;
+    private float[] esScores;
+    private float[] values;
+
+    public ImpressionFeatures() {
+    }
+
+    public ImpressionFeatures(int width, float[] esScores, float[] values) {
+        this.width = width;
+        this.esScores = esScores;
+        this.values = values;
+    }
+
+    /**
+     * Columnar copy of rows [from, from + count) of a row-major feature matrix.
+     */
+    public static ImpressionFeatures fromRows(float[] rowMajor, float[] esScores, int width, int from, int count) {
+        float[] columns = new float[count * width];
+        for (int r = 0; r < count; r++) {
+            int base = (from + r) * width;
+            for (int c = 0; c < width; c++) {
+                columns[c * count + r] = rowMajor[base + c];
+            }
+        }
+        return new ImpressionFeatures(width, Arrays.copyOfRange(esScores, from, from + count), columns);
+    }
+
+    public int size() {
+        return esScores != null ? esScores.length : 0;
+    }
+
+    // features of one shown result, in RankingService.extractFeatures order
+    public void row(int index, double[] out) {
+        int n = size();
+        for (int c = 0; c < width; c++) {
+            out[c] = values[c * n + index];
+        }
+    }
+
+    /**
+     * The first `count` results only, e.g. to match the ids that got logged.
+     */
+    public ImpressionFeatures head(int count) {
+        int n = size();
+        if (count >= n) return this;
+
+        float[] columns = new float[count * width];
+        for (int c = 0; c < width; c++) {
+            System.arraycopy(values, c * n, columns, c * count, count);
+        }
+        return new ImpressionFeatures(width, Arrays.copyOf(esScores, count), columns);
+    }
+
+    // Getters and Setters
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public float[] getEsScores() { return esScores; }
+    public void setEsScores(float[] esScores) { this.esScores = esScores; }
+
+    public float[] getValues() { return values; }
+    public void setValues(float[] values) { this.values = values; }
+}
@@ -0,0 +1,167 @@
+package com.learning.news_search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * What the last successful load saw: a 64-bit hash of every record (raw JSON line) in the
+ * source file. A line whose hash is in here is unchanged and skipped without even being
+ * parsed; anything else is new or edited and gets upserted. Lines that failed to parse are
+ * not in here, so they're tried again next time.
+ *
+ * The hashes only say what is in the index the load went into, so the checkpoint also
+ * records that index's name, UUID and doc count. If the index has been deleted, recreated
+ * or emptied since then, describes() is false and the caller loads everything again.
+ *
+ * Hashes are kept as a sorted long[] (8 bytes per article on disk and in memory) and looked
+ * up with a binary search.
+ */
+public class IngestionCheckpoint {
+
+    private static final int MAGIC = 0x4E434B50; // "NCKP"
+    private static final int VERSION = 2; // 1 had no index identity
+
+    private final String source;
+    private final Instant createdAt;
+    private final long[] lineHashes; // sorted
+
+    // the index the lines went into; null / -1 until forIndex, or for a version 1 file
+    private final String indexName;
+    private final String indexUuid;
+    private final long docCount;
+
+    private IngestionCheckpoint(String source, Instant createdAt, long[] lineHashes,
+                                String indexName, String indexUuid, long docCount) {
+        this.source = source;
+        this.createdAt = createdAt;
+        this.lineHashes = lineHashes;
+        this.indexName = indexName;
+        this.indexUuid = indexUuid;
+        this.docCount = docCount;
+    }
+
+    public static IngestionCheckpoint of(String source, long[] hashes, int count) {
+        long[] sorted = Arrays.copyOf(hashes, count);
+        Arrays.sort(sorted);
+        return new IngestionCheckpoint(source, Instant.now(), sorted, null, null, -1);
+    }
+
+    /**
+     * This checkpoint, tied to the index the lines were loaded into (as it is after the load).
+     */
+    public IngestionCheckpoint forIndex(NewsIndexManager.IndexIdentity index) {
+        return new IngestionCheckpoint(source, createdAt, lineHashes,
+                index.name(), index.uuid(), index.docCount());
+    }
+
+    /**
+     * True if `index` is still the index this checkpoint was written for, holding as many
+     * docs as it did then. Anything else (recreated, wiped, restored from elsewhere) means
+     * the hashes no longer say what's in it.
+     */
+    public boolean describes(NewsIndexManager.IndexIdentity index) {
+        return index != null && indexUuid != null
+                && indexUuid.equals(index.uuid())
+                && docCount == index.docCount();
+    }
+
+    public boolean contains(long lineHash) {
+        return Arrays.binarySearch(lineHashes, lineHash) >= 0;
+    }
+
+    public int size() { return lineHashes.length; }
+    public String getSource() { return source; }
+    public Instant getCreatedAt() { return createdAt; }
+    public String getIndexName() { return indexName; }
+    public String getIndexUuid() { return indexUuid; }
+    public long getDocCount() { return docCount; }
+
+    /**
+     * FNV-1a over the line's chars. Whitespace is part of the record, so reformatting the
+     * file counts as a change - harmless, it only costs an extra upsert.
+     */
+    public static long hash(String line) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < line.length(); i++) {
+            h ^= line.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // ==================== Persistence ====================
+
+    /**
+     * Null if there's no checkpoint yet, it's unreadable, or it was made for another source.
+     */
+    public static IngestionCheckpoint load(Path file, String expectedSource) {
+        if (!Files.exists(file)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != VERSION) {
+                System.err.println("Ignoring checkpoint " + file + ": unknown format");
+                return null;
+            }
+            String source = in.readUTF();
+            if (!source.equals(expectedSource)) {
+                System.out.println("Checkpoint " + file + " is for " + source + ", not " + expectedSource);
+                return null;
+            }
+            Instant createdAt = Instant.ofEpochMilli(in.readLong());
+
+            String indexName = null;
+            String indexUuid = null;
+            long docCount = -1;
+            if (version >= 2 && in.readBoolean()) {
+                indexName = in.readUTF();
+                indexUuid = in.readUTF();
+                docCount = in.readLong();
+            }
+
+            long[] hashes = new long[in.readInt()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = in.readLong();
+            }
+            return new IngestionCheckpoint(source, createdAt, hashes, indexName, indexUuid, docCount);
+        } catch (IOException e) {
+            System.err.println("Ignoring checkpoint " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Written to a temp file and moved into place, so a crash never leaves half a checkpoint.
+     */
+    public void save(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(source);
+            out.writeLong(createdAt.toEpochMilli());
+            out.writeBoolean(indexUuid != null);
+            if (indexUuid != null) {
+                out.writeUTF(indexName);
+                out.writeUTF(indexUuid);
+                out.writeLong(docCount);
+            }
+            out.writeInt(lineHashes.length);
+            for (long h : lineHashes) {
+                out.writeLong(h);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
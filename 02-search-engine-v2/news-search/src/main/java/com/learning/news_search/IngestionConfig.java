@@ -0,0 +1,78 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bulk ingestion settings for loading the news dataset into Elasticsearch.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ingestion")
+public class IngestionConfig {
+    // Dataset to load: "classpath:..." or a file path, ".gz" files are decompressed while reading
+    private String source = "classpath:json/News_Category_Dataset.json";
+
+    // Hashes of the records already loaded, so the next run only picks up new/changed ones
+    private String checkpointFile = "data/ingestion.checkpoint";
+
+    // Documents per bulk request
+    private int batchSize = 1000;
+
+    // Bulk requests allowed in flight at once (reader blocks when all are busy)
+    private int maxInFlightBulks = 4;
+
+    // Retries for items that failed with a retryable error (429 / 5xx / connection)
+    private int maxRetries = 3;
+
+    // Initial backoff between retries, doubled on every attempt
+    private long retryBackoffMs = 500;
+
+    // ---- reindex (new index + alias swap) ----
+
+    // Settings the index gets once loading is done; during the load it has refresh -1 and no replicas
+    private int servingReplicas = 0;
+    private String servingRefreshInterval = "1s";
+
+    // Force-merge the finished index down to this many segments (0 = skip)
+    private int forceMergeSegments = 1;
+
+    // Old index versions kept around for rollback
+    private int keepPreviousIndices = 1;
+
+    // Throttle for server-side copies of the live index (-1 = unthrottled)
+    private float reindexRequestsPerSecond = -1;
+
+    // Getters and Setters
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public String getCheckpointFile() { return checkpointFile; }
+    public void setCheckpointFile(String checkpointFile) { this.checkpointFile = checkpointFile; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public int getMaxInFlightBulks() { return maxInFlightBulks; }
+    public void setMaxInFlightBulks(int maxInFlightBulks) { this.maxInFlightBulks = maxInFlightBulks; }
+
+    public int getMaxRetries() { return maxRetries; }
+    public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+
+    public long getRetryBackoffMs() { return retryBackoffMs; }
+    public void setRetryBackoffMs(long retryBackoffMs) { this.retryBackoffMs = retryBackoffMs; }
+
+    public int getServingReplicas() { return servingReplicas; }
+    public void setServingReplicas(int servingReplicas) { this.servingReplicas = servingReplicas; }
+
+    public String getServingRefreshInterval() { return servingRefreshInterval; }
+    public void setServingRefreshInterval(String servingRefreshInterval) { this.servingRefreshInterval = servingRefreshInterval; }
+
+    public int getForceMergeSegments() { return forceMergeSegments; }
+    public void setForceMergeSegments(int forceMergeSegments) { this.forceMergeSegments = forceMergeSegments; }
+
+    public int getKeepPreviousIndices() { return keepPreviousIndices; }
+    public void setKeepPreviousIndices(int keepPreviousIndices) { this.keepPreviousIndices = keepPreviousIndices; }
+
+    public float getReindexRequestsPerSecond() { return reindexRequestsPerSecond; }
+    public void setReindexRequestsPerSecond(float reindexRequestsPerSecond) { this.reindexRequestsPerSecond = reindexRequestsPerSecond; }
+}
@@ -0,0 +1,407 @@
+package com.learning.news_search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads the news dataset into Elasticsearch in the background.
+ *
+ * One reader thread parses the file and hands batches to a BulkIndexer, which keeps a few
+ * bulk requests in flight and retries failed items. The HTTP call that starts a load
+ * returns immediately; progress is polled through getStatus().
+ *
+ * Loads are incremental: a checkpoint with a hash of every record from the last run means
+ * only new or edited lines are parsed and upserted (see IngestionCheckpoint).
+ *
+ * A reindex builds a brand new index next to the live one and swaps the "news" alias at
+ * the end (see NewsIndexManager), so searches never see a half-loaded index.
+ */
+@Service
+public class IngestionService {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ObjectMapper objectMapper;
+    private final IngestionConfig config;
+    private final SpellingService spellingService;
+    private final NewsIndexManager indexManager;
+    private final SearchResultCache resultCache;
+
+    // the running (or last finished) job; only one load at a time
+    private final AtomicReference<Job> currentJob = new AtomicReference<>();
+
+    public IngestionService(ElasticsearchOperations elasticsearchOperations,
+                            ObjectMapper objectMapper,
+                            IngestionConfig config,
+                            SpellingService spellingService,
+                            NewsIndexManager indexManager,
+                            SearchResultCache resultCache) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.spellingService = spellingService;
+        this.indexManager = indexManager;
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Starts loading the dataset unless a load is already running.
+     * Returns the status of whichever job is now current.
+     */
+    public IngestionStatus startLoad() {
+        return start("news-ingestion", this::run);
+    }
+
+    /**
+     * Rebuilds the index into a new version and swaps the alias once it's ready.
+     * DATASET re-reads the JSON file, LIVE copies the current index server-side
+     * (keeps click counts, picks up mapping changes).
+     */
+    public IngestionStatus startReindex(ReindexSource source) {
+        return start("news-reindex", job -> runReindex(job, source));
+    }
+
+    private IngestionStatus start(String threadName, Consumer<Job> body) {
+        Job previous = currentJob.get();
+        if (previous != null && previous.state == State.RUNNING) {
+            return previous.toStatus();
+        }
+
+        Job job = new Job();
+        if (!currentJob.compareAndSet(previous, job)) {
+            return currentJob.get().toStatus(); // someone else started one just now
+        }
+
+        Thread t = new Thread(() -> body.accept(job), threadName);
+        t.setDaemon(true);
+        t.start();
+        return job.toStatus();
+    }
+
+    public IngestionStatus getStatus() {
+        Job job = currentJob.get();
+        return job != null ? job.toStatus() : IngestionStatus.idle();
+    }
+
+    /**
+     * Incremental load: only lines that aren't in the last checkpoint are parsed and upserted.
+     * The very first load (no checkpoint, empty index) indexes everything. So does a load
+     * whose checkpoint was made for another index or doc count (the index was deleted,
+     * recreated or emptied behind our back); those lines are upserted to keep click counts.
+     */
+    private void run(Job job) {
+        try {
+            Path checkpointFile = Path.of(config.getCheckpointFile());
+            IngestionCheckpoint checkpoint = IngestionCheckpoint.load(checkpointFile, config.getSource());
+
+            IndexCoordinates index = elasticsearchOperations.getIndexCoordinatesFor(NewsArticle.class);
+            NewsIndexManager.IndexIdentity live = indexManager.identify(index.getIndexName());
+            long count = live != null ? live.docCount() : 0;
+
+            if (checkpoint == null) {
+                if (count > 0) {
+                    // can't tell what's already in there; a DATASET reindex rebuilds it and writes a checkpoint
+                    System.out.println("Data already exists (" + count + " docs) but there is no checkpoint. Skipping load.");
+                    job.finish(State.SKIPPED, "Index already has " + count + " docs and no checkpoint;"
+                            + " run POST /api/admin/reindex?source=DATASET once");
+                    return;
+                }
+            } else if (!checkpoint.describes(live)) {
+                System.out.println("Checkpoint was made for " + checkpoint.getIndexName() + " ("
+                        + checkpoint.getIndexUuid() + ", " + checkpoint.getDocCount() + " docs), index is now "
+                        + (live != null ? live.name() + " (" + live.uuid() + ", " + count + " docs)" : "missing")
+                        + ". Loading everything.");
+                checkpoint = null;
+            } else {
+                System.out.println("Checkpoint from " + checkpoint.getCreatedAt() + " with " + checkpoint.size() + " records");
+            }
+
+            IngestionCheckpoint next = loadDataset(job, index, checkpoint, count > 0);
+
+            // bulks ran with refresh=none, make everything searchable in one go
+            elasticsearchOperations.indexOps(index).refresh();
+            saveCheckpoint(job, next, index, checkpointFile);
+
+            job.finish(State.COMPLETED, job.indexer.getFailed() > 0 ? job.indexer.getLastError()
+                    : job.indexer.getIndexed() + " new or changed, " + job.unchanged + " unchanged");
+
+            // new vocabulary -> new spelling dictionary, new articles -> stale cached results
+            if (job.indexer.getIndexed() > 0) {
+                spellingService.rebuildAsync();
+                resultCache.invalidateAll();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            job.finish(State.FAILED, e.getMessage());
+        }
+    }
+
+    private void runReindex(Job job, ReindexSource source) {
+        IndexCoordinates target = null;
+        IngestionCheckpoint checkpoint = null;
+        boolean swapped = false;
+        try {
+            job.phase = "creating index";
+            target = indexManager.createBuildIndex();
+
+            job.phase = "loading (" + source + ")";
+            if (source == ReindexSource.LIVE) {
+                job.copied = indexManager.copyFromLive(target);
+            } else {
+                checkpoint = loadDataset(job, target, null, false);
+                if (job.indexer.getFailed() > 0) {
+                    throw new IllegalStateException(job.indexer.getFailed()
+                            + " docs failed to index, keeping the current index: " + job.indexer.getLastError());
+                }
+            }
+
+            job.phase = "restoring settings and force-merging";
+            indexManager.finishBuild(target);
+
+            job.phase = "swapping alias";
+            indexManager.swapAlias(target);
+            swapped = true;
+
+            job.phase = "cleaning up";
+            indexManager.deleteOldVersions();
+            if (checkpoint != null) {
+                // the new index holds exactly this file, later incremental loads start from here
+                saveCheckpoint(job, checkpoint, target, Path.of(config.getCheckpointFile()));
+            }
+
+            job.phase = null;
+            job.finish(State.COMPLETED, "Now serving " + target.getIndexName());
+            spellingService.rebuildAsync();
+            resultCache.invalidateAll();
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (target != null && !swapped) {
+                indexManager.deleteIndex(target); // the half-built index is useless
+            }
+            job.finish(State.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the source into the index. With a checkpoint, unchanged lines are skipped.
+     * With upsert the rest become upserts (the index already has docs whose click counts must
+     * survive), otherwise plain index requests.
+     * Returns the checkpoint describing the file as it was read.
+     */
+    private IngestionCheckpoint loadDataset(Job job, IndexCoordinates index, IngestionCheckpoint previous,
+                                            boolean upsert) throws Exception {
+        System.out.println("Loading " + config.getSource() + " into " + index.getIndexName()
+                + (previous != null ? " (incremental)" : "") + " (batch " + config.getBatchSize()
+                + ", " + config.getMaxInFlightBulks() + " bulks in flight)...");
+
+        IngestionCheckpoint next;
+        try (BulkIndexer indexer = new BulkIndexer(elasticsearchOperations, index,
+                config.getMaxInFlightBulks(), config.getMaxRetries(), config.getRetryBackoffMs())) {
+            job.indexer = indexer;
+            next = readDataset(job, indexer, previous, upsert);
+        }
+
+        BulkIndexer indexer = job.indexer;
+        System.out.println("Finished! Indexed " + indexer.getIndexed() + ", unchanged " + job.unchanged
+                + ", failed " + indexer.getFailed() + ", parse errors " + job.parseErrors + " in "
+                + Duration.between(job.startedAt, Instant.now()).toMillis() + "ms");
+        return next;
+    }
+
+    private IngestionCheckpoint readDataset(Job job, BulkIndexer indexer, IngestionCheckpoint previous,
+                                            boolean upsert) throws Exception {
+        int batchSize = Math.max(1, config.getBatchSize());
+        List<IndexQuery> inserts = new ArrayList<>(batchSize);
+        List<UpdateQuery> upserts = new ArrayList<>(batchSize);
+
+        long[] hashes = new long[previous != null ? previous.size() + 1024 : 1 << 16];
+        int hashCount = 0;
+
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(openSource(), StandardCharsets.UTF_8), 1 << 16)) {
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                job.linesRead++;
+
+                // only lines that are in the index go into the checkpoint; parse errors get retried
+                long hash = IngestionCheckpoint.hash(line);
+                if (hashCount == hashes.length) hashes = Arrays.copyOf(hashes, hashCount * 2);
+
+                if (previous != null && previous.contains(hash)) {
+                    hashes[hashCount++] = hash;
+                    job.unchanged++;
+                    continue;
+                }
+
+                NewsArticle article;
+                try {
+                    article = objectMapper.readValue(line, NewsArticle.class);
+                } catch (Exception e) {
+                    job.parseErrors++;
+                    continue;
+                }
+                String id = documentId(article, line);
+                hashes[hashCount++] = hash;
+
+                if (!upsert) {
+                    inserts.add(new IndexQueryBuilder()
+                            .withId(id)
+                            .withObject(article)
+                            .build());
+                    if (inserts.size() == batchSize) {
+                        indexer.submit(inserts); // blocks while all bulk slots are busy
+                        inserts = new ArrayList<>(batchSize);
+                    }
+                } else {
+                    upserts.add(upsertQuery(id, article));
+                    if (upserts.size() == batchSize) {
+                        indexer.submitUpdates(upserts);
+                        upserts = new ArrayList<>(batchSize);
+                    }
+                }
+                if (job.linesRead % 10_000 == 0) System.out.println("Read " + job.linesRead + "...");
+            }
+            indexer.submit(inserts);
+            indexer.submitUpdates(upserts);
+        }
+        return IngestionCheckpoint.of(config.getSource(), hashes, hashCount);
+    }
+
+    /**
+     * Partial update of the article fields, so an edited article keeps its click count;
+     * a brand new one is created from the full document.
+     */
+    private UpdateQuery upsertQuery(String id, NewsArticle article) {
+        Document full = elasticsearchOperations.getElasticsearchConverter().mapObject(article);
+        Document partial = Document.from(new LinkedHashMap<>(full));
+        partial.remove("clickCount");
+
+        return UpdateQuery.builder(id)
+                .withDocument(partial)
+                .withUpsert(full)
+                .build();
+    }
+
+    /**
+     * "classpath:..." or a file path; ".gz" sources are decompressed on the fly.
+     */
+    private InputStream openSource() throws IOException {
+        String source = config.getSource();
+        InputStream in = source.startsWith("classpath:")
+                ? new ClassPathResource(source.substring("classpath:".length())).getInputStream()
+                : Files.newInputStream(Path.of(source));
+        return source.endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    // a checkpoint is only advanced when every document made it in, otherwise the next run retries them;
+    // it's tied to the index as it is now (refreshed), so a later wipe or recreate is noticed
+    private void saveCheckpoint(Job job, IngestionCheckpoint checkpoint, IndexCoordinates index, Path file)
+            throws IOException {
+        if (job.indexer.getFailed() > 0) {
+            System.err.println("Not saving checkpoint: " + job.indexer.getFailed() + " docs failed");
+            return;
+        }
+        NewsIndexManager.IndexIdentity identity = indexManager.identify(index.getIndexName());
+        if (identity == null) {
+            System.err.println("Not saving checkpoint: index " + index.getIndexName() + " not found");
+            return;
+        }
+        checkpoint.forIndex(identity).save(file);
+    }
+
+    /**
+     * Stable id so that a retried bulk (or a re-run load) overwrites instead of duplicating.
+     */
+    static String documentId(NewsArticle article, String rawLine) {
+        if (article.getId() != null) return article.getId();
+
+        String key = article.getLink() != null && !article.getLink().isBlank() ? article.getLink() : rawLine;
+        String id = UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+        article.setId(id);
+        return id;
+    }
+
+    // ==================== Job bookkeeping ====================
+
+    public enum State { IDLE, RUNNING, COMPLETED, SKIPPED, FAILED }
+
+    public enum ReindexSource { DATASET, LIVE }
+
+    private static class Job {
+        final Instant startedAt = Instant.now();
+        volatile State state = State.RUNNING;
+        volatile Instant finishedAt;
+        volatile String message;
+        volatile String phase;
+        volatile BulkIndexer indexer;
+        volatile long copied;        // docs copied server-side by a LIVE reindex
+
+        // only written by the reader thread
+        volatile long linesRead;
+        volatile long parseErrors;
+        volatile long unchanged;
+
+        void finish(State state, String message) {
+            this.message = message;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        IngestionStatus toStatus() {
+            BulkIndexer bulk = indexer;
+            long indexed = (bulk != null ? bulk.getIndexed() : 0) + copied;
+            long failed = (bulk != null ? bulk.getFailed() : 0) + parseErrors;
+            long retried = bulk != null ? bulk.getRetried() : 0;
+
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            double seconds = Math.max(1, Duration.between(startedAt, end).toMillis()) / 1000.0;
+
+            return new IngestionStatus(state, phase, linesRead, indexed, unchanged, failed, retried,
+                    indexed / seconds, startedAt, finishedAt, message);
+        }
+    }
+
+    public record IngestionStatus(
+            State state,
+            String phase,
+            long linesRead,
+            long indexed,
+            long unchanged,
+            long failed,
+            long retried,
+            double docsPerSecond,
+            Instant startedAt,
+            Instant finishedAt,
+            String message
+    ) {
+        static IngestionStatus idle() {
+            return new IngestionStatus(State.IDLE, null, 0, 0, 0, 0, 0, 0, null, null, null);
+        }
+    }
+}
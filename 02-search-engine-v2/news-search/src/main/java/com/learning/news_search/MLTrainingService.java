@@ -2,127 +2,227 @@ package com.learning.news_search;
 
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service to train and evaluate the ML ranking model.
+ *
+ * Training runs as a background job (one at a time), like ingestion: startTraining returns
+ * right away and getTrainingStatus reports the epoch and losses while it runs.
+ *
+ * The event logs are first streamed into a training and a held-out FeatureFile under
+ * training.data-dir; the trainer then reads those front to back every epoch, so neither
+ * step holds the whole data set in memory. Classes are balanced by weight in the trainer.
+ *
+ * The files keep every search's results together as one query group, so the same export
+ * trains either model: LOGISTIC (SimpleMLRanker, log loss per example) or GBDT (GbdtRanker,
+ * LambdaMART on NDCG within each group; its "epochs" are boosting rounds).
  */
 @Service
 public class MLTrainingService {
 
     private final AnalyticsService analyticsService;
     private final SimpleMLRanker mlRanker;
-    private final NewsRepository newsRepository;
+    private final GbdtRanker gbdtRanker;
+    private final ArticleFeatureStore featureStore;
+    private final RankingService rankingService;
+    private final TrainingConfig trainingConfig;
+    private final GbdtConfig gbdtConfig;
+    private final SearchResultCache resultCache;
+
+    private final AtomicReference<Job> currentJob = new AtomicReference<>();
 
     public MLTrainingService(AnalyticsService analyticsService,
                              SimpleMLRanker mlRanker,
-                             NewsRepository newsRepository) {
+                             GbdtRanker gbdtRanker,
+                             ArticleFeatureStore featureStore,
+                             RankingService rankingService,
+                             TrainingConfig trainingConfig,
+                             GbdtConfig gbdtConfig,
+                             SearchResultCache resultCache) {
         this.analyticsService = analyticsService;
         this.mlRanker = mlRanker;
-        this.newsRepository = newsRepository;
+        this.gbdtRanker = gbdtRanker;
+        this.featureStore = featureStore;
+        this.rankingService = rankingService;
+        this.trainingConfig = trainingConfig;
+        this.gbdtConfig = gbdtConfig;
+        this.resultCache = resultCache;
     }
 
     /**
-     * Train the model on historical click data.
+     * Start training on historical click data in the background.
+     * If a training job is already running, its status is returned instead.
+     *
+     * @param maxEpochs Passes over the data for LOGISTIC, trees for GBDT (both stop early)
      */
-    public TrainingResult trainModel(int epochs) {
-        List<AnalyticsService.TrainingExample> rawExamples = analyticsService.generateTrainingData();
-
-        if (rawExamples.isEmpty()) {
-            return new TrainingResult(false, "No training data available. Generate some search/click events first.");
+    public TrainingStatus startTraining(int maxEpochs, RankingConfig.MlModel model) {
+        Job previous = currentJob.get();
+        if (previous != null && previous.state == IngestionService.State.RUNNING) {
+            return previous.toStatus();
         }
 
-        // Convert to feature vectors
-        List<SimpleMLRanker.TrainingPair> trainingPairs = new ArrayList<>();
-        LocalDate today = LocalDate.now();
-
-        // Get max clicks for normalization
-        int maxClicks = 1;
-        for (NewsArticle article : newsRepository.findAll()) {
-            if (article.getClickCount() != null && article.getClickCount() > maxClicks) {
-                maxClicks = article.getClickCount();
-            }
+        String metric = model == RankingConfig.MlModel.GBDT ? "ndcg@" + gbdtConfig.getNdcgAt() : "logloss";
+        Job job = new Job(maxEpochs, model, metric);
+        if (!currentJob.compareAndSet(previous, job)) {
+            return currentJob.get().toStatus(); // someone else started one just now
         }
 
-        for (AnalyticsService.TrainingExample example : rawExamples) {
-            Optional<NewsArticle> articleOpt = newsRepository.findById(example.docId());
-            if (articleOpt.isEmpty()) continue;
-
-            NewsArticle article = articleOpt.get();
+        Thread t = new Thread(() -> runTraining(job), "ltr-training");
+        t.setDaemon(true);
+        t.start();
+        return job.toStatus();
+    }
 
-            // Extract features (using placeholder ES score of 0.5 since we don't have it stored)
-            double esScore = 0.5; // Would need to store this in click events for real system
-            double popularityScore = Math.log1p(article.getClickCount() != null ? article.getClickCount() : 0)
-                    / Math.log1p(maxClicks);
+    public TrainingStatus getTrainingStatus() {
+        Job job = currentJob.get();
+        return job != null ? job.toStatus() : TrainingStatus.idle();
+    }
 
-            double freshnessScore = 0.5;
-            if (article.getDate() != null) {
-                long ageInDays = java.time.temporal.ChronoUnit.DAYS.between(article.getDate(), today);
-                freshnessScore = 1.0 / (1.0 + ageInDays / 30.0);
+    private void runTraining(Job job) {
+        try {
+            job.phase = "exporting events";
+            Path dir = Path.of(trainingConfig.getDataDir());
+            FeatureFile.Writer train = FeatureFile.create(dir.resolve("train.ltrf"), RankingService.FEATURE_COUNT);
+            FeatureFile.Writer holdout = FeatureFile.create(dir.resolve("holdout.ltrf"), RankingService.FEATURE_COUNT);
+            try (train; holdout) {
+                exportTrainingData(job, train, holdout);
             }
+            if (job.state != IngestionService.State.RUNNING) return;
+            FeatureFile trainFile = train.toFile();
+            FeatureFile holdoutFile = holdout.toFile();
 
-            double categoryBoost = 1.0; // Would need category filter from query
+            job.phase = "training";
+            if (job.model == RankingConfig.MlModel.GBDT) {
+                trainGbdt(job, trainFile, holdoutFile);
+                return;
+            }
+            SimpleMLRanker.TrainingRun run = mlRanker.train(trainFile, holdoutFile, job.maxEpochs, trainingConfig,
+                    (epoch, trainLoss, holdoutLoss) -> {
+                        job.trainLoss = trainLoss;
+                        job.holdoutLoss = holdoutLoss;
+                        job.epoch = epoch;
+                    });
+            MiniBatchTrainer.Result result = run.result();
+            job.bestEpoch = result.bestEpoch();
+            job.trainLoss = result.trainLoss();
+            job.holdoutLoss = result.holdoutLoss();
 
-            double[] features = {esScore, popularityScore, freshnessScore, categoryBoost};
-            trainingPairs.add(new SimpleMLRanker.TrainingPair(features, example.label()));
-        }
+            if (run.published()) {
+                resultCache.invalidateAll(); // new weights, new rankings
+            }
 
-        if (trainingPairs.isEmpty()) {
-            return new TrainingResult(false, "Could not build training pairs. Check article IDs in events.");
+            double[] w = result.weights();
+            job.finish(IngestionService.State.COMPLETED, String.format(
+                    "Trained on %d examples (%d clicked, %d held out, %d with logged features), %d epochs%s. "
+                            + "Weights: es=%.3f, pop=%.3f, fresh=%.3f, cat=%.3f%s",
+                    result.trainRows(), trainFile.positives(), result.holdoutRows(), job.loggedExamples, result.epochs(),
+                    result.stoppedEarly() ? " (stopped early)" : "",
+                    w[0], w[1], w[2], w[3],
+                    run.published() ? "" : ". Not published: weights were set manually during training"));
+        } catch (Exception e) {
+            System.err.println("Model training failed: " + e.getMessage());
+            job.finish(IngestionService.State.FAILED, e.getMessage());
         }
+    }
 
-        // Balance dataset (optional but helps with class imbalance)
-        List<SimpleMLRanker.TrainingPair> balanced = balanceDataset(trainingPairs);
-
-        // Train
-        mlRanker.train(balanced, epochs);
+    private void trainGbdt(Job job, FeatureFile trainFile, FeatureFile holdoutFile)
+            throws IOException, InterruptedException {
+        GbdtTrainer.Result result = gbdtRanker.train(trainFile, holdoutFile, job.maxEpochs, gbdtConfig, trainingConfig,
+                (tree, trainNdcg, holdoutNdcg) -> {
+                    job.trainLoss = trainNdcg;
+                    job.holdoutLoss = holdoutNdcg;
+                    job.epoch = tree;
+                });
+        job.bestEpoch = result.bestTrees();
+        job.trainLoss = result.trainNdcg();
+        job.holdoutLoss = result.holdoutNdcg();
 
-        SimpleMLRanker.ModelWeights weights = mlRanker.getWeights();
+        if (result.bestTrees() == 0) {
+            job.finish(IngestionService.State.COMPLETED, String.format(
+                    "No tree improved holdout %s over the logged order (%.4f) in %d rounds; model not replaced",
+                    job.metric, result.holdoutNdcg(), result.rounds()));
+            return;
+        }
+        resultCache.invalidateAll(); // new model, new rankings
 
-        return new TrainingResult(
-                true,
-                String.format("Trained on %d examples (%d balanced). Weights: es=%.3f, pop=%.3f, fresh=%.3f, cat=%.3f",
-                        trainingPairs.size(), balanced.size(),
-                        weights.weights()[0], weights.weights()[1],
-                        weights.weights()[2], weights.weights()[3])
-        );
+        job.finish(IngestionService.State.COMPLETED, String.format(
+                "Trained on %d examples in %d searches (%d clicked, %d held out, %d with logged features), "
+                        + "%d trees of depth %d%s. Holdout %s = %.4f",
+                result.trainRows(), result.trainGroups(), trainFile.positives(), result.holdoutRows(),
+                job.loggedExamples, result.bestTrees(), result.model().depth(),
+                result.stoppedEarly() ? " (stopped early)" : "", job.metric, result.holdoutNdcg()));
     }
 
     /**
-     * Balance positive/negative examples by upsampling minority class.
+     * Streams the event logs into the two feature files, a page of examples at a time.
+     * Impressions logged with their features (variant B) are written as logged. For the rest,
+     * each page's articles are hydrated in bulk (cache, then multi-get for the rest) and go
+     * through the same RankingService.extractFeatures as serving.
+     * Finishes the job as SKIPPED if there's nothing to train on.
      */
-    private List<SimpleMLRanker.TrainingPair> balanceDataset(List<SimpleMLRanker.TrainingPair> data) {
-        List<SimpleMLRanker.TrainingPair> positives = new ArrayList<>();
-        List<SimpleMLRanker.TrainingPair> negatives = new ArrayList<>();
-
-        for (SimpleMLRanker.TrainingPair pair : data) {
-            if (pair.label() == 1) {
-                positives.add(pair);
-            } else {
-                negatives.add(pair);
-            }
-        }
+    private void exportTrainingData(Job job, FeatureFile.Writer train, FeatureFile.Writer holdout) {
+        LocalDate today = LocalDate.now();
 
-        // Upsample minority class
-        List<SimpleMLRanker.TrainingPair> balanced = new ArrayList<>();
-        int targetSize = Math.max(positives.size(), negatives.size());
+        boolean loggedOnly = trainingConfig.isLoggedFeaturesOnly();
+        // Max clicks for normalization, from an aggregation instead of reading every article
+        int maxClicks = loggedOnly ? 1 : Math.max(1, featureStore.maxClickCount());
 
-        Random rand = new Random(42);
+        Random split = new Random(trainingConfig.getSeed());
+        double[] features = new double[RankingService.FEATURE_COUNT];
+        FeatureFile.Writer[] target = {train};
+        boolean[] groupStart = {true};
 
-        while (balanced.size() < targetSize) {
-            if (!positives.isEmpty()) {
-                balanced.add(positives.get(rand.nextInt(positives.size())));
+        long produced = analyticsService.streamTrainingData(trainingConfig.getPageSize(),
+                Duration.ofSeconds(trainingConfig.getPointInTimeKeepAliveSeconds()), page -> {
+            // only impressions logged without features need their articles
+            Set<String> ids = new HashSet<>();
+            for (AnalyticsService.TrainingExample example : page) {
+                if (example.features() == null && !loggedOnly) ids.add(example.docId());
             }
-        }
-        while (balanced.size() < targetSize * 2) {
-            if (!negatives.isEmpty()) {
-                balanced.add(negatives.get(rand.nextInt(negatives.size())));
+            Map<String, ArticleFeatureStore.Features> articles = ids.isEmpty() ? Map.of() : featureStore.getAll(ids);
+
+            for (AnalyticsService.TrainingExample example : page) {
+                if (example.position() == 0) {
+                    // a search's results stay together: same file, flagged as one query group
+                    target[0] = split.nextDouble() < trainingConfig.getHoldoutFraction() ? holdout : train;
+                    groupStart[0] = true;
+                }
+
+                double[] row = example.features();
+                if (row != null) {
+                    job.loggedExamples++;
+                } else {
+                    ArticleFeatureStore.Features article = articles.get(example.docId());
+                    if (article == null) continue;
+
+                    // placeholder ES score of 0.5 since it wasn't logged; no category filter either
+                    rankingService.extractFeatures(article, 0.5, null, today, maxClicks, features);
+                    row = features;
+                }
+                try {
+                    target[0].add(row, example.label(), groupStart[0]);
+                    groupStart[0] = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
-        }
+            job.examples = train.rows() + holdout.rows();
+        });
 
-        Collections.shuffle(balanced, rand);
-        return balanced;
+        if (produced == 0) {
+            job.finish(IngestionService.State.SKIPPED,
+                    "No training data available. Generate some search/click events first.");
+        } else if (train.rows() == 0) {
+            job.finish(IngestionService.State.SKIPPED, "Could not build training pairs. Check article IDs in events.");
+        }
     }
 
     /**
@@ -140,6 +240,62 @@ public class MLTrainingService {
         return mlRanker.getWeights();
     }
 
-    public record TrainingResult(boolean success, String message) {
+    // ==================== Job bookkeeping ====================
+
+    private static class Job {
+        final Instant startedAt = Instant.now();
+        final int maxEpochs;
+        final RankingConfig.MlModel model;
+        final String metric; // what trainLoss / holdoutLoss hold
+        volatile IngestionService.State state = IngestionService.State.RUNNING;
+        volatile Instant finishedAt;
+        volatile String message;
+        volatile String phase;
+
+        volatile long examples;
+        volatile long loggedExamples; // of which came with impression-time features
+        volatile int epoch;
+        volatile int bestEpoch;
+        volatile double trainLoss = Double.NaN;
+        volatile double holdoutLoss = Double.NaN;
+
+        Job(int maxEpochs, RankingConfig.MlModel model, String metric) {
+            this.maxEpochs = maxEpochs;
+            this.model = model;
+            this.metric = metric;
+        }
+
+        void finish(IngestionService.State state, String message) {
+            this.message = message;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        TrainingStatus toStatus() {
+            return new TrainingStatus(state, model, metric, phase, examples, loggedExamples, epoch, maxEpochs, bestEpoch,
+                    trainLoss, holdoutLoss, startedAt, finishedAt, message);
+        }
+    }
+
+    public record TrainingStatus(
+            IngestionService.State state,
+            RankingConfig.MlModel model,
+            String metric,
+            String phase,
+            long examples,
+            long loggedExamples,
+            int epoch,
+            int maxEpochs,
+            int bestEpoch,
+            double trainLoss,
+            double holdoutLoss,
+            Instant startedAt,
+            Instant finishedAt,
+            String message
+    ) {
+        static TrainingStatus idle() {
+            return new TrainingStatus(IngestionService.State.IDLE, null, null, null, 0, 0, 0, 0, 0,
+                    Double.NaN, Double.NaN, null, null, null);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,224 @@
+package com.learning.news_search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Logistic regression training over FeatureFiles with mini-batch gradient descent.
+ *
+ * Every epoch streams the training file front to back in blocks of shuffleBufferRows rows;
+ * each block is shuffled and cut into mini-batches, so memory stays at one block however big
+ * the file is. The gradient of a batch is computed in parallel: the batch is cut into one
+ * chunk per worker, every worker sums its chunk's gradient into its own array and the partial
+ * sums are added up in chunk order, so a run is repeatable for a given seed.
+ *
+ * Classes are balanced by weight (the minority class counts negatives/positives times as
+ * much) instead of by upsampling copies. After every epoch the held-out file is scored;
+ * training stops once its loss hasn't improved for `patience` epochs and the best weights
+ * seen are returned.
+ */
+final class MiniBatchTrainer implements AutoCloseable {
+
+    // below this many rows per worker, splitting costs more than it saves
+    private static final int MIN_CHUNK = 1024;
+
+    private final TrainingConfig config;
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    MiniBatchTrainer(TrainingConfig config) {
+        this.config = config;
+        this.threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    interface EpochListener {
+        void onEpoch(int epoch, double trainLoss, double holdoutLoss);
+    }
+
+    record Result(double[] weights, double bias, int epochs, int bestEpoch, double trainLoss,
+                  double holdoutLoss, boolean stoppedEarly, long trainRows, long holdoutRows) {}
+
+    Result train(FeatureFile trainFile, FeatureFile holdoutFile, double[] initialWeights, double initialBias,
+                 int maxEpochs, EpochListener listener) throws IOException, InterruptedException {
+        int width = trainFile.width();
+        if (initialWeights.length != width || holdoutFile.width() != width) {
+            throw new IllegalArgumentException("Expected " + width + " weights and holdout features, got "
+                    + initialWeights.length + " and " + holdoutFile.width());
+        }
+
+        // weight per label: [negative, positive]
+        double[] classWeights = {1.0, 1.0};
+        if (trainFile.positives() > 0 && trainFile.negatives() > 0) {
+            classWeights[1] = (double) trainFile.negatives() / trainFile.positives();
+        }
+
+        double[] weights = initialWeights.clone();
+        double bias = initialBias;
+        double[] bestWeights = weights.clone();
+        double bestBias = bias;
+        double bestLoss = Double.MAX_VALUE;
+        double bestTrainLoss = Double.NaN;
+        int bestEpoch = 0;
+        int sinceBest = 0;
+
+        int batchSize = Math.max(1, config.getBatchSize());
+        int blockRows = Math.max(batchSize, config.getShuffleBufferRows());
+        double learningRate = config.getLearningRate();
+        Random random = new Random(config.getSeed());
+
+        FeatureMatrix block = new FeatureMatrix(width, blockRows);
+        int[] order = new int[blockRows];
+        double[] gradient = new double[width + 3]; // d/dw..., d/dbias, summed loss, summed weight
+
+        int epoch = 0;
+        boolean stoppedEarly = false;
+        while (epoch < maxEpochs) {
+            epoch++;
+
+            double lossSum = 0;
+            double weightSum = 0;
+            try (FeatureFile.Reader reader = trainFile.reader()) {
+                int rows;
+                while ((rows = reader.read(block, blockRows)) > 0) {
+                    for (int i = 0; i < rows; i++) order[i] = i;
+                    shuffle(order, rows, random);
+
+                    for (int start = 0; start < rows; start += batchSize) {
+                        int end = Math.min(start + batchSize, rows);
+                        sum(block, order, start, end, weights, bias, classWeights, gradient);
+
+                        double step = learningRate / gradient[width + 2];
+                        for (int j = 0; j < width; j++) {
+                            weights[j] -= step * gradient[j];
+                        }
+                        bias -= step * gradient[width];
+                        lossSum += gradient[width + 1];
+                        weightSum += gradient[width + 2];
+                    }
+                }
+            }
+            double trainLoss = weightSum > 0 ? lossSum / weightSum : Double.NaN;
+
+            double holdoutLoss = holdoutFile.rows() > 0
+                    ? loss(holdoutFile, block, order, blockRows, weights, bias, classWeights, gradient)
+                    : trainLoss;
+            listener.onEpoch(epoch, trainLoss, holdoutLoss);
+
+            if (holdoutLoss < bestLoss - config.getMinImprovement()) {
+                bestLoss = holdoutLoss;
+                bestTrainLoss = trainLoss;
+                bestWeights = weights.clone();
+                bestBias = bias;
+                bestEpoch = epoch;
+                sinceBest = 0;
+            } else if (++sinceBest >= config.getPatience()) {
+                stoppedEarly = true;
+                break;
+            }
+        }
+
+        return new Result(bestWeights, bestBias, epoch, bestEpoch, bestTrainLoss,
+                bestEpoch > 0 ? bestLoss : Double.NaN, stoppedEarly, trainFile.rows(), holdoutFile.rows());
+    }
+
+    // weighted mean log loss over a whole file, same weighting as training
+    private double loss(FeatureFile file, FeatureMatrix block, int[] order, int blockRows, double[] weights,
+                        double bias, double[] classWeights, double[] gradient)
+            throws IOException, InterruptedException {
+        int width = weights.length;
+        double lossSum = 0;
+        double weightSum = 0;
+        try (FeatureFile.Reader reader = file.reader()) {
+            int rows;
+            while ((rows = reader.read(block, blockRows)) > 0) {
+                for (int i = 0; i < rows; i++) order[i] = i;
+                sum(block, order, 0, rows, weights, bias, classWeights, gradient);
+                lossSum += gradient[width + 1];
+                weightSum += gradient[width + 2];
+            }
+        }
+        return weightSum > 0 ? lossSum / weightSum : Double.NaN;
+    }
+
+    /**
+     * Gradient and loss summed over rows idx[from, to), in parallel for big ranges.
+     * out = [d/dw0 .. d/dw(width-1), d/dbias, log loss, weight]
+     */
+    private void sum(FeatureMatrix data, int[] idx, int from, int to, double[] weights, double bias,
+                     double[] classWeights, double[] out) throws InterruptedException {
+        Arrays.fill(out, 0);
+        int rows = to - from;
+        int chunks = Math.min(threads, rows / MIN_CHUNK);
+        if (chunks <= 1) {
+            partial(data, idx, from, to, weights, bias, classWeights, out);
+            return;
+        }
+
+        List<Callable<double[]>> tasks = new ArrayList<>(chunks);
+        int chunkSize = (rows + chunks - 1) / chunks;
+        for (int start = from; start < to; start += chunkSize) {
+            int s = start, e = Math.min(start + chunkSize, to);
+            tasks.add(() -> {
+                double[] part = new double[out.length];
+                partial(data, idx, s, e, weights, bias, classWeights, part);
+                return part;
+            });
+        }
+        try {
+            for (Future<double[]> f : pool.invokeAll(tasks)) {
+                double[] part = f.get();
+                for (int j = 0; j < out.length; j++) out[j] += part[j];
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Gradient worker failed", e.getCause());
+        }
+    }
+
+    private static void partial(FeatureMatrix data, int[] idx, int from, int to, double[] weights,
+                                double bias, double[] classWeights, double[] out) {
+        double[] x = data.features();
+        byte[] y = data.labels();
+        int width = weights.length;
+        for (int i = from; i < to; i++) {
+            int row = idx[i];
+            int base = row * width;
+
+            double z = bias;
+            for (int j = 0; j < width; j++) {
+                z += weights[j] * x[base + j];
+            }
+            double p = 1.0 / (1.0 + Math.exp(-z));
+
+            double c = classWeights[y[row]];
+            double error = c * (p - y[row]);
+            for (int j = 0; j < width; j++) {
+                out[j] += error * x[base + j];
+            }
+            out[width] += error;
+            out[width + 1] += c * (y[row] == 1 ? -Math.log(p + 1e-10) : -Math.log(1 - p + 1e-10));
+            out[width + 2] += c;
+        }
+    }
+
+    private static void shuffle(int[] a, int n, Random random) {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -1,13 +1,16 @@
 package com.learning.news_search;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.IndexOptions;
 
 import java.time.LocalDate;
 
 @Document(indexName = "news") // Note: By doing this, it creates an index called "news" in Elasticsearch
+@JsonInclude(JsonInclude.Include.NON_NULL) // fields left out by a `fields` projection don't show up as null
 public class NewsArticle {
     @Id
     private String id;
@@ -15,7 +18,8 @@ public class NewsArticle {
     @Field(type = FieldType.Keyword) // Optimized for exact filtering (like "BUSINESS" or "SPORTS")
     private String category;
 
-    @Field(type = FieldType.Text)
+    // offsets in the postings let the unified highlighter find matches without re-analyzing the text
+    @Field(type = FieldType.Text, indexOptions = IndexOptions.offsets)
     private String headline;
 
     @Field(type = FieldType.Text)
@@ -24,7 +28,7 @@ public class NewsArticle {
     @Field(type = FieldType.Keyword)
     private String link;
 
-    @Field(type = FieldType.Text)
+    @Field(type = FieldType.Text, indexOptions = IndexOptions.offsets)
     private String short_description;
 
     @Field(type = FieldType.Date, format = {}, pattern = "yyyy-MM-dd")
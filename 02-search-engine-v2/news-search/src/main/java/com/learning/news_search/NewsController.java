@@ -1,9 +1,15 @@
 package com.learning.news_search;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -13,10 +19,12 @@ public class NewsController {
 
     private final NewsService service;
     private final AnalyticsService analyticsService;
+    private final ObjectMapper objectMapper;
 
-    public NewsController(NewsService service, AnalyticsService analyticsService) {
+    public NewsController(NewsService service, AnalyticsService analyticsService, ObjectMapper objectMapper) {
         this.service = service;
         this.analyticsService = analyticsService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/hello")
@@ -24,10 +32,18 @@ public class NewsController {
         return "Search Engine is Online!";
     }
 
+    /**
+     * Starts loading the dataset in the background and returns right away.
+     * After the first load only new or changed records are sent. Poll /load/status for progress.
+     */
     @PostMapping("/load")
-    public String loadData() {
-        service.loadDataFromJson();
-        return "Data loading triggered! Check the console for details.";
+    public IngestionService.IngestionStatus loadData() {
+        return service.loadDataFromJson();
+    }
+
+    @GetMapping("/load/status")
+    public IngestionService.IngestionStatus getLoadStatus() {
+        return service.getLoadStatus();
     }
 
     /**
@@ -40,10 +56,13 @@ public class NewsController {
 
     /**
      * Original aggregated search (no A/B testing).
+     * fields=headline,category limits the returned article fields (default: all).
      */
     @GetMapping("/searchAgg")
-    public SearchResponse searchWithAggregations(@RequestParam String keyword, Pageable pageable) {
-        return service.searchWithAggregations(keyword, pageable);
+    public SearchResponse searchWithAggregations(@RequestParam String keyword,
+                                                 @RequestParam(required = false) String fields,
+                                                 Pageable pageable) {
+        return service.searchWithAggregations(keyword, FieldProjection.parse(fields), pageable);
     }
 
     /**
@@ -54,14 +73,17 @@ public class NewsController {
      *
      * Response headers include:
      * - X-Ranking-Variant: Which variant was used (A or B)
+     *
+     * fields=headline,category limits the returned article fields (default: all).
      */
     @GetMapping("/v2/search")
     public SearchResponse searchWithABTest(
             @RequestParam String keyword,
             @RequestParam(required = false) String category,
+            @RequestParam(required = false) String fields,
             @RequestHeader(value = "X-Session-Id", required = false) String sessionId,
             Pageable pageable) {
-        return service.searchWithABTest(keyword, category, sessionId, pageable);
+        return service.searchWithABTest(keyword, category, sessionId, FieldProjection.parse(fields), pageable);
     }
 
     /**
@@ -93,6 +115,15 @@ public class NewsController {
         );
     }
 
+    /**
+     * Batched click tracking: the frontend buffers clicks and sends them together.
+     * Every item gets its own status (STORED, QUEUED, INVALID, FAILED) in the same order.
+     */
+    @PostMapping("/v2/clicks")
+    public ClickBatchResponse recordClicks(@RequestBody List<ClickRequest> requests) {
+        return service.recordClicks(requests);
+    }
+
     // ==================== Analytics Endpoints ====================
 
     /**
@@ -121,11 +152,52 @@ public class NewsController {
 
     /**
      * Generate training data for ML model.
-     * Returns query-doc pairs with click labels.
+     * Returns query-doc pairs with click labels, as a JSON array. The array is written a page
+     * of search events at a time, so the export never has to fit in memory.
      */
-    @GetMapping("/analytics/training-data")
-    public List<AnalyticsService.TrainingExample> getTrainingData() {
-        return analyticsService.generateTrainingData();
+    @GetMapping(value = "/analytics/training-data", produces = "application/json")
+    public StreamingResponseBody getTrainingData(@RequestParam(defaultValue = "5000") int pageSize) {
+        return out -> {
+            ObjectWriter writer = objectMapper.writerFor(LabeledPair.class);
+            boolean[] first = {true};
+            out.write('[');
+            analyticsService.streamTrainingData(pageSize, Duration.ofMinutes(2), page -> {
+                try {
+                    for (AnalyticsService.TrainingExample example : page) {
+                        if (!first[0]) out.write(',');
+                        first[0] = false;
+                        out.write(writer.writeValueAsBytes(
+                                new LabeledPair(example.query(), example.docId(), example.label())));
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // client went away
+                }
+            });
+            out.write(']');
+        };
+    }
+
+    /**
+     * Same pairs as newline-delimited JSON, with each result's position in its search and the
+     * features logged at impression time (null if none were).
+     */
+    @GetMapping(value = "/analytics/training-data/stream", produces = "application/x-ndjson")
+    public StreamingResponseBody streamTrainingData(@RequestParam(defaultValue = "5000") int pageSize) {
+        return out -> {
+            ObjectWriter writer = objectMapper.writerFor(AnalyticsService.TrainingExample.class);
+            analyticsService.streamTrainingData(pageSize, Duration.ofMinutes(2), page -> {
+                try {
+                    for (AnalyticsService.TrainingExample example : page) {
+                        out.write(writer.writeValueAsBytes(example));
+                        out.write('\n');
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // client went away
+                }
+            });
+        };
     }
 
     /**
@@ -153,6 +225,15 @@ public class NewsController {
             Long timeToClickMs
     ) {}
 
+    public enum ClickStatus { STORED, QUEUED, INVALID, FAILED }
+
+    public record ClickResult(int index, String articleId, ClickStatus status, String error) {}
+
+    public record ClickBatchResponse(int stored, int queued, int invalid, int failed, List<ClickResult> items) {}
+
+    // one element of /analytics/training-data, the fields it has always had
+    public record LabeledPair(String query, String docId, int label) {}
+
     public record RankingConfigResponse(
             double bm25Weight,
             double popularityWeight,
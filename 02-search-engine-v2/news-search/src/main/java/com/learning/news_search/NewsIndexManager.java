@@ -0,0 +1,202 @@
+package com.learning.news_search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versioned physical indices behind the "news" alias.
+ *
+ * NewsArticle still says indexName = "news", but after the first reindex that name is an
+ * alias pointing at news-v&lt;timestamp&gt;. A rebuild fills a fresh index with bulk-friendly
+ * settings (no refresh, no replicas) while searches keep hitting the old one, then the
+ * alias is swapped in a single atomic _aliases call.
+ */
+@Component
+public class NewsIndexManager {
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient client;
+    private final IngestionConfig config;
+
+    public NewsIndexManager(ElasticsearchOperations elasticsearchOperations,
+                            ElasticsearchClient client,
+                            IngestionConfig config) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * The name searches use ("news").
+     */
+    public String aliasName() {
+        return elasticsearchOperations.getIndexCoordinatesFor(NewsArticle.class).getIndexName();
+    }
+
+    /**
+     * Creates news-v&lt;timestamp&gt; with the NewsArticle mapping, refresh disabled and no replicas.
+     */
+    public IndexCoordinates createBuildIndex() {
+        String name = aliasName() + "-v" + LocalDateTime.now().format(VERSION_FORMAT);
+
+        IndexOperations entityOps = elasticsearchOperations.indexOps(NewsArticle.class);
+        Settings settings = entityOps.createSettings().flatten();
+        settings.put("index.refresh_interval", "-1");
+        settings.put("index.number_of_replicas", "0");
+        Document mapping = entityOps.createMapping();
+
+        IndexCoordinates index = IndexCoordinates.of(name);
+        elasticsearchOperations.indexOps(index).create(settings, mapping);
+        System.out.println("Created build index " + name);
+        return index;
+    }
+
+    /**
+     * Server-side copy of whatever the alias serves now into the build index.
+     * Runs as an ES task so the HTTP client doesn't time out on big indices.
+     */
+    public long copyFromLive(IndexCoordinates target) throws IOException, InterruptedException {
+        String source = aliasName();
+        Float requestsPerSecond = config.getReindexRequestsPerSecond() > 0
+                ? config.getReindexRequestsPerSecond() : null;
+
+        ReindexResponse submitted = client.reindex(r -> r
+                .source(s -> s.index(source))
+                .dest(d -> d.index(target.getIndexName()))
+                .slices(sl -> sl.computed(SlicesCalculation.Auto))
+                .requestsPerSecond(requestsPerSecond)
+                .waitForCompletion(false));
+
+        String taskId = submitted.task();
+        while (true) {
+            var task = client.tasks().get(g -> g.taskId(taskId));
+            if (task.completed()) {
+                if (task.error() != null) {
+                    throw new IllegalStateException("Reindex task failed: " + task.error().reason());
+                }
+                elasticsearchOperations.indexOps(target).refresh();
+                return client.count(c -> c.index(target.getIndexName())).count();
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * Puts the serving settings back, refreshes, and merges down to a few segments so the
+     * new index starts out as fast to search as the old one.
+     */
+    public void finishBuild(IndexCoordinates index) throws IOException {
+        String name = index.getIndexName();
+
+        client.indices().putSettings(p -> p
+                .index(name)
+                .settings(s -> s
+                        .refreshInterval(t -> t.time(config.getServingRefreshInterval()))
+                        .numberOfReplicas(String.valueOf(config.getServingReplicas()))));
+
+        elasticsearchOperations.indexOps(index).refresh();
+
+        if (config.getForceMergeSegments() > 0) {
+            client.indices().forcemerge(f -> f
+                    .index(name)
+                    .maxNumSegments((long) config.getForceMergeSegments()));
+        }
+    }
+
+    /**
+     * Points the alias at newIndex and away from everything else, atomically.
+     * If "news" is still a plain index from before aliases were used, it is dropped in the
+     * same call - an alias can't share its name with an index.
+     */
+    public List<String> swapAlias(IndexCoordinates newIndex) throws IOException {
+        String alias = aliasName();
+        List<String> previous = aliasTargets(alias);
+        boolean legacyIndex = previous.isEmpty() && client.indices().exists(e -> e.index(alias)).value();
+
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.of(a -> a.add(add -> add.index(newIndex.getIndexName()).alias(alias).isWriteIndex(true))));
+        for (String old : previous) {
+            if (old.equals(newIndex.getIndexName())) continue;
+            actions.add(Action.of(a -> a.remove(rm -> rm.index(old).alias(alias))));
+        }
+        if (legacyIndex) {
+            System.out.println("'" + alias + "' is a concrete index, replacing it with the alias");
+            actions.add(Action.of(a -> a.removeIndex(rm -> rm.index(alias))));
+        }
+
+        client.indices().updateAliases(u -> u.actions(actions));
+        System.out.println("Alias " + alias + " -> " + newIndex.getIndexName() + " (was " + previous + ")");
+        return previous;
+    }
+
+    /**
+     * Deletes old versions, keeping the newest keepPreviousIndices ones for a quick rollback.
+     */
+    public List<String> deleteOldVersions() throws IOException {
+        String alias = aliasName();
+        Set<String> serving = Set.copyOf(aliasTargets(alias));
+
+        List<String> versions = new ArrayList<>(client.indices()
+                .get(g -> g.index(alias + "-v*").allowNoIndices(true).ignoreUnavailable(true))
+                .result().keySet());
+        versions.removeAll(serving);
+        versions.sort(Comparator.reverseOrder()); // timestamps sort lexically, newest first
+
+        List<String> deleted = new ArrayList<>();
+        for (int i = config.getKeepPreviousIndices(); i < versions.size(); i++) {
+            String name = versions.get(i);
+            client.indices().delete(d -> d.index(name));
+            deleted.add(name);
+        }
+        if (!deleted.isEmpty()) System.out.println("Deleted old indices " + deleted);
+        return deleted;
+    }
+
+    /**
+     * The concrete index behind `name` (the alias or an index name) as it is right now, or
+     * null if there is none. The UUID changes whenever the index is deleted and recreated,
+     * even under the same name.
+     */
+    public IndexIdentity identify(String name) throws IOException {
+        if (!client.indices().exists(e -> e.index(name)).value()) return null;
+
+        var indices = client.indices().getSettings(g -> g.index(name)).result();
+        if (indices.size() != 1) return null; // an alias over several indices can't be pinned down
+        var entry = indices.entrySet().iterator().next();
+        var settings = entry.getValue().settings();
+        String uuid = settings == null ? null
+                : settings.index() != null ? settings.index().uuid() : settings.uuid();
+
+        long docCount = client.count(c -> c.index(entry.getKey())).count();
+        return new IndexIdentity(entry.getKey(), uuid, docCount);
+    }
+
+    public record IndexIdentity(String name, String uuid, long docCount) {}
+
+    public void deleteIndex(IndexCoordinates index) {
+        elasticsearchOperations.indexOps(index).delete();
+    }
+
+    private List<String> aliasTargets(String alias) throws IOException {
+        if (!client.indices().existsAlias(e -> e.name(alias)).value()) return List.of();
+        return new ArrayList<>(client.indices().getAlias(g -> g.name(alias)).result().keySet());
+    }
+}
@@ -1,29 +1,41 @@
 package com.learning.news_search;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
 import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.query.RescorerQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightFieldParameters;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
 
 import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
 import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.FunctionBoostMode;
 import co.elastic.clients.elasticsearch._types.query_dsl.FieldValueFactorModifier;
+import co.elastic.clients.json.JsonData;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
 import org.springframework.data.elasticsearch.core.SearchHit;
@@ -37,58 +49,81 @@ import org.springframework.data.elasticsearch.core.SearchHit;
 @Service
 public class NewsService {
 
+    /**
+     * Highlight matches in headline (whole field) and short_description (best 150-char fragment).
+     * Both fields index offsets, so the unified highlighter reads match positions from the postings
+     * instead of re-analyzing the stored text.
+     */
+    private static final HighlightQuery HIGHLIGHT_QUERY = new HighlightQuery(
+            new Highlight(
+                    HighlightParameters.builder()
+                            .withType("unified")
+                            .withPreTags("<em>")
+                            .withPostTags("</em>")
+                            .build(),
+                    List.of(
+                            new HighlightField("headline", HighlightFieldParameters.builder()
+                                    .withNumberOfFragments(0)
+                                    .build()),
+                            new HighlightField("short_description", HighlightFieldParameters.builder()
+                                    .withFragmentSize(150)
+                                    .withNumberOfFragments(1)
+                                    .build())
+                    )),
+            NewsArticle.class);
+
     private final NewsRepository repository;
-    private final ObjectMapper objectMapper;
     private final ElasticsearchOperations elasticsearchOperations;
     private final RankingService rankingService;
+    private final RankingCascade rankingCascade;
     private final ABTestService abTestService;
-    private final SearchEventRepository searchEventRepository;
-    private final ClickEventRepository clickEventRepository;
+    private final EventLogService eventLogService;
+    private final ClickCounterService clickCounterService;
+    private final EventLogConfig eventLogConfig;
+    private final SearchResultCache resultCache;
     private final RankingConfig config;
+    private final SpellingService spellingService;
+    private final IngestionService ingestionService;
+    private final ObjectMapper payloadMapper;
 
     public NewsService(NewsRepository repository,
-                       ObjectMapper objectMapper,
                        ElasticsearchOperations elasticsearchOperations,
                        RankingService rankingService,
+                       RankingCascade rankingCascade,
                        ABTestService abTestService,
-                       SearchEventRepository searchEventRepository,
-                       ClickEventRepository clickEventRepository,
-                       RankingConfig config) {
+                       EventLogService eventLogService,
+                       ClickCounterService clickCounterService,
+                       EventLogConfig eventLogConfig,
+                       SearchResultCache resultCache,
+                       RankingConfig config,
+                       SpellingService spellingService,
+                       IngestionService ingestionService,
+                       ObjectMapper objectMapper) {
         this.repository = repository;
-        this.objectMapper = objectMapper;
         this.elasticsearchOperations = elasticsearchOperations;
         this.rankingService = rankingService;
+        this.rankingCascade = rankingCascade;
         this.abTestService = abTestService;
-        this.searchEventRepository = searchEventRepository;
-        this.clickEventRepository = clickEventRepository;
+        this.eventLogService = eventLogService;
+        this.clickCounterService = clickCounterService;
+        this.eventLogConfig = eventLogConfig;
+        this.resultCache = resultCache;
         this.config = config;
+        this.spellingService = spellingService;
+        this.ingestionService = ingestionService;
+        // nulls left out, so a clickCount-only source counts as what ES actually sent
+        this.payloadMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
 
-    public void loadDataFromJson() {
-        long count = repository.count();
-        if (count > 0) {
-            System.out.println("Data already exists (" + count + " docs). Skipping load.");
-            return;
-        }
-
-        System.out.println("Starting data load...");
-        int loadedCount = 0;
+    /**
+     * Kicks off a background bulk load of the dataset; see IngestionService.
+     */
+    public IngestionService.IngestionStatus loadDataFromJson() {
+        return ingestionService.startLoad();
+    }
 
-        try {
-            ClassPathResource resource = new ClassPathResource("json/News_Category_Dataset.json");
-            BufferedReader br = new BufferedReader(new InputStreamReader(resource.getInputStream()));
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                NewsArticle article = objectMapper.readValue(line, NewsArticle.class);
-                repository.save(article);
-                loadedCount++;
-                if (loadedCount % 500 == 0) System.out.println("Loaded " + loadedCount + "...");
-            }
-            System.out.println("Finished! Total loaded: " + loadedCount);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    public IngestionService.IngestionStatus getLoadStatus() {
+        return ingestionService.getStatus();
     }
 
     public Page<NewsArticle> searchArticles(String keyword, Pageable pageable) {
@@ -98,24 +133,36 @@ public class NewsService {
     /**
      * Main search endpoint with A/B testing and logging.
      */
-    public SearchResponse searchWithABTest(String keyword, String categoryFilter,
-                                           String sessionId, Pageable pageable) {
+    public SearchResponse searchWithABTest(String keyword, String categoryFilter, String sessionId,
+                                           FieldProjection projection, Pageable pageable) {
         long startTime = System.currentTimeMillis();
 
         // Assign A/B variant
         String variant = abTestService.assignVariant(sessionId);
         boolean useNewRanking = abTestService.useNewRanking(variant);
 
-        SearchResponse response;
-        if (useNewRanking) {
-            response = searchWithReranking(keyword, categoryFilter, pageable);
-        } else {
-            response = searchWithAggregations(keyword, pageable);
+        // JAVA re-ranking pages through a per-session pool, so those pages are per session too
+        boolean perSession = useNewRanking && config.getReRankMode() == RankingConfig.ReRankMode.JAVA;
+        SearchResultCache.Key cacheKey = resultCache.key(keyword, categoryFilter, variant,
+                perSession ? sessionId : null, projection, pageable);
+        SearchResponse response = resultCache.get(cacheKey);
+        if (response == null) {
+            if (useNewRanking) {
+                response = searchWithReranking(keyword, categoryFilter, sessionId, projection, pageable);
+            } else {
+                response = searchWithAggregations(keyword, projection, pageable);
+            }
+
+            // Zero hits: offer a spelling correction instead of an empty page
+            if (response.articles().isEmpty()) {
+                response = response.withSuggestion(spellingService.suggest(keyword));
+            }
+            resultCache.put(cacheKey, response);
         }
 
         long responseTime = System.currentTimeMillis() - startTime;
 
-        // Log search event
+        // Log search event (queued, written in bulk by a background thread)
         logSearchEvent(keyword, categoryFilter, sessionId, variant, response, responseTime);
 
         return response;
@@ -123,46 +170,325 @@ public class NewsService {
 
     /**
      * Variant B: Custom re-ranking with weighted features.
+     *
+     * The pool query only fetches what re-ranking looks at (RankHit), and the re-ranked pool is
+     * cached per query and session. The page's documents are then fetched by id with the
+     * requested fields, so full documents only come over the wire for the page shown.
      */
-    private SearchResponse searchWithReranking(String keyword, String categoryFilter, Pageable pageable) {
-        // Fetch larger pool for re-ranking
-        int poolSize = config.getReRankPoolSize();
-        Pageable largePageable = PageRequest.of(0, poolSize);
+    private SearchResponse searchWithReranking(String keyword, String categoryFilter, String sessionId,
+                                               FieldProjection projection, Pageable pageable) {
+        if (config.getReRankMode() == RankingConfig.ReRankMode.RESCORE) {
+            return searchWithRescore(keyword, categoryFilter, projection, pageable);
+        }
 
-        // Build query with category filter if provided
-        Query query = buildSearchQuery(keyword, categoryFilter, largePageable);
+        int start = (int) pageable.getOffset();
+        int end = start + pageable.getPageSize();
+
+        SearchResultCache.PoolKey poolKey = resultCache.poolKey(keyword, categoryFilter, sessionId);
+        SearchResultCache.RankedPool pool = resultCache.getPool(poolKey);
+
+        int maxPoolSize = Math.max(config.getReRankMaxPoolSize(), config.getReRankPoolSize());
+        if (pool == null || (pool.needsMore(end) && pool.requested() < maxPoolSize)) {
+            // first page, or paging past the pool: (re)build it, doubling until the page fits
+            int poolSize = pool == null ? rankingCascade.candidatePoolSize() : pool.requested() * 2;
+            poolSize = Math.min(Math.max(poolSize, end), maxPoolSize);
+
+            long retrievalStart = System.nanoTime();
+            SearchHits<NewsArticle> poolHits = elasticsearchOperations.search(
+                    buildPoolQuery(keyword, categoryFilter, poolSize), NewsArticle.class);
+            rankingCascade.recordRetrieval(System.nanoTime() - retrievalStart);
+            // a cached pool serves later pages too, so rank all of it; otherwise just up to this page
+            int limit = resultCache.isEnabled() ? poolSize : end;
+            pool = rankPool(poolHits, categoryFilter, poolSize, limit, pool);
+            resultCache.putPool(poolKey, pool);
+        }
 
-        SearchHits<NewsArticle> searchHits = elasticsearchOperations.search(query, NewsArticle.class);
+        List<String> pageIds = start < pool.size()
+                ? pool.ids().subList(start, Math.min(end, pool.size()))
+                : List.of();
+        if (pageIds.isEmpty()) {
+            return new SearchResponse(List.of(), pool.categoryCounts());
+        }
 
-        // Extract articles and scores
-        List<NewsArticle> articles = new ArrayList<>();
-        List<Double> esScores = new ArrayList<>();
+        SearchHits<NewsArticle> pageHits = elasticsearchOperations.search(
+                buildPageQuery(keyword, pageIds, projection), NewsArticle.class);
 
-        for (SearchHit<NewsArticle> hit : searchHits.getSearchHits()) {
-            articles.add(hit.getContent());
-            esScores.add((double) hit.getScore());
+        Map<String, NewsArticle> byId = new HashMap<>();
+        for (SearchHit<NewsArticle> hit : pageHits.getSearchHits()) {
+            byId.put(hit.getId(), hit.getContent());
+        }
+        List<NewsArticle> pageResults = new ArrayList<>(pageIds.size());
+        int[] shown = new int[pageIds.size()];
+        for (int i = 0; i < pageIds.size(); i++) {
+            NewsArticle article = byId.get(pageIds.get(i));
+            if (article == null) continue; // gone since the pool was built
+            shown[pageResults.size()] = start + i;
+            pageResults.add(article);
+        }
+
+        return new SearchResponse(projection.strip(pageResults), pool.categoryCounts(),
+                extractHighlights(pageHits, pageResults))
+                .withFeatures(impressionFeatures(pool, shown, pageResults.size()));
+    }
+
+    // the pool rows of the results actually shown, for the search event
+    private ImpressionFeatures impressionFeatures(SearchResultCache.RankedPool pool, int[] rows, int count) {
+        int width = RankingService.FEATURE_COUNT;
+        float[] esScores = new float[count];
+        float[] rowMajor = new float[count * width];
+        for (int i = 0; i < count; i++) {
+            esScores[i] = pool.esScores()[rows[i]];
+            System.arraycopy(pool.features(), rows[i] * width, rowMajor, i * width, width);
+        }
+        return ImpressionFeatures.fromRows(rowMajor, esScores, width, 0, count);
+    }
+
+    /**
+     * Variant B, RESCORE mode: the weighted sum runs inside Elasticsearch.
+     */
+    private SearchResponse searchWithRescore(String keyword, String categoryFilter,
+                                             FieldProjection projection, Pageable pageable) {
+        RescoreHits hits = rescoreSearch(keyword, categoryFilter, projection, pageable);
+        if (hits.page() == null) {
+            return new SearchResponse(List.of(), Map.of());
+        }
+
+        List<NewsArticle> pageResults = new ArrayList<>();
+        for (SearchHit<NewsArticle> hit : hits.page().getSearchHits()) {
+            if (pageResults.size() == hits.pageLimit()) break; // past the rescore window
+            pageResults.add(hit.getContent());
+        }
+        return new SearchResponse(projection.strip(pageResults), extractCategoryCounts(hits.page()),
+                extractHighlights(hits.page(), pageResults));
+    }
+
+    /**
+     * Two round trips, neither of which carries the pool's documents:
+     * 1. the pool query with only clickCount in _source, for the ES score range and max clicks
+     *    that RankingService normalizes by;
+     * 2. the page itself, with the pool (window) rescored by RankingService.RESCORE_SCRIPT.
+     */
+    private RescoreHits rescoreSearch(String keyword, String categoryFilter,
+                                      FieldProjection projection, Pageable pageable) {
+        int start = (int) pageable.getOffset();
+        int poolSize = Math.min(Math.max(config.getReRankPoolSize(), start + pageable.getPageSize()),
+                Math.max(config.getReRankMaxPoolSize(), config.getReRankPoolSize()));
+
+        Query statsQuery = NativeQuery.builder()
+                .withQuery(textQuery(keyword, categoryFilter))
+                .withPageable(PageRequest.of(0, poolSize))
+                .withSourceFilter(FetchSourceFilter.of(f -> f.withIncludes("clickCount")))
+                .withTrackTotalHits(false)
+                .build();
+        SearchHits<NewsArticle> stats = elasticsearchOperations.search(statsQuery, NewsArticle.class);
+        if (stats.getSearchHits().isEmpty() || start >= stats.getSearchHits().size()) {
+            return new RescoreHits(stats, null, 0);
+        }
+
+        double minEsScore = Double.MAX_VALUE, maxEsScore = -Double.MAX_VALUE;
+        int maxClicks = 0;
+        for (SearchHit<NewsArticle> hit : stats.getSearchHits()) {
+            minEsScore = Math.min(minEsScore, hit.getScore());
+            maxEsScore = Math.max(maxEsScore, hit.getScore());
+            Integer clicks = hit.getContent().getClickCount();
+            if (clicks != null) maxClicks = Math.max(maxClicks, clicks);
         }
+        RankingService.RescoreSpec spec = rankingService.rescoreSpec(minEsScore, maxEsScore, maxClicks, categoryFilter);
+
+        Map<String, JsonData> params = new HashMap<>();
+        spec.params().forEach((name, value) -> params.put(name, JsonData.of(value)));
+        Query script = NativeQuery.builder()
+                .withQuery(q -> q
+                        .scriptScore(ss -> ss
+                                .query(mq -> mq.matchAll(m -> m))
+                                .script(sc -> sc
+                                        .source(RankingService.RESCORE_SCRIPT)
+                                        .lang("painless")
+                                        .params(params)
+                                )
+                        )
+                )
+                .build();
+
+        // ES rejects a sort next to a rescore, and the JAVA path ignores ?sort= for its
+        // re-ranked order as well, so the page goes out unsorted
+        Query pageQuery = NativeQuery.builder()
+                .withQuery(textQuery(keyword, categoryFilter))
+                .withPageable(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
+                .withSourceFilter(projection.sourceFilter())
+                .withHighlightQuery(HIGHLIGHT_QUERY)
+                .withAggregation("categories", co.elastic.clients.elasticsearch._types.aggregations.Aggregation.of(a -> a
+                        .terms(t -> t.field("category").size(10))
+                ))
+                .withRescorerQuery(new RescorerQuery(script)
+                        .withWindowSize(poolSize)
+                        .withQueryWeight(spec.queryWeight())
+                        .withRescoreQueryWeight(spec.rescoreQueryWeight())
+                        .withScoreMode(RescorerQuery.ScoreMode.Total))
+                .build();
+        SearchHits<NewsArticle> page = elasticsearchOperations.search(pageQuery, NewsArticle.class);
+
+        // the Java path never returns anything past the pool either
+        int pageLimit = Math.min(pageable.getPageSize(), stats.getSearchHits().size() - start);
+        return new RescoreHits(stats, page, pageLimit);
+    }
 
-        // Re-rank using our custom scoring
-        List<NewsArticle> reRanked = rankingService.reRank(articles, esScores, categoryFilter);
+    private record RescoreHits(SearchHits<NewsArticle> stats, SearchHits<NewsArticle> page, int pageLimit) {}
 
-        // Apply pagination to re-ranked results
+    /**
+     * Runs one variant B page through both re-rank modes (no caches) and reports the order each
+     * produced, how long it took and how much _source came over the wire.
+     */
+    public ReRankComparison compareReRankModes(String keyword, String categoryFilter,
+                                               FieldProjection projection, Pageable pageable) {
         int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), reRanked.size());
-        List<NewsArticle> pageResults = (start < reRanked.size())
-                ? reRanked.subList(start, end)
-                : new ArrayList<>();
+        int end = start + pageable.getPageSize();
+        int poolSize = Math.min(Math.max(config.getReRankPoolSize(), end),
+                Math.max(config.getReRankMaxPoolSize(), config.getReRankPoolSize()));
+
+        long t0 = System.nanoTime();
+        SearchHits<NewsArticle> poolHits = elasticsearchOperations.search(
+                buildPoolQuery(keyword, categoryFilter, poolSize), NewsArticle.class);
+        SearchResultCache.RankedPool pool = rankPool(poolHits, categoryFilter, poolSize, end, null);
+        List<String> javaIds = start < pool.size() ? pool.ids().subList(start, Math.min(end, pool.size())) : List.of();
+        int javaDocuments = poolHits.getSearchHits().size();
+        long javaBytes = sourceBytes(poolHits);
+        if (!javaIds.isEmpty()) {
+            SearchHits<NewsArticle> pageHits = elasticsearchOperations.search(
+                    buildPageQuery(keyword, javaIds, projection), NewsArticle.class);
+            javaDocuments += pageHits.getSearchHits().size();
+            javaBytes += sourceBytes(pageHits);
+        }
+        ModeRun java = new ModeRun(javaIds, (System.nanoTime() - t0) / 1_000_000.0, javaDocuments, javaBytes);
+
+        t0 = System.nanoTime();
+        RescoreHits hits = rescoreSearch(keyword, categoryFilter, projection, pageable);
+        List<String> rescoreIds = new ArrayList<>();
+        if (hits.page() != null) {
+            for (SearchHit<NewsArticle> hit : hits.page().getSearchHits()) {
+                if (rescoreIds.size() == hits.pageLimit()) break;
+                rescoreIds.add(hit.getId());
+            }
+        }
+        long transferred = sourceBytes(hits.stats()) + (hits.page() == null ? 0 : sourceBytes(hits.page()));
+        int documents = hits.stats().getSearchHits().size() + (hits.page() == null ? 0 : hits.page().getSearchHits().size());
+        ModeRun rescore = new ModeRun(rescoreIds, (System.nanoTime() - t0) / 1_000_000.0, documents, transferred);
 
-        // Extract category counts
-        Map<String, Long> categoryCounts = extractCategoryCounts(searchHits);
+        long common = javaIds.stream().filter(new HashSet<>(rescoreIds)::contains).count();
+        double overlap = javaIds.isEmpty() ? 1.0 : (double) common / javaIds.size();
+        return new ReRankComparison(java, rescore, javaIds.equals(rescoreIds), overlap);
+    }
+
+    // size of the _source JSON we got back, a fair stand-in for the payload difference
+    private long sourceBytes(SearchHits<NewsArticle> searchHits) {
+        long bytes = 0;
+        for (SearchHit<NewsArticle> hit : searchHits.getSearchHits()) {
+            try {
+                bytes += payloadMapper.writeValueAsBytes(hit.getContent()).length;
+            } catch (JsonProcessingException e) {
+                // an estimate is all we need
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @param documents    Hits returned across all round trips (pool / stats hits carry only a few fields)
+     * @param sourceBytes  Serialized size of the returned _source
+     */
+    public record ModeRun(List<String> ids, double latencyMs, int documents, long sourceBytes) {}
+
+    public record ReRankComparison(ModeRun java, ModeRun rescore, boolean sameOrder, double overlap) {}
+
+    /**
+     * Re-ranks the pool query hits. When extending a pool, the order the session has already
+     * paged through is kept and the new candidates are appended in their re-ranked order, so
+     * no article shows up twice or gets skipped across pages. Only the best `limit` candidates
+     * end up in the pool.
+     */
+    private SearchResultCache.RankedPool rankPool(SearchHits<NewsArticle> searchHits, String categoryFilter,
+                                                  int requested, int limit, SearchResultCache.RankedPool previous) {
+        List<RankHit> hits = new ArrayList<>(searchHits.getSearchHits().size());
+        for (SearchHit<NewsArticle> hit : searchHits.getSearchHits()) {
+            hits.add(RankHit.from(hit));
+        }
+
+        // Re-rank: linear weighted sum, then the ML model on the best few if enabled
+        RankingService.Ranking ranking = rankingCascade.rank(hits, categoryFilter, limit);
+
+        int width = RankingService.FEATURE_COUNT;
+        int kept = previous == null ? 0 : previous.size();
+        int capacity = kept + ranking.hits().size();
+        List<String> ids = new ArrayList<>(capacity);
+        double[] scores = new double[capacity];
+        float[] esScores = new float[capacity];
+        float[] features = new float[capacity * width];
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < kept; i++) {
+            String id = previous.ids().get(i);
+            seen.add(id);
+            ids.add(id);
+        }
+        if (kept > 0) {
+            System.arraycopy(previous.scores(), 0, scores, 0, kept);
+            System.arraycopy(previous.esScores(), 0, esScores, 0, kept);
+            System.arraycopy(previous.features(), 0, features, 0, kept * width);
+        }
+        for (int i = 0; i < ranking.hits().size(); i++) {
+            RankHit hit = ranking.hits().get(i);
+            if (!seen.add(hit.id())) continue;
+            int row = ids.size();
+            scores[row] = ranking.scores()[i];
+            esScores[row] = (float) hit.esScore();
+            for (int c = 0; c < width; c++) {
+                features[row * width + c] = (float) ranking.features()[i * width + c];
+            }
+            ids.add(hit.id());
+        }
+
+        boolean exhausted = hits.size() < requested;
+        int n = ids.size();
+        return new SearchResultCache.RankedPool(List.copyOf(ids), Arrays.copyOf(scores, n),
+                Arrays.copyOf(esScores, n), Arrays.copyOf(features, n * width),
+                extractCategoryCounts(searchHits), requested, exhausted);
+    }
+
+    // candidates for re-ranking: only the fields RankHit needs, plus the category counts
+    private Query buildPoolQuery(String keyword, String categoryFilter, int poolSize) {
+        return NativeQuery.builder()
+                .withQuery(textQuery(keyword, categoryFilter))
+                .withPageable(PageRequest.of(0, poolSize))
+                .withSourceFilter(RankHit.SOURCE_FILTER)
+                .withAggregation("categories", co.elastic.clients.elasticsearch._types.aggregations.Aggregation.of(a -> a
+                        .terms(t -> t.field("category").size(10))
+                ))
+                .build();
+    }
 
-        return new SearchResponse(pageResults, categoryCounts);
+    // one page of pool articles by id; the text query is repeated only to get highlights
+    private Query buildPageQuery(String keyword, List<String> ids, FieldProjection projection) {
+        return NativeQuery.builder()
+                .withQuery(q -> q
+                        .bool(b -> b
+                                .must(m -> m
+                                        .multiMatch(mm -> mm
+                                                .fields("headline^3", "short_description")
+                                                .query(keyword)
+                                        )
+                                )
+                                .filter(f -> f.ids(i -> i.values(ids)))
+                        )
+                )
+                .withPageable(PageRequest.of(0, ids.size()))
+                .withSourceFilter(projection.sourceFilter())
+                .withHighlightQuery(HIGHLIGHT_QUERY)
+                .build();
     }
 
     /**
      * Variant A: Original ES-based ranking (your existing implementation).
      */
-    public SearchResponse searchWithAggregations(String keyword, Pageable pageable) {
+    public SearchResponse searchWithAggregations(String keyword, FieldProjection projection, Pageable pageable) {
         Query query = NativeQuery.builder()
                 .withQuery(q -> q
                         .functionScore(fs -> fs
@@ -184,6 +510,8 @@ public class NewsService {
                         )
                 )
                 .withPageable(pageable)
+                .withSourceFilter(projection.sourceFilter())
+                .withHighlightQuery(HIGHLIGHT_QUERY)
                 .withAggregation("categories", co.elastic.clients.elasticsearch._types.aggregations.Aggregation.of(a -> a
                         .terms(t -> t.field("category").size(10))
                 ))
@@ -198,37 +526,51 @@ public class NewsService {
 
         Map<String, Long> categoryCounts = extractCategoryCounts(searchHits);
 
-        return new SearchResponse(articles, categoryCounts);
+        return new SearchResponse(projection.strip(articles), categoryCounts, extractHighlights(searchHits, articles));
     }
 
-    private Query buildSearchQuery(String keyword, String categoryFilter, Pageable pageable) {
-        return NativeQuery.builder()
-                .withQuery(q -> q
-                        .bool(b -> {
-                            // Main text search
-                            b.must(m -> m
-                                    .multiMatch(mm -> mm
-                                            .fields("headline^3", "short_description")
-                                            .query(keyword)
-                                    )
-                            );
-                            // Optional category filter
-                            if (categoryFilter != null && !categoryFilter.isEmpty()) {
-                                b.filter(f -> f
-                                        .term(t -> t
-                                                .field("category")
-                                                .value(categoryFilter)
-                                        )
-                                );
-                            }
-                            return b;
-                        })
-                )
-                .withPageable(pageable)
-                .withAggregation("categories", co.elastic.clients.elasticsearch._types.aggregations.Aggregation.of(a -> a
-                        .terms(t -> t.field("category").size(10))
-                ))
-                .build();
+    private co.elastic.clients.elasticsearch._types.query_dsl.Query textQuery(String keyword, String categoryFilter) {
+        return co.elastic.clients.elasticsearch._types.query_dsl.Query.of(q -> q
+                .bool(b -> {
+                    // Main text search
+                    b.must(m -> m
+                            .multiMatch(mm -> mm
+                                    .fields("headline^3", "short_description")
+                                    .query(keyword)
+                            )
+                    );
+                    // Optional category filter
+                    if (categoryFilter != null && !categoryFilter.isEmpty()) {
+                        b.filter(f -> f
+                                .term(t -> t
+                                        .field("category")
+                                        .value(categoryFilter)
+                                )
+                        );
+                    }
+                    return b;
+                })
+        );
+    }
+
+    // highlight fragments for the articles we actually return, keyed by article id
+    private Map<String, Map<String, List<String>>> extractHighlights(SearchHits<NewsArticle> searchHits,
+                                                                   List<NewsArticle> shown) {
+        Map<String, Map<String, List<String>>> byId = new HashMap<>();
+        for (SearchHit<NewsArticle> hit : searchHits.getSearchHits()) {
+            if (!hit.getHighlightFields().isEmpty()) {
+                byId.put(hit.getId(), hit.getHighlightFields());
+            }
+        }
+
+        Map<String, Map<String, List<String>>> highlights = new HashMap<>();
+        for (NewsArticle article : shown) {
+            Map<String, List<String>> fields = byId.get(article.getId());
+            if (fields != null) {
+                highlights.put(article.getId(), fields);
+            }
+        }
+        return highlights;
     }
 
     private Map<String, Long> extractCategoryCounts(SearchHits<NewsArticle> searchHits) {
@@ -263,12 +605,13 @@ public class NewsService {
                     .query(keyword)
                     .categoryFilter(categoryFilter)
                     .resultIds(resultIds)
+                    .features(response.features() != null ? response.features().head(resultIds.size()) : null)
                     .resultCount(response.articles().size())
                     .responseTimeMs(responseTime)
                     .rankingVariant(variant)
                     .build();
 
-            searchEventRepository.save(event);
+            eventLogService.logSearch(event);
         } catch (Exception e) {
             // Don't let logging failures break search
             System.err.println("Failed to log search event: " + e.getMessage());
@@ -281,12 +624,8 @@ public class NewsService {
     public void recordClick(String sessionId, String query, String articleId,
                             Integer position, String variant, Long timeToClickMs) {
         try {
-            // Increment article click count
-            NewsArticle article = repository.findById(articleId).orElse(null);
-            if (article != null) {
-                article.setClickCount(article.getClickCount() + 1);
-                repository.save(article);
-            }
+            // Counted in memory, written to the article in the next bulk flush
+            clickCounterService.increment(articleId);
 
             // Log click event for analytics
             ClickEvent event = ClickEvent.builder()
@@ -298,22 +637,88 @@ public class NewsService {
                     .timeToClickMs(timeToClickMs)
                     .build();
 
-            clickEventRepository.save(event);
+            eventLogService.logClick(event);
         } catch (Exception e) {
             System.err.println("Failed to record click: " + e.getMessage());
         }
     }
 
-    // Keep original method for backward compatibility
-    public void incrementClickCount(String id) {
-        try {
-            NewsArticle article = repository.findById(id).orElse(null);
-            if (article != null) {
-                article.setClickCount(article.getClickCount() + 1);
-                repository.save(article);
+    /**
+     * A batch of clicks from one client: validated item by item, written to click_events in
+     * one bulk request, and counted towards the articles' clickCount if they were STORED or
+     * QUEUED (not INVALID or FAILED).
+     */
+    public NewsController.ClickBatchResponse recordClicks(List<NewsController.ClickRequest> requests) {
+        if (requests == null) requests = List.of();
+        if (requests.size() > eventLogConfig.getMaxClickBatch()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + eventLogConfig.getMaxClickBatch() + " clicks per batch");
+        }
+
+        NewsController.ClickResult[] results = new NewsController.ClickResult[requests.size()];
+        List<ClickEvent> events = new ArrayList<>(requests.size());
+        List<Integer> eventIndexes = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            NewsController.ClickRequest request = requests.get(i);
+            String error = validateClick(request);
+            if (error != null) {
+                results[i] = new NewsController.ClickResult(i, request != null ? request.articleId() : null,
+                        NewsController.ClickStatus.INVALID, error);
+                continue;
+            }
+
+            events.add(ClickEvent.builder()
+                    .sessionId(request.sessionId())
+                    .query(request.query())
+                    .articleId(request.articleId())
+                    .position(request.position())
+                    .rankingVariant(request.variant())
+                    .timeToClickMs(request.timeToClickMs())
+                    .build());
+            eventIndexes.add(i);
+        }
+
+        EventLogService.ClickWriteResult written = events.isEmpty()
+                ? new EventLogService.ClickWriteResult(Set.of(), Map.of())
+                : eventLogService.logClicksNow(events);
+
+        for (int e = 0; e < events.size(); e++) {
+            ClickEvent event = events.get(e);
+            int i = eventIndexes.get(e);
+            String rejected = written.rejected().get(event.getId());
+
+            NewsController.ClickStatus status = rejected != null ? NewsController.ClickStatus.FAILED
+                    : written.queuedIds().contains(event.getId()) ? NewsController.ClickStatus.QUEUED
+                    : NewsController.ClickStatus.STORED;
+            results[i] = new NewsController.ClickResult(i, event.getArticleId(), status, rejected);
+
+            // a click ES refused for good isn't counted either, so clickCount matches the event log
+            if (status != NewsController.ClickStatus.FAILED) {
+                clickCounterService.increment(event.getArticleId());
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+
+        int[] counts = new int[NewsController.ClickStatus.values().length];
+        for (NewsController.ClickResult r : results) counts[r.status().ordinal()]++;
+        return new NewsController.ClickBatchResponse(
+                counts[NewsController.ClickStatus.STORED.ordinal()],
+                counts[NewsController.ClickStatus.QUEUED.ordinal()],
+                counts[NewsController.ClickStatus.INVALID.ordinal()],
+                counts[NewsController.ClickStatus.FAILED.ordinal()],
+                List.of(results));
+    }
+
+    private static String validateClick(NewsController.ClickRequest request) {
+        if (request == null) return "empty item";
+        if (request.articleId() == null || request.articleId().isBlank()) return "articleId is required";
+        if (request.position() != null && request.position() < 1) return "position must be >= 1";
+        if (request.timeToClickMs() != null && request.timeToClickMs() < 0) return "timeToClickMs must be >= 0";
+        return null;
+    }
+
+    // Keep original method for backward compatibility
+    public void incrementClickCount(String id) {
+        clickCounterService.increment(id);
     }
 }
\ No newline at end of file
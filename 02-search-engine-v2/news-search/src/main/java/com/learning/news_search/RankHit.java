@@ -0,0 +1,24 @@
+package com.learning.news_search;
+
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+
+import java.time.LocalDate;
+
+/**
+ * The part of a hit that re-ranking looks at. Pool queries only fetch these fields,
+ * so re-ranking 100 candidates doesn't drag 100 descriptions, authors and links along.
+ */
+public record RankHit(String id, double esScore, int clickCount, LocalDate date, String category) {
+
+    static final SourceFilter SOURCE_FILTER =
+            new FetchSourceFilter(true, new String[] {"clickCount", "date", "category"}, null);
+
+    public static RankHit from(SearchHit<NewsArticle> hit) {
+        NewsArticle article = hit.getContent();
+        return new RankHit(hit.getId(), hit.getScore(),
+                article.getClickCount() != null ? article.getClickCount() : 0,
+                article.getDate(), article.getCategory());
+    }
+}
@@ -0,0 +1,174 @@
+package com.learning.news_search;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Variant B's Java ranking, as a cascade of cheaper-to-expensive stages (see CascadeConfig):
+ * 1. retrieval: ES fetches candidatePoolSize() slim hits (timed by the caller),
+ * 2. linear: RankingService's weighted sum over every candidate,
+ * 3. ml: SimpleMLRanker (or GbdtRanker with ranking.ml-model=GBDT, once trained) re-scores
+ *    the best mlTopN of those, if ranking.ml-rerank-enabled.
+ *
+ * Stage latencies are compared against their budgets after every request: over budget
+ * shrinks that stage's pool by a quarter, under half the budget grows it by a tenth, never
+ * past the configured size.
+ */
+@Service
+public class RankingCascade {
+
+    private final RankingConfig rankingConfig;
+    private final CascadeConfig config;
+    private final RankingService rankingService;
+    private final SimpleMLRanker mlRanker;
+    private final GbdtRanker gbdtRanker;
+
+    private final Stage retrieval = new Stage("retrieval");
+    private final Stage linear = new Stage("linear");
+    private final Stage ml = new Stage("ml");
+
+    // adapted pool sizes, 0 until a stage first goes over budget
+    private final AtomicInteger candidates = new AtomicInteger();
+    private final AtomicInteger mlTopN = new AtomicInteger();
+
+    public RankingCascade(RankingConfig rankingConfig, CascadeConfig config,
+                          RankingService rankingService, SimpleMLRanker mlRanker, GbdtRanker gbdtRanker) {
+        this.rankingConfig = rankingConfig;
+        this.config = config;
+        this.rankingService = rankingService;
+        this.mlRanker = mlRanker;
+        this.gbdtRanker = gbdtRanker;
+    }
+
+    /**
+     * How many candidates the retrieval stage should fetch right now.
+     */
+    public int candidatePoolSize() {
+        return effective(candidates, rankingConfig.getReRankPoolSize());
+    }
+
+    public void recordRetrieval(long nanos) {
+        retrieval.record(nanos, config.getRetrievalBudgetMs());
+        adapt(candidates, rankingConfig.getReRankPoolSize(), config.getMinCandidates(),
+                nanos, config.getRetrievalBudgetMs());
+    }
+
+    /**
+     * Runs the linear and (if enabled) ML stages over the retrieved candidates.
+     *
+     * @param limit  The ranking must hold at least this many hits (offset + size of the page)
+     * @return Best first; the ML survivors carry click probabilities as scores, the rest
+     *         their linear scores
+     */
+    public RankingService.Ranking rank(List<RankHit> hits, String categoryFilter, int limit) {
+        boolean useMl = rankingConfig.isMlRerankEnabled();
+        int topN = useMl ? effective(mlTopN, config.getMlTopN()) : 0;
+
+        long start = System.nanoTime();
+        RankingService.Ranking ranking = rankingService.rank(hits, categoryFilter, Math.max(limit, topN));
+        long linearNanos = System.nanoTime() - start;
+        linear.record(linearNanos, config.getLinearBudgetMs());
+        // linear cost grows with the candidate count, so it steers the same pool as retrieval
+        adapt(candidates, rankingConfig.getReRankPoolSize(), config.getMinCandidates(),
+                linearNanos, config.getLinearBudgetMs());
+
+        int m = Math.min(topN, ranking.hits().size());
+        if (m == 0) {
+            return ranking;
+        }
+
+        start = System.nanoTime();
+        RankingService.Ranking reRanked = mlReRank(ranking, m);
+        long mlNanos = System.nanoTime() - start;
+        ml.record(mlNanos, config.getMlBudgetMs());
+        adapt(mlTopN, config.getMlTopN(), config.getMinMlTopN(), mlNanos, config.getMlBudgetMs());
+        return reRanked;
+    }
+
+    // re-orders the first m hits by the model's score, the tail keeps its linear order
+    private RankingService.Ranking mlReRank(RankingService.Ranking ranking, int m) {
+        int width = RankingService.FEATURE_COUNT;
+        // the feature matrix is already row-major, best first: score its first m rows in one pass
+        double[] probabilities = rankingConfig.getMlModel() == RankingConfig.MlModel.GBDT && gbdtRanker.isTrained()
+                ? gbdtRanker.score(ranking.features(), width, m)
+                : mlRanker.score(ranking.features(), width, m);
+
+        Integer[] order = new Integer[m];
+        for (int i = 0; i < m; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(probabilities[b], probabilities[a])); // stable
+
+        int n = ranking.hits().size();
+        List<RankHit> hits = new ArrayList<>(n);
+        double[] scores = ranking.scores().clone();
+        double[] rankedFeatures = ranking.features().clone();
+        for (int i = 0; i < m; i++) {
+            int from = order[i];
+            hits.add(ranking.hits().get(from));
+            scores[i] = probabilities[from];
+            System.arraycopy(ranking.features(), from * width, rankedFeatures, i * width, width);
+        }
+        hits.addAll(ranking.hits().subList(m, n));
+        return new RankingService.Ranking(hits, scores, rankedFeatures);
+    }
+
+    private int effective(AtomicInteger adapted, int configured) {
+        int size = adapted.get();
+        return size == 0 ? configured : Math.min(size, configured);
+    }
+
+    private void adapt(AtomicInteger size, int configured, int floor, long nanos, long budgetMs) {
+        if (!config.isAdaptive()) return;
+
+        long budgetNanos = budgetMs * 1_000_000;
+        int min = Math.min(floor, configured);
+        size.updateAndGet(current -> {
+            int cur = current == 0 ? configured : Math.min(current, configured);
+            if (nanos > budgetNanos) return Math.max(min, cur * 3 / 4);
+            if (nanos < budgetNanos / 2) return Math.min(configured, cur + Math.max(1, cur / 10));
+            return cur;
+        });
+    }
+
+    public CascadeStats stats() {
+        return new CascadeStats(rankingConfig.isMlRerankEnabled(), List.of(
+                retrieval.stats(config.getRetrievalBudgetMs(), candidatePoolSize()),
+                linear.stats(config.getLinearBudgetMs(), candidatePoolSize()),
+                ml.stats(config.getMlBudgetMs(), effective(mlTopN, config.getMlTopN()))));
+    }
+
+    // latency bookkeeping for one stage; avgMs is an exponential moving average
+    private static final class Stage {
+        private final String name;
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private volatile double avgMs = -1;
+        private volatile double lastMs;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long budgetMs) {
+            double ms = nanos / 1_000_000.0;
+            runs.increment();
+            if (ms > budgetMs) overBudget.increment();
+            lastMs = ms;
+            double avg = avgMs;
+            avgMs = avg < 0 ? ms : avg * 0.9 + ms * 0.1; // racy, but it's only a gauge
+        }
+
+        StageStats stats(long budgetMs, int poolSize) {
+            return new StageStats(name, budgetMs, Math.max(avgMs, 0), lastMs, runs.sum(), overBudget.sum(), poolSize);
+        }
+    }
+
+    public record StageStats(String stage, long budgetMs, double avgMs, double lastMs,
+                             long runs, long overBudget, int poolSize) {}
+
+    public record CascadeStats(boolean mlEnabled, List<StageStats> stages) {}
+}
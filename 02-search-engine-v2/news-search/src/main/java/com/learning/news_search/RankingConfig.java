@@ -35,9 +35,30 @@ public class RankingConfig {
     // Max documents to fetch from ES before re-ranking
     private int reRankPoolSize = 100;
 
+    // Upper bound for the pool when a user pages past the first one
+    private int reRankMaxPoolSize = 1000;
+
+    // Where variant B re-ranks: JAVA pulls the pool and scores it here, RESCORE runs the same
+    // formula as an Elasticsearch rescore script and only transfers the requested page
+    private ReRankMode reRankMode = ReRankMode.JAVA;
+
+    public enum ReRankMode { JAVA, RESCORE }
+
     // Enable/disable ML re-ranking
     private boolean mlRerankEnabled = false;
 
+    // Which model the ML stage uses. GBDT falls back to LOGISTIC until a tree model is trained
+    private MlModel mlModel = MlModel.LOGISTIC;
+
+    public enum MlModel { LOGISTIC, GBDT }
+
+    // Per-article feature inputs (clicks, date, category) cached for training / feature lookups
+    private int featureCacheMaxEntries = 100_000;
+    private int featureCacheTtlSeconds = 600;
+
+    // Article ids per multi-get when features have to be fetched
+    private int featureFetchBatchSize = 1000;
+
     // Getters and Setters
     public double getBm25Weight() { return bm25Weight; }
     public void setBm25Weight(double bm25Weight) { this.bm25Weight = bm25Weight; }
@@ -60,6 +81,24 @@ public class RankingConfig {
     public int getReRankPoolSize() { return reRankPoolSize; }
     public void setReRankPoolSize(int reRankPoolSize) { this.reRankPoolSize = reRankPoolSize; }
 
+    public int getReRankMaxPoolSize() { return reRankMaxPoolSize; }
+    public void setReRankMaxPoolSize(int reRankMaxPoolSize) { this.reRankMaxPoolSize = reRankMaxPoolSize; }
+
+    public ReRankMode getReRankMode() { return reRankMode; }
+    public void setReRankMode(ReRankMode reRankMode) { this.reRankMode = reRankMode; }
+
     public boolean isMlRerankEnabled() { return mlRerankEnabled; }
     public void setMlRerankEnabled(boolean mlRerankEnabled) { this.mlRerankEnabled = mlRerankEnabled; }
+
+    public MlModel getMlModel() { return mlModel; }
+    public void setMlModel(MlModel mlModel) { this.mlModel = mlModel; }
+
+    public int getFeatureCacheMaxEntries() { return featureCacheMaxEntries; }
+    public void setFeatureCacheMaxEntries(int featureCacheMaxEntries) { this.featureCacheMaxEntries = featureCacheMaxEntries; }
+
+    public int getFeatureCacheTtlSeconds() { return featureCacheTtlSeconds; }
+    public void setFeatureCacheTtlSeconds(int featureCacheTtlSeconds) { this.featureCacheTtlSeconds = featureCacheTtlSeconds; }
+
+    public int getFeatureFetchBatchSize() { return featureFetchBatchSize; }
+    public void setFeatureFetchBatchSize(int featureFetchBatchSize) { this.featureFetchBatchSize = featureFetchBatchSize; }
 }
@@ -5,8 +5,10 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Core ranking service implementing:
@@ -17,6 +19,26 @@ import java.util.List;
 @Service
 public class RankingService {
 
+    /**
+     * Popularity + freshness part of the weighted sum, as a painless script for the
+     * Elasticsearch rescore mode. Must stay in line with computePopularityScore and
+     * computeFreshnessScore below. offset keeps the script score non-negative (ES requires
+     * it); a constant shift doesn't change the order.
+     */
+    static final String RESCORE_SCRIPT = """
+            double popularity = 0;
+            if (doc['clickCount'].size() > 0) {
+              popularity = Math.log1p(doc['clickCount'].value) / Math.log1p(params.maxClicks);
+            }
+            double freshness = 0.1;
+            if (doc['date'].size() > 0) {
+              long ageInDays = params.today - doc['date'].value.toInstant().toEpochMilli() / 86400000L;
+              if (ageInDays < 0) ageInDays = 0;
+              freshness = 1.0 / (1.0 + ageInDays / params.decayDays);
+            }
+            return params.offset + params.popularityWeight * popularity + params.freshnessWeight * freshness;
+            """;
+
     private final RankingConfig config;
 
     public RankingService(RankingConfig config) {
@@ -33,8 +55,22 @@ public class RankingService {
      */
     public List<NewsArticle> reRank(List<NewsArticle> articles, List<Double> esScores,
                                     String categoryFilter) {
+        List<NewsArticle> reRanked = new ArrayList<>();
+        for (ScoredArticle sa : score(articles, esScores, categoryFilter)) {
+            reRanked.add(sa.getArticle());
+        }
+        return reRanked;
+    }
+
+    /**
+     * Same as reRank, but keeps the features and final score of every article.
+     *
+     * @return Scored articles, best first
+     */
+    public List<ScoredArticle> score(List<NewsArticle> articles, List<Double> esScores,
+                                     String categoryFilter) {
         if (articles.isEmpty()) {
-            return articles;
+            return new ArrayList<>();
         }
 
         // Normalize ES scores to 0-1 range
@@ -86,22 +122,282 @@ public class RankingService {
         // Sort by final score (descending)
         Collections.sort(scoredArticles);
 
-        // Extract articles in new order
-        List<NewsArticle> reRanked = new ArrayList<>();
-        for (ScoredArticle sa : scoredArticles) {
-            reRanked.add(sa.getArticle());
+        return scoredArticles;
+    }
+
+    /**
+     * Re-rank slim pool hits (see RankHit) with the same formula as reRank.
+     * Ties keep their ES order, like reRank's stable sort.
+     *
+     * @return The hits best first, with their final scores and features
+     */
+    public Ranking rank(List<RankHit> hits, String categoryFilter) {
+        return rank(hits, categoryFilter, hits.size());
+    }
+
+    /**
+     * Same as rank(hits, categoryFilter), but only the best `limit` hits are selected and
+     * ordered (e.g. offset + size of the page), the rest of the pool is never sorted.
+     *
+     * Features live in per-thread primitive arrays (one per feature), the normalization
+     * bounds are collected while loading them, and only index arrays get ordered (a bounded
+     * heap for a small limit, a merge sort otherwise), so a call allocates nothing but its result.
+     */
+    public Ranking rank(List<RankHit> hits, String categoryFilter, int limit) {
+        int n = hits.size();
+        int k = Math.min(limit, n);
+        if (k <= 0) {
+            return new Ranking(List.of(), new double[0], new double[0]);
         }
 
-        return reRanked;
+        Buffers buf = BUFFERS.get();
+        buf.ensureCapacity(n);
+        double[] esScores = buf.esScores;
+        int[] clicks = buf.clicks;
+        double[] popularity = buf.popularity;
+        double[] freshness = buf.freshness;
+        double[] categoryBoosts = buf.categoryBoosts;
+        double[] scores = buf.scores;
+
+        // load features + normalization bounds in one pass
+        long today = LocalDate.now().toEpochDay();
+        double decayDays = config.getFreshnessDecayDays();
+        boolean filtered = categoryFilter != null && !categoryFilter.isEmpty();
+        double categoryMatchBoost = config.getCategoryMatchBoost();
+
+        double minEsScore = Double.MAX_VALUE, maxEsScore = -Double.MAX_VALUE;
+        int maxClicks = 0;
+        for (int i = 0; i < n; i++) {
+            RankHit hit = hits.get(i);
+            double esScore = hit.esScore();
+            esScores[i] = esScore;
+            if (esScore < minEsScore) minEsScore = esScore;
+            if (esScore > maxEsScore) maxEsScore = esScore;
+
+            clicks[i] = hit.clickCount();
+            if (clicks[i] > maxClicks) maxClicks = clicks[i];
+
+            // same as computeFreshnessScore / computeCategoryBoost
+            if (hit.date() == null) {
+                freshness[i] = 0.1;
+            } else {
+                long ageInDays = Math.max(0, today - hit.date().toEpochDay());
+                freshness[i] = 1.0 / (1.0 + ageInDays / decayDays);
+            }
+            categoryBoosts[i] = filtered && categoryFilter.equalsIgnoreCase(hit.category())
+                    ? categoryMatchBoost : 1.0;
+        }
+
+        double esRange = maxEsScore - minEsScore;
+        if (esRange == 0) esRange = 1.0;
+        if (maxClicks == 0) maxClicks = 1;
+        double logMaxClicks = Math.log1p(maxClicks);
+
+        double w1 = config.getBm25Weight();
+        double w2 = config.getPopularityWeight();
+        double w3 = config.getFreshnessWeight();
+        for (int i = 0; i < n; i++) {
+            esScores[i] = (esScores[i] - minEsScore) / esRange; // normalized in place
+            popularity[i] = Math.log1p(clicks[i]) / logMaxClicks;
+            scores[i] = (w1 * esScores[i] + w2 * popularity[i] + w3 * freshness[i]) * categoryBoosts[i];
+        }
+
+        RankHit[] ranked = new RankHit[k];
+        double[] rankedScores = new double[k];
+        double[] rankedFeatures = new double[k * FEATURE_COUNT];
+        int[] order = buf.order;
+        if (k * 4 < n) {
+            // small page out of a big pool: heap with the worst of the best k at the root
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                if (size < k) {
+                    order[size] = i;
+                    siftUp(order, size++, scores);
+                } else if (ranksBefore(i, order[0], scores)) {
+                    order[0] = i;
+                    siftDown(order, size, scores);
+                }
+            }
+            // popping yields worst first, so fill the result from the back
+            while (size > 0) {
+                int best = order[0];
+                order[0] = order[--size];
+                siftDown(order, size, scores);
+                ranked[size] = hits.get(best);
+                rankedScores[size] = scores[best];
+                buf.copyFeatures(best, rankedFeatures, size);
+            }
+        } else {
+            // most of the pool is wanted anyway: just sort it
+            for (int i = 0; i < n; i++) order[i] = i;
+            sort(order, buf.scratch, n, scores);
+            for (int i = 0; i < k; i++) {
+                ranked[i] = hits.get(order[i]);
+                rankedScores[i] = scores[order[i]];
+                buf.copyFeatures(order[i], rankedFeatures, i);
+            }
+        }
+        return new Ranking(Arrays.asList(ranked), rankedScores, rankedFeatures);
+    }
+
+    // higher score first; on a tie the earlier (higher ES score) hit wins
+    private static boolean ranksBefore(int a, int b, double[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
     }
 
+    // bottom-up merge sort of indices by ranksBefore; insertion sort for the first runs
+    private static void sort(int[] order, int[] scratch, int n, double[] scores) {
+        final int run = 16;
+        for (int lo = 0; lo < n; lo += run) {
+            int hi = Math.min(lo + run, n);
+            for (int i = lo + 1; i < hi; i++) {
+                int node = order[i];
+                int j = i - 1;
+                while (j >= lo && ranksBefore(node, order[j], scores)) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = node;
+            }
+        }
+
+        int[] src = order, dst = scratch;
+        for (int width = run; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, out = lo;
+                while (i < mid && j < hi) {
+                    dst[out++] = ranksBefore(src[j], src[i], scores) ? src[j++] : src[i++];
+                }
+                while (i < mid) dst[out++] = src[i++];
+                while (j < hi) dst[out++] = src[j++];
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != order) System.arraycopy(src, 0, order, 0, n);
+    }
+
+    private static void siftUp(int[] heap, int pos, double[] scores) {
+        int node = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!ranksBefore(heap[parent], node, scores)) break;
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = node;
+    }
+
+    private static void siftDown(int[] heap, int size, double[] scores) {
+        if (size == 0) return;
+        int node = heap[0];
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) break;
+            if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], scores)) child++;
+            if (!ranksBefore(node, heap[child], scores)) break;
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = node;
+    }
+
+    // struct-of-arrays scratch space for rank(), one set per request thread
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static final class Buffers {
+        double[] esScores = new double[0];
+        int[] clicks = new int[0];
+        double[] popularity = new double[0];
+        double[] freshness = new double[0];
+        double[] categoryBoosts = new double[0];
+        double[] scores = new double[0];
+        int[] order = new int[0];
+        int[] scratch = new int[0];
+
+        void ensureCapacity(int n) {
+            if (esScores.length >= n) return;
+            int capacity = Math.max(n, 128);
+            esScores = new double[capacity];
+            clicks = new int[capacity];
+            popularity = new double[capacity];
+            freshness = new double[capacity];
+            categoryBoosts = new double[capacity];
+            scores = new double[capacity];
+            order = new int[capacity];
+            scratch = new int[capacity];
+        }
+
+        // row `row` of a flat [esScore, popularity, freshness, categoryBoost] matrix
+        void copyFeatures(int hit, double[] out, int row) {
+            int base = row * FEATURE_COUNT;
+            out[base] = esScores[hit];
+            out[base + 1] = popularity[hit];
+            out[base + 2] = freshness[hit];
+            out[base + 3] = categoryBoosts[hit];
+        }
+    }
+
+    // features per hit, same order as ScoredArticle.getFeatureVector()
+    public static final int FEATURE_COUNT = 4;
+
+    /**
+     * @param features  Row-major, FEATURE_COUNT values per hit: normalized ES score,
+     *                  popularity, freshness, category boost
+     */
+    public record Ranking(List<RankHit> hits, double[] scores, double[] features) {}
+
+    /**
+     * Weights and script params for re-ranking a pool inside Elasticsearch with
+     * rescore (score_mode total):
+     *
+     *   final = queryWeight * esScore + rescoreQueryWeight * script
+     *         = categoryBoost * (w1 * esScore / esRange + w2 * popularity + w3 * freshness)
+     *
+     * which is reRank's score up to a constant (the min-max shift of the ES score and the
+     * script offset), so both give the same order. The category filter is a term filter,
+     * so every pool doc gets the same category boost.
+     *
+     * @param minEsScore  Lowest ES score in the pool
+     * @param maxEsScore  Highest ES score in the pool
+     * @param maxClicks   Highest click count in the pool
+     */
+    public RescoreSpec rescoreSpec(double minEsScore, double maxEsScore, int maxClicks,
+                                   String categoryFilter) {
+        double esRange = maxEsScore - minEsScore;
+        if (esRange == 0) esRange = 1.0;
+        if (maxClicks == 0) maxClicks = 1;
+
+        double categoryBoost = (categoryFilter == null || categoryFilter.isEmpty())
+                ? 1.0 : config.getCategoryMatchBoost();
+
+        Map<String, Object> params = Map.of(
+                "maxClicks", maxClicks,
+                "today", LocalDate.now().toEpochDay(),
+                "decayDays", config.getFreshnessDecayDays(),
+                "popularityWeight", config.getPopularityWeight(),
+                "freshnessWeight", config.getFreshnessWeight(),
+                "offset", Math.abs(config.getPopularityWeight()) + Math.abs(config.getFreshnessWeight())
+        );
+        return new RescoreSpec((float) (categoryBoost * config.getBm25Weight() / esRange),
+                (float) categoryBoost, params);
+    }
+
+    public record RescoreSpec(float queryWeight, float rescoreQueryWeight, Map<String, Object> params) {}
+
     /**
      * Compute popularity score (normalized to 0-1).
      * Uses log scale to prevent viral articles from dominating.
      */
     private double computePopularityScore(NewsArticle article, int maxClicks) {
         int clicks = article.getClickCount() != null ? article.getClickCount() : 0;
+        return computePopularityScore(clicks, maxClicks);
+    }
 
+    private double computePopularityScore(int clicks, int maxClicks) {
         // Log scale: log(1 + clicks) / log(1 + maxClicks)
         return Math.log1p(clicks) / Math.log1p(maxClicks);
     }
@@ -116,11 +412,15 @@ public class RankingService {
      * - 90-day old article: ~0.25
      */
     private double computeFreshnessScore(NewsArticle article, LocalDate today) {
-        if (article.getDate() == null) {
+        return computeFreshnessScore(article.getDate(), today);
+    }
+
+    private double computeFreshnessScore(LocalDate date, LocalDate today) {
+        if (date == null) {
             return 0.1; // Default for articles without dates
         }
 
-        long ageInDays = ChronoUnit.DAYS.between(article.getDate(), today);
+        long ageInDays = ChronoUnit.DAYS.between(date, today);
         if (ageInDays < 0) ageInDays = 0; // Future dates treated as today
 
         return 1.0 / (1.0 + ageInDays / config.getFreshnessDecayDays());
@@ -131,11 +431,15 @@ public class RankingService {
      * Returns boost multiplier if category matches filter, else 1.0.
      */
     private double computeCategoryBoost(NewsArticle article, String categoryFilter) {
+        return computeCategoryBoost(article.getCategory(), categoryFilter);
+    }
+
+    private double computeCategoryBoost(String category, String categoryFilter) {
         if (categoryFilter == null || categoryFilter.isEmpty()) {
             return 1.0; // No filter, no boost
         }
 
-        if (categoryFilter.equalsIgnoreCase(article.getCategory())) {
+        if (categoryFilter.equalsIgnoreCase(category)) {
             return config.getCategoryMatchBoost();
         }
 
@@ -147,11 +451,23 @@ public class RankingService {
      */
     public double[] extractFeatures(NewsArticle article, double esScore,
                                     String categoryFilter, LocalDate today, int maxClicks) {
-        double normalizedEsScore = esScore; // Assume already normalized
-        double popularityScore = computePopularityScore(article, maxClicks);
-        double freshnessScore = computeFreshnessScore(article, today);
-        double categoryBoost = computeCategoryBoost(article, categoryFilter);
+        double[] out = new double[FEATURE_COUNT];
+        extractFeatures(new ArticleFeatureStore.Features(
+                        article.getClickCount() != null ? article.getClickCount() : 0,
+                        article.getDate(), article.getCategory()),
+                esScore, categoryFilter, today, maxClicks, out);
+        return out;
+    }
 
-        return new double[] { normalizedEsScore, popularityScore, freshnessScore, categoryBoost };
+    /**
+     * Same features from the cached per-article inputs, written into `out` (FEATURE_COUNT
+     * values) so a training export doesn't allocate per example.
+     */
+    public void extractFeatures(ArticleFeatureStore.Features article, double esScore,
+                                String categoryFilter, LocalDate today, int maxClicks, double[] out) {
+        out[0] = esScore; // Assume already normalized
+        out[1] = computePopularityScore(article.clickCount(), Math.max(1, maxClicks));
+        out[2] = computeFreshnessScore(article.date(), today);
+        out[3] = computeCategoryBoost(article.category(), categoryFilter);
     }
 }
\ No newline at end of file
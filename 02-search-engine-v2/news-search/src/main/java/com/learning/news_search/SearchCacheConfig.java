@@ -0,0 +1,48 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process caches for /api/news/v2/search: whole responses, and the re-ranked
+ * variant B pools that later pages are cut from.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "search-cache")
+public class SearchCacheConfig {
+    private boolean enabled = true;
+
+    // Max cached responses (one per keyword/category/variant/page)
+    private int maxEntries = 10_000;
+
+    // How long a response may be served from the cache
+    private long ttlSeconds = 60;
+
+    // Drop cached responses that show an article whose click count was just updated
+    private boolean invalidateOnClicks = true;
+
+    // Max re-ranked variant B pools (one per keyword/category/session)
+    private int poolMaxEntries = 5_000;
+
+    // How long a session can page through the same re-ranked pool
+    private long poolTtlSeconds = 300;
+
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxEntries() { return maxEntries; }
+    public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+    public long getTtlSeconds() { return ttlSeconds; }
+    public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+
+    public boolean isInvalidateOnClicks() { return invalidateOnClicks; }
+    public void setInvalidateOnClicks(boolean invalidateOnClicks) { this.invalidateOnClicks = invalidateOnClicks; }
+
+    public int getPoolMaxEntries() { return poolMaxEntries; }
+    public void setPoolMaxEntries(int poolMaxEntries) { this.poolMaxEntries = poolMaxEntries; }
+
+    public long getPoolTtlSeconds() { return poolTtlSeconds; }
+    public void setPoolTtlSeconds(long poolTtlSeconds) { this.poolTtlSeconds = poolTtlSeconds; }
+}
@@ -31,6 +31,9 @@ public class SearchEvent {
     @Field(type = FieldType.Keyword)
     private List<String> resultIds; // Top results shown to user
 
+    @Field(type = FieldType.Object, enabled = false)
+    private ImpressionFeatures features; // Variant B only: ranking features of resultIds, in _source only
+
     @Field(type = FieldType.Integer)
     private Integer resultCount;
 
@@ -74,6 +77,11 @@ public class SearchEvent {
             return this;
         }
 
+        public Builder features(ImpressionFeatures features) {
+            event.features = features;
+            return this;
+        }
+
         public Builder resultCount(Integer resultCount) {
             event.resultCount = resultCount;
             return this;
@@ -110,6 +118,9 @@ public class SearchEvent {
     public List<String> getResultIds() { return resultIds; }
     public void setResultIds(List<String> resultIds) { this.resultIds = resultIds; }
 
+    public ImpressionFeatures getFeatures() { return features; }
+    public void setFeatures(ImpressionFeatures features) { this.features = features; }
+
     public Integer getResultCount() { return resultCount; }
     public void setResultCount(Integer resultCount) { this.resultCount = resultCount; }
 
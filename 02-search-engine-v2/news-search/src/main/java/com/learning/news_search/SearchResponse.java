@@ -1,10 +1,32 @@
 package com.learning.news_search;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 import java.util.Map;
 
 // A simple container for our clean data
 public record SearchResponse(
         List<NewsArticle> articles,
-        Map<String, Long> categoryCounts
-) {}
\ No newline at end of file
+        Map<String, Long> categoryCounts,
+        String suggestion, // "did you mean" for zero-hit queries, otherwise null
+        Map<String, Map<String, List<String>>> highlights, // article id -> field -> highlighted fragments
+        @JsonIgnore ImpressionFeatures features // what variant B ranked the articles by, logged with the search
+) {
+    public SearchResponse(List<NewsArticle> articles, Map<String, Long> categoryCounts) {
+        this(articles, categoryCounts, null, Map.of(), null);
+    }
+
+    public SearchResponse(List<NewsArticle> articles, Map<String, Long> categoryCounts,
+                          Map<String, Map<String, List<String>>> highlights) {
+        this(articles, categoryCounts, null, highlights, null);
+    }
+
+    public SearchResponse withSuggestion(String suggestion) {
+        return new SearchResponse(articles, categoryCounts, suggestion, highlights, features);
+    }
+
+    public SearchResponse withFeatures(ImpressionFeatures features) {
+        return new SearchResponse(articles, categoryCounts, suggestion, highlights, features);
+    }
+}
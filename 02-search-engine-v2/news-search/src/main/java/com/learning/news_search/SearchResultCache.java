@@ -0,0 +1,158 @@
+package com.learning.news_search;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches whole SearchResponses for the A/B search endpoint.
+ *
+ * Keyed by the normalized keyword plus everything else that changes the result: category,
+ * variant, requested fields, page, size and sort. Pages cut from a per-session pool (variant B
+ * in JAVA mode) also carry the session, so one session never gets another's page or logs
+ * another's impression features. Entries go away after the TTL, on any ranking config / model
+ * change, and (optionally) when one of the articles they show gets new clicks, since click
+ * counts feed both rankings. Click invalidation goes through an article id -> keys index
+ * kept in step with the cache, so it only touches the responses that show a clicked article.
+ *
+ * Variant B also keeps its re-ranked candidate pool (ids, scores and features only) per
+ * keyword/category/session, so paging through it doesn't re-run the pool query and re-rank.
+ * Pools are not dropped on clicks: a session should see the order it started paging in.
+ */
+@Service
+public class SearchResultCache {
+
+    private final SearchCacheConfig config;
+    private final TinyLfuCache<Key, SearchResponse> cache;
+    private final TinyLfuCache<PoolKey, RankedPool> pools;
+    // article id -> keys of the cached responses showing it
+    private final Map<String, Set<Key>> keysByArticle = new ConcurrentHashMap<>();
+
+    public SearchResultCache(SearchCacheConfig config) {
+        this.config = config;
+        this.cache = new TinyLfuCache<>(config.getMaxEntries(), config.getTtlSeconds() * 1000,
+                this::index, this::unindex);
+        this.pools = new TinyLfuCache<>(config.getPoolMaxEntries(), config.getPoolTtlSeconds() * 1000);
+    }
+
+    public record Key(String keyword, String category, String variant, String sessionId,
+                      String fields, int page, int size, String sort) {}
+
+    public record PoolKey(String keyword, String category, String sessionId) {}
+
+    /**
+     * Re-ranked article ids, best first, with their final scores.
+     * esScores and features (row-major, RankingService.FEATURE_COUNT per id) are what the
+     * ranking saw, kept as floats so the shown page can be logged with them.
+     * requested is how many docs the pool query asked for; fewer came back if exhausted.
+     */
+    public record RankedPool(List<String> ids, double[] scores, float[] esScores, float[] features,
+                             Map<String, Long> categoryCounts, int requested, boolean exhausted) {
+
+        public int size() {
+            return ids.size();
+        }
+
+        // true if a page ending at `end` is past this pool and a bigger one could still fill it
+        public boolean needsMore(int end) {
+            return end > ids.size() && !exhausted;
+        }
+    }
+
+    /**
+     * sessionId is only for responses that depend on the session (pages of a session's pool);
+     * pass null when the response is the same for everyone.
+     */
+    public Key key(String keyword, String category, String variant, String sessionId,
+                   FieldProjection projection, Pageable pageable) {
+        return new Key(normalize(keyword),
+                category == null ? "" : category,
+                variant,
+                sessionId == null ? "" : sessionId,
+                projection.toString(),
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                pageable.getSort().toString());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public SearchResponse get(Key key) {
+        return config.isEnabled() ? cache.get(key) : null;
+    }
+
+    public void put(Key key, SearchResponse response) {
+        if (config.isEnabled()) cache.put(key, response);
+    }
+
+    public PoolKey poolKey(String keyword, String category, String sessionId) {
+        return new PoolKey(normalize(keyword),
+                category == null ? "" : category,
+                sessionId == null ? "" : sessionId);
+    }
+
+    public RankedPool getPool(PoolKey key) {
+        return config.isEnabled() ? pools.get(key) : null;
+    }
+
+    public void putPool(PoolKey key, RankedPool pool) {
+        if (config.isEnabled()) pools.put(key, pool);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        pools.invalidateAll();
+    }
+
+    /**
+     * Called after click counts were written: responses showing those articles are stale.
+     */
+    public void invalidateArticles(Set<String> articleIds) {
+        if (!config.isInvalidateOnClicks() || articleIds.isEmpty()) return;
+        for (String id : articleIds) {
+            Set<Key> keys = keysByArticle.remove(id);
+            if (keys == null) continue;
+            for (Key key : keys) {
+                cache.invalidate(key); // a no-op if it already went
+            }
+        }
+    }
+
+    // put and removal listeners of the response cache: they run under its monitor, so the
+    // index changes with the cache and every key that leaves the cache leaves the index
+    private void index(Key key, SearchResponse response) {
+        for (NewsArticle article : response.articles()) {
+            keysByArticle.computeIfAbsent(article.getId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void unindex(Key key, SearchResponse response) {
+        for (NewsArticle article : response.articles()) {
+            keysByArticle.computeIfPresent(article.getId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    public SearchCacheStats stats() {
+        return new SearchCacheStats(cache.stats(), pools.stats(), keysByArticle.size());
+    }
+
+    // indexedArticles: articles shown by at least one cached response (the click index)
+    public record SearchCacheStats(TinyLfuCache.CacheStats responses, TinyLfuCache.CacheStats pools,
+                                   int indexedArticles) {}
+
+    // "  Climate   Change " and "climate change" are the same query
+    static String normalize(String keyword) {
+        if (keyword == null) return "";
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
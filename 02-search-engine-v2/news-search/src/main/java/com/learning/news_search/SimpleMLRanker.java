@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Simple Logistic Regression for Learning-to-Rank.
@@ -13,14 +14,17 @@ import java.util.List;
  * <p>
  * This is a basic implementation for learning purposes.
  * In production, you'd use XGBoost, LightGBM, or a neural network.
+ * <p>
+ * The weights live in an immutable Model snapshot behind an AtomicReference. Training and
+ * setWeights build a new snapshot and publish it in one step, so scoring never locks and a
+ * batch is always scored with one consistent set of weights.
  */
 @Component
 public class SimpleMLRanker {
 
     // Model weights (initialized with reasonable defaults)
-    private double[] weights = {1.0, 0.3, 0.2, 0.5};
-    private double bias = 0.0;
-    private double learningRate = 0.01;
+    private final AtomicReference<Model> model = new AtomicReference<>(
+            new Model(new double[] {1.0, 0.3, 0.2, 0.5}, 0.0));
 
     private static final String MODEL_FILE = "ltr_model.bin";
 
@@ -34,77 +38,111 @@ public class SimpleMLRanker {
      * where z = w1*f1 + w2*f2 + ... + bias
      */
     public double predict(double[] features) {
-        if (features.length != weights.length) {
+        return model.get().predict(features);
+    }
+
+    /**
+     * Click probabilities for `rows` feature vectors stored row-major in one flat array
+     * (e.g. RankingService.Ranking.features()), in a single pass with one model snapshot.
+     *
+     * @param width  Features per row, must match the model
+     * @param out    Receives one probability per row; must hold at least `rows` values
+     */
+    public void score(double[] features, int width, int rows, double[] out) {
+        Model m = model.get();
+        int n = m.weights.length;
+        if (width != n || features.length < rows * n) {
             throw new IllegalArgumentException(
-                    "Expected " + weights.length + " features, got " + features.length);
+                    "Expected " + rows + " x " + n + " features, got " + features.length + " with width " + width);
         }
 
-        double z = bias;
-        for (int i = 0; i < features.length; i++) {
-            z += weights[i] * features[i];
+        double[] w = m.weights;
+        double bias = m.bias;
+        if (n == 4) {
+            // the usual feature set: unrolled, no inner loop
+            double w0 = w[0], w1 = w[1], w2 = w[2], w3 = w[3];
+            for (int r = 0, base = 0; r < rows; r++, base += 4) {
+                double z = bias + w0 * features[base] + w1 * features[base + 1]
+                        + w2 * features[base + 2] + w3 * features[base + 3];
+                out[r] = 1.0 / (1.0 + Math.exp(-z));
+            }
+            return;
         }
+        for (int r = 0, base = 0; r < rows; r++, base += n) {
+            double z = bias;
+            for (int i = 0; i < n; i++) {
+                z += w[i] * features[base + i];
+            }
+            out[r] = 1.0 / (1.0 + Math.exp(-z));
+        }
+    }
+
+    public double[] score(double[] features, int width, int rows) {
+        double[] out = new double[rows];
+        score(features, width, rows, out);
+        return out;
+    }
 
-        // Sigmoid
-        return 1.0 / (1.0 + Math.exp(-z));
+    public double[] score(double[][] features) {
+        Model m = model.get();
+        double[] out = new double[features.length];
+        for (int r = 0; r < features.length; r++) {
+            out[r] = m.predict(features[r]);
+        }
+        return out;
     }
 
     /**
-     * Train the model on labeled examples.
-     * Uses gradient descent on log loss.
+     * Train the model on labeled examples with parallel mini-batch gradient descent on log
+     * loss, starting from the current weights. Stops early once the held-out loss stalls and
+     * publishes the best weights seen, unless setWeights replaced the weights training started
+     * from in the meantime: manual weights win, and the run comes back unpublished.
      *
-     * @param examples List of (features, label) pairs
-     * @param epochs   Number of training passes
+     * @param train     Training examples, read sequentially once per epoch
+     * @param holdout   Held-out examples, scored after every epoch
+     * @param maxEpochs Upper bound on training passes
+     * @param listener  Called after every epoch (progress reporting)
      */
-    public void train(List<TrainingPair> examples, int epochs) {
-        System.out.println("Training LTR model on " + examples.size() + " examples...");
-
-        for (int epoch = 0; epoch < epochs; epoch++) {
-            double totalLoss = 0.0;
-
-            for (TrainingPair example : examples) {
-                double[] features = example.features();
-                int label = example.label();
-
-                // Forward pass
-                double prediction = predict(features);
-
-                // Compute log loss
-                double loss = -label * Math.log(prediction + 1e-10)
-                        - (1 - label) * Math.log(1 - prediction + 1e-10);
-                totalLoss += loss;
-
-                // Backward pass (gradient descent)
-                double error = prediction - label;
-
-                for (int i = 0; i < weights.length; i++) {
-                    weights[i] -= learningRate * error * features[i];
-                }
-                bias -= learningRate * error;
-            }
-
-            if (epoch % 10 == 0) {
-                double avgLoss = totalLoss / examples.size();
-                System.out.printf("Epoch %d: avg loss = %.4f%n", epoch, avgLoss);
-            }
+    public synchronized TrainingRun train(FeatureFile train, FeatureFile holdout, int maxEpochs,
+                                          TrainingConfig config, MiniBatchTrainer.EpochListener listener)
+            throws IOException, InterruptedException {
+        // train a private copy; requests keep scoring with the published model meanwhile
+        Model start = model.get();
+        MiniBatchTrainer.Result result;
+        try (MiniBatchTrainer trainer = new MiniBatchTrainer(config)) {
+            result = trainer.train(train, holdout, start.weights, start.bias, maxEpochs, listener);
         }
 
-        System.out.println("Training complete. Final weights: ");
-        System.out.printf("  esScore: %.4f%n", weights[0]);
-        System.out.printf("  popularity: %.4f%n", weights[1]);
-        System.out.printf("  freshness: %.4f%n", weights[2]);
-        System.out.printf("  categoryBoost: %.4f%n", weights[3]);
-        System.out.printf("  bias: %.4f%n", bias);
+        // per-epoch progress goes to the listener (the training job's status)
+        double[] weights = result.weights();
+        System.out.printf("LTR training on %d examples: %d epochs (best %d), weights esScore %.4f, "
+                        + "popularity %.4f, freshness %.4f, categoryBoost %.4f, bias %.4f%n",
+                train.rows(), result.epochs(), result.bestEpoch(),
+                weights[0], weights[1], weights[2], weights[3], result.bias());
 
+        if (!model.compareAndSet(start, new Model(weights, result.bias()))) {
+            return new TrainingRun(result, false);
+        }
         saveModel();
+        return new TrainingRun(result, true);
     }
 
+    // published is false when the weights were set by hand while training ran
+    public record TrainingRun(MiniBatchTrainer.Result result, boolean published) {}
+
     /**
      * Re-rank articles using the trained model.
      */
     public void reRank(List<ScoredArticle> articles) {
-        for (ScoredArticle article : articles) {
-            double probability = predict(article.getFeatureVector());
-            article.setFinalScore(probability);
+        int n = model.get().weights.length;
+        double[] features = new double[articles.size() * n];
+        for (int r = 0; r < articles.size(); r++) {
+            System.arraycopy(articles.get(r).getFeatureVector(), 0, features, r * n, n);
+        }
+
+        double[] probabilities = score(features, n, articles.size());
+        for (int r = 0; r < articles.size(); r++) {
+            articles.get(r).setFinalScore(probabilities[r]);
         }
 
         // Sort by predicted click probability
@@ -115,12 +153,13 @@ public class SimpleMLRanker {
      * Save model to file.
      */
     public void saveModel() {
+        Model m = model.get();
         try (DataOutputStream out = new DataOutputStream(new FileOutputStream(MODEL_FILE))) {
-            out.writeInt(weights.length);
-            for (double w : weights) {
+            out.writeInt(m.weights.length);
+            for (double w : m.weights) {
                 out.writeDouble(w);
             }
-            out.writeDouble(bias);
+            out.writeDouble(m.bias);
             System.out.println("Model saved to " + MODEL_FILE);
         } catch (IOException e) {
             System.err.println("Failed to save model: " + e.getMessage());
@@ -139,11 +178,11 @@ public class SimpleMLRanker {
 
         try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
             int numWeights = in.readInt();
-            weights = new double[numWeights];
+            double[] weights = new double[numWeights];
             for (int i = 0; i < numWeights; i++) {
                 weights[i] = in.readDouble();
             }
-            bias = in.readDouble();
+            model.set(new Model(weights, in.readDouble()));
             System.out.println("Model loaded from " + MODEL_FILE);
         } catch (IOException e) {
             System.err.println("Failed to load model: " + e.getMessage());
@@ -154,7 +193,8 @@ public class SimpleMLRanker {
      * Get current weights (for debugging/display).
      */
     public ModelWeights getWeights() {
-        return new ModelWeights(weights.clone(), bias);
+        Model m = model.get();
+        return new ModelWeights(m.weights.clone(), m.bias);
     }
 
     /**
@@ -164,15 +204,29 @@ public class SimpleMLRanker {
         if (newWeights.length != 4) {
             throw new IllegalArgumentException("Expected 4 weights");
         }
-        this.weights = newWeights.clone();
-        this.bias = newBias;
+        model.set(new Model(newWeights.clone(), newBias));
         saveModel();
     }
 
-    // Record classes
-    public record TrainingPair(double[] features, int label) {
+    // Immutable: the array is never written after construction, only replaced as a whole
+    private record Model(double[] weights, double bias) {
+        double predict(double[] features) {
+            if (features.length != weights.length) {
+                throw new IllegalArgumentException(
+                        "Expected " + weights.length + " features, got " + features.length);
+            }
+
+            double z = bias;
+            for (int i = 0; i < features.length; i++) {
+                z += weights[i] * features[i];
+            }
+
+            // Sigmoid
+            return 1.0 / (1.0 + Math.exp(-z));
+        }
     }
 
+    // Record classes
     public record ModelWeights(double[] weights, double bias) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Settings for the "did you mean" suggester.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "spelling")
+public class SpellingConfig {
+    // Max edits (insert/delete/substitute/transpose) between a typo and its correction
+    private int maxEditDistance = 2;
+
+    // Only the first N chars of a word generate deletes (smaller table, same results for typical typos)
+    private int prefixLength = 7;
+
+    // Ignore words seen fewer times than this (mostly typos in the data itself)
+    private int minWordFrequency = 2;
+
+    // Also learn from logged queries that returned results
+    private boolean useQueryLog = true;
+
+    // Getters and Setters
+    public int getMaxEditDistance() { return maxEditDistance; }
+    public void setMaxEditDistance(int maxEditDistance) { this.maxEditDistance = maxEditDistance; }
+
+    public int getPrefixLength() { return prefixLength; }
+    public void setPrefixLength(int prefixLength) { this.prefixLength = prefixLength; }
+
+    public int getMinWordFrequency() { return minWordFrequency; }
+    public void setMinWordFrequency(int minWordFrequency) { this.minWordFrequency = minWordFrequency; }
+
+    public boolean isUseQueryLog() { return useQueryLog; }
+    public void setUseQueryLog(boolean useQueryLog) { this.useQueryLog = useQueryLog; }
+}
@@ -0,0 +1,139 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * "Did you mean" suggestions for zero-hit searches.
+ *
+ * The vocabulary comes from the headlines/descriptions in the news index plus
+ * (optionally) queries from search_events that actually returned results.
+ * Lookups hit an in-memory symmetric-delete index, so they cost microseconds.
+ */
+@Service
+public class SpellingService {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final SpellingConfig config;
+
+    // swapped wholesale on rebuild, readers never see a partial dictionary
+    private volatile SymSpellDictionary dictionary;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    public SpellingService(ElasticsearchOperations elasticsearchOperations, SpellingConfig config) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.config = config;
+        this.dictionary = new SymSpellDictionary(config.getMaxEditDistance(), config.getPrefixLength());
+    }
+
+    /**
+     * Build the dictionary in the background once the app is up (ES may still be empty/down).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuildAsync();
+    }
+
+    public void rebuildAsync() {
+        Thread t = new Thread(this::rebuild, "spelling-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Corrected query, or null if every word is known / nothing is close enough.
+     */
+    public String suggest(String query) {
+        if (query == null || query.isBlank()) return null;
+        return dictionary.suggest(query);
+    }
+
+    public int vocabularySize() {
+        return dictionary.size();
+    }
+
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            System.out.println("Spelling dictionary rebuild already running, skipping.");
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Long> counts = new HashMap<>();
+
+            countArticleTerms(counts);
+            if (config.isUseQueryLog()) {
+                countQueryLogTerms(counts);
+            }
+
+            SymSpellDictionary fresh = new SymSpellDictionary(config.getMaxEditDistance(), config.getPrefixLength());
+            for (Map.Entry<String, Long> e : counts.entrySet()) {
+                if (e.getValue() >= config.getMinWordFrequency()) {
+                    fresh.addWord(e.getKey(), e.getValue());
+                }
+            }
+            dictionary = fresh;
+
+            System.out.println("Spelling dictionary built: " + fresh.size() + " words in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            System.err.println("Failed to build spelling dictionary: " + e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // scroll through the news index, only pulling the two text fields
+    private void countArticleTerms(Map<String, Long> counts) {
+        Query query = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .withSourceFilter(new FetchSourceFilter(true, new String[]{"headline", "short_description"}, null))
+                .withPageable(PageRequest.of(0, 1000))
+                .build();
+
+        try (SearchHitsIterator<NewsArticle> hits = elasticsearchOperations.searchForStream(query, NewsArticle.class)) {
+            while (hits.hasNext()) {
+                NewsArticle article = hits.next().getContent();
+                addTerms(counts, article.getHeadline());
+                addTerms(counts, article.getShort_description());
+            }
+        }
+    }
+
+    // queries people typed that found something are good spellings by definition
+    private void countQueryLogTerms(Map<String, Long> counts) {
+        Query query = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .withSourceFilter(new FetchSourceFilter(true, new String[]{"query", "resultCount"}, null))
+                .withPageable(PageRequest.of(0, 1000))
+                .build();
+
+        try (SearchHitsIterator<SearchEvent> hits = elasticsearchOperations.searchForStream(query, SearchEvent.class)) {
+            while (hits.hasNext()) {
+                SearchHit<SearchEvent> hit = hits.next();
+                SearchEvent event = hit.getContent();
+                if (event.getResultCount() == null || event.getResultCount() == 0) continue;
+                addTerms(counts, event.getQuery());
+            }
+        }
+    }
+
+    private void addTerms(Map<String, Long> counts, String text) {
+        for (String term : SymSpellDictionary.tokenize(text)) {
+            counts.merge(term, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.learning.news_search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "Did you mean" suggestions using symmetric delete (the SymSpell idea):
+ * every dictionary word is indexed under all strings reachable by deleting up to
+ * maxEditDistance characters; a misspelling is looked up the same way, so a lookup is a
+ * handful of hash probes instead of a scan over the vocabulary.
+ *
+ * The vocabulary here is a few tens of thousands of words, rebuilt in the background, so the
+ * delete index is a plain HashMap. Every candidate is checked with a real edit distance.
+ *
+ * Build it once with addWord, then lookups are safe from any number of threads.
+ * SpellingService builds a fresh one and swaps it in, so readers never see a half-built dictionary.
+ */
+public class SymSpellDictionary {
+    private final int maxEditDistance;
+    private final int prefixLength;   // only the first N chars generate deletes, keeps the table small
+
+    private final Map<String, Long> frequencies = new HashMap<>();
+    // delete of a word's prefix -> the words it came from
+    private final Map<String, List<String>> deletes = new HashMap<>();
+
+    public SymSpellDictionary(int maxEditDistance, int prefixLength) {
+        this.maxEditDistance = maxEditDistance;
+        this.prefixLength = Math.max(prefixLength, maxEditDistance + 1);
+    }
+
+    /**
+     * Adds `count` to a word's frequency, indexing it the first time we see it.
+     */
+    public void addWord(String word, long count) {
+        if (word.isEmpty()) return;
+
+        Long previous = frequencies.get(word);
+        frequencies.put(word, previous == null ? count : previous + count);
+        if (previous != null) return;
+
+        for (String d : deletesOf(word)) {
+            deletes.computeIfAbsent(d, k -> new ArrayList<>(1)).add(word);
+        }
+    }
+
+    public int size() {
+        return frequencies.size();
+    }
+
+    /**
+     * Best correction for one word: smallest edit distance, then highest frequency.
+     * Returns null if the word is already known or nothing is close enough.
+     */
+    public String suggestWord(String input) {
+        if (frequencies.containsKey(input)) return null;
+
+        String best = null;
+        int bestDistance = maxEditDistance + 1;
+        long bestFreq = -1;
+        Set<String> checked = new HashSet<>();
+
+        for (String d : deletesOf(input)) {
+            for (String candidate : deletes.getOrDefault(d, List.of())) {
+                if (!checked.add(candidate)) continue;
+                if (Math.abs(candidate.length() - input.length()) > maxEditDistance) continue;
+
+                int distance = editDistance(input, candidate, bestDistance);
+                long freq = frequencies.get(candidate);
+                if (distance < bestDistance || (distance == bestDistance && freq > bestFreq)) {
+                    best = candidate;
+                    bestDistance = distance;
+                    bestFreq = freq;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Corrects every unknown token of a query. Null when nothing would change.
+     */
+    public String suggest(String query) {
+        List<String> tokens = tokenize(query);
+        boolean changed = false;
+
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            String fixed = suggestWord(token);
+            if (fixed != null) changed = true;
+
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(fixed != null ? fixed : token);
+        }
+        return changed ? sb.toString() : null;
+    }
+
+    /**
+     * Lowercase + split on anything that isn't a letter or digit.
+     * Close enough to the standard analyzer for building a spelling vocabulary.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String part : lower.split("[^\\p{L}\\p{N}]+")) {
+            if (!part.isEmpty()) tokens.add(part);
+        }
+        return tokens;
+    }
+
+    // the word's prefix plus everything up to maxEditDistance deletes away from it
+    private Set<String> deletesOf(String word) {
+        String prefix = word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+        Set<String> out = new HashSet<>();
+        out.add(prefix);
+        collectDeletes(prefix, maxEditDistance, out);
+        return out;
+    }
+
+    private static void collectDeletes(String word, int remaining, Set<String> out) {
+        if (remaining == 0 || word.length() <= 1) return;
+
+        for (int i = 0; i < word.length(); i++) {
+            String d = word.substring(0, i) + word.substring(i + 1);
+            if (out.add(d)) {
+                collectDeletes(d, remaining - 1, out);
+            }
+        }
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein + adjacent transpositions).
+     * Gives up early once every cell in a row exceeds `limit`.
+     */
+    static int editDistance(String a, String b, int limit) {
+        int n = a.length(), m = b.length();
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    v = Math.min(v, prev2[j - 2] + 1);
+                }
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > limit) return limit + 1;
+
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[m];
+    }
+}
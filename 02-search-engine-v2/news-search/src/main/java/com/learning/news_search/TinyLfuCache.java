@@ -0,0 +1,210 @@
+package com.learning.news_search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded in-process cache with a TTL and W-TinyLFU style admission.
+ *
+ * New entries land in a small LRU window (1% of the capacity). When the window overflows,
+ * its oldest entry only gets into the main LRU if it has been asked for more often than the
+ * entry it would push out, going by a count-min sketch of recent accesses. That keeps a
+ * burst of one-off queries from flushing out the popular ones.
+ *
+ * All operations take the cache's monitor; a lookup is a couple of hash probes, so the
+ * lock is held for well under a microsecond.
+ *
+ * Optional listeners hear about every entry that goes in and every entry that leaves
+ * (evicted, not admitted, expired, invalidated or overwritten), in that order for any one
+ * entry. They run under the monitor, so they must be quick and must not call back into the cache.
+ */
+public class TinyLfuCache<K, V> {
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final BiConsumer<K, V> onPut;
+    private final BiConsumer<K, V> onRemoval;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejected;
+    private long expirations;
+    private long invalidations;
+
+    public TinyLfuCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, (key, value) -> {}, (key, value) -> {});
+    }
+
+    public TinyLfuCache(int maxEntries, long ttlMillis, BiConsumer<K, V> onPut, BiConsumer<K, V> onRemoval) {
+        int capacity = Math.max(2, maxEntries);
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.sketch = new FrequencySketch(capacity);
+        this.onPut = onPut;
+        this.onRemoval = onRemoval;
+    }
+
+    public synchronized V get(K key) {
+        sketch.increment(key.hashCode());
+
+        Map<K, Entry<V>> segment = window.containsKey(key) ? window : main;
+        Entry<V> entry = segment.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.writtenAtNanos > ttlNanos) {
+            segment.remove(key);
+            onRemoval.accept(key, entry.value);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.nanoTime());
+        if (main.containsKey(key)) {
+            removed(key, main.put(key, entry));
+            onPut.accept(key, value);
+            return;
+        }
+
+        removed(key, window.put(key, entry));
+        onPut.accept(key, value);
+        if (window.size() <= windowCapacity) return;
+
+        // window overflow: its LRU entry competes with main's LRU entry for a place
+        Iterator<Map.Entry<K, Entry<V>>> it = window.entrySet().iterator();
+        Map.Entry<K, Entry<V>> candidate = it.next();
+        it.remove();
+
+        if (main.size() < mainCapacity) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        Iterator<Map.Entry<K, Entry<V>>> mainIt = main.entrySet().iterator();
+        Map.Entry<K, Entry<V>> victim = mainIt.next();
+        if (sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.getKey().hashCode())) {
+            mainIt.remove();
+            main.put(candidate.getKey(), candidate.getValue());
+            onRemoval.accept(victim.getKey(), victim.getValue().value);
+            evictions++;
+        } else {
+            onRemoval.accept(candidate.getKey(), candidate.getValue().value);
+            rejected++;
+        }
+    }
+
+    public synchronized boolean invalidate(K key) {
+        Entry<V> entry = window.remove(key);
+        if (entry == null) entry = main.remove(key);
+        if (entry == null) return false;
+
+        onRemoval.accept(key, entry.value);
+        invalidations++;
+        return true;
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations += window.size() + main.size();
+        window.forEach((key, entry) -> onRemoval.accept(key, entry.value));
+        main.forEach((key, entry) -> onRemoval.accept(key, entry.value));
+        window.clear();
+        main.clear();
+    }
+
+    // an overwritten value counts as removed
+    private void removed(K key, Entry<V> previous) {
+        if (previous != null) onRemoval.accept(key, previous.value);
+    }
+
+    public synchronized CacheStats stats() {
+        long lookups = hits + misses;
+        return new CacheStats(window.size() + main.size(), windowCapacity + mainCapacity,
+                hits, misses, lookups == 0 ? 0.0 : (double) hits / lookups,
+                evictions, rejected, expirations, invalidations);
+    }
+
+    public record CacheStats(
+            int size,
+            int capacity,
+            long hits,
+            long misses,
+            double hitRate,
+            long evictions,
+            long admissionsRejected,
+            long expirations,
+            long invalidations
+    ) {}
+
+    private record Entry<V>(V value, long writtenAtNanos) {}
+
+    /**
+     * Count-min sketch with 4 rows of small saturating counters (max 15). Every
+     * sampleSize increments all counters are halved, so old popularity fades out.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        private final byte[][] rows;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1) << 1;
+            this.rows = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * capacity;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int d = 0; d < DEPTH; d++) {
+                int i = index(hash, d);
+                if (rows[d][i] < 15) {
+                    rows[d][i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                halve();
+            }
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int d = 0; d < DEPTH; d++) {
+                min = Math.min(min, rows[d][index(hash, d)]);
+            }
+            return min;
+        }
+
+        private int index(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (h >>> 32) & mask;
+        }
+
+        private void halve() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) row[i] >>= 1;
+            }
+            additions /= 2;
+        }
+    }
+}
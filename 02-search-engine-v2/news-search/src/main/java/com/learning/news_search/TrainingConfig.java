@@ -0,0 +1,83 @@
+package com.learning.news_search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Mini-batch training of the LTR model (see MiniBatchTrainer).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "training")
+public class TrainingConfig {
+    // Examples per gradient step
+    private int batchSize = 4096;
+
+    // Worker threads for the gradient of a batch (0 = one per core)
+    private int threads = 0;
+
+    // Step size; the gradient is averaged over the batch, so this is larger than per-example SGD's
+    private double learningRate = 0.5;
+
+    // Rows read from the feature file and shuffled together before being cut into batches
+    private int shuffleBufferRows = 262144;
+
+    // Share of the searches held out (written to their own file) to measure loss after every epoch
+    private double holdoutFraction = 0.1;
+
+    // Stop after this many epochs without the held-out loss improving by minImprovement
+    private int patience = 3;
+    private double minImprovement = 1e-4;
+
+    // Shuffling / split seed, so runs on the same data are repeatable
+    private long seed = 42;
+
+    // Train only on impressions logged with their features (variant B searches) instead of
+    // re-deriving the rest from the news index with placeholder ES scores
+    private boolean loggedFeaturesOnly = false;
+
+    // Where the exported training / holdout feature files go
+    private String dataDir = "data/training";
+
+    // Events fetched per point-in-time + search_after page when exporting
+    private int pageSize = 5000;
+
+    // How long the point in time stays open between two pages
+    private int pointInTimeKeepAliveSeconds = 120;
+
+    // Getters and Setters
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public double getLearningRate() { return learningRate; }
+    public void setLearningRate(double learningRate) { this.learningRate = learningRate; }
+
+    public int getShuffleBufferRows() { return shuffleBufferRows; }
+    public void setShuffleBufferRows(int shuffleBufferRows) { this.shuffleBufferRows = shuffleBufferRows; }
+
+    public double getHoldoutFraction() { return holdoutFraction; }
+    public void setHoldoutFraction(double holdoutFraction) { this.holdoutFraction = holdoutFraction; }
+
+    public int getPatience() { return patience; }
+    public void setPatience(int patience) { this.patience = patience; }
+
+    public double getMinImprovement() { return minImprovement; }
+    public void setMinImprovement(double minImprovement) { this.minImprovement = minImprovement; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public String getDataDir() { return dataDir; }
+    public void setDataDir(String dataDir) { this.dataDir = dataDir; }
+
+    public int getPageSize() { return pageSize; }
+    public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+
+    public int getPointInTimeKeepAliveSeconds() { return pointInTimeKeepAliveSeconds; }
+    public void setPointInTimeKeepAliveSeconds(int pointInTimeKeepAliveSeconds) { this.pointInTimeKeepAliveSeconds = pointInTimeKeepAliveSeconds; }
+
+    public boolean isLoggedFeaturesOnly() { return loggedFeaturesOnly; }
+    public void setLoggedFeaturesOnly(boolean loggedFeaturesOnly) { this.loggedFeaturesOnly = loggedFeaturesOnly; }
+}
@@ -0,0 +1,104 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.BulkOptions;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ClickCounterServiceTests {
+
+    private final LongAdder delivered = new LongAdder();
+    private ClickCounterService counter;
+
+    @SuppressWarnings("unchecked")
+    private ClickCounterService counter() {
+        ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+        when(operations.getIndexCoordinatesFor(NewsArticle.class)).thenReturn(IndexCoordinates.of("news"));
+        // every bulk succeeds; sum up the deltas it carried
+        doAnswer(call -> {
+            for (UpdateQuery query : (List<UpdateQuery>) call.getArgument(0)) {
+                delivered.add(((Number) query.getParams().get("n")).longValue());
+            }
+            return null;
+        }).when(operations).bulkUpdate(any(List.class), any(BulkOptions.class), any(IndexCoordinates.class));
+
+        EventLogConfig config = new EventLogConfig();
+        config.setClickFlushIntervalMs(3_600_000); // flushed by the test only
+        RankingConfig rankingConfig = new RankingConfig();
+        counter = new ClickCounterService(operations, config,
+                new SearchResultCache(new SearchCacheConfig()), new ArticleFeatureStore(operations, rankingConfig));
+        return counter;
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        if (counter != null) counter.shutdown();
+    }
+
+    @Test
+    void concurrentClicksAndFlushesLoseNothing() throws Exception {
+        ClickCounterService counter = counter();
+        int threads = 8, clicksPerThread = 50_000, articles = 64;
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // sparse clicks over many articles, so flushes keep finding idle counters to evict
+        Thread[] clickers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            clickers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < clicksPerThread; i++) {
+                    counter.increment("article-" + random.nextInt(articles));
+                }
+            });
+            clickers[t].start();
+        }
+        Thread flusher = new Thread(() -> {
+            while (!done.get()) counter.flush();
+        });
+        flusher.start();
+
+        start.countDown();
+        for (Thread clicker : clickers) clicker.join();
+        done.set(true);
+        flusher.join();
+        counter.flush();
+
+        long total = (long) threads * clicksPerThread;
+        assertEquals(total, counter.stats().clicks());
+        assertEquals(total, delivered.sum());
+        assertEquals(total, counter.stats().flushedClicks());
+        for (int a = 0; a < articles; a++) assertEquals(0, counter.pendingFor("article-" + a));
+    }
+
+    @Test
+    void idleCountersAreEvictedAndReusable() {
+        ClickCounterService counter = counter();
+        counter.add("a", 3);
+        counter.flush(); // sends 3
+        counter.flush(); // "a" is idle now: evicted
+        assertEquals(0, counter.stats().pendingArticles());
+
+        counter.add("a", 2);
+        assertEquals(2, counter.pendingFor("a"));
+        counter.flush();
+        assertEquals(5, delivered.sum());
+    }
+}
@@ -0,0 +1,142 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCodecTests {
+
+    private static final String ID = "3f2b8c1e-9d4a-4e6f-8a7b-1c2d3e4f5a6b";
+    private static final Instant AT = Instant.ofEpochMilli(1_760_000_000_123L);
+
+    private static SearchEvent search(ImpressionFeatures features) {
+        SearchEvent e = new SearchEvent();
+        e.setId(ID);
+        e.setTimestamp(AT);
+        e.setSessionId("session-1");
+        e.setQuery("café élections 2026");
+        e.setCategoryFilter(null);
+        e.setRankingVariant("B");
+        e.setResultCount(3);
+        e.setResponseTimeMs(150_000L);
+        e.setResultIds(List.of("a", "b", "c"));
+        e.setFeatures(features);
+        return e;
+    }
+
+    private static ImpressionFeatures features() {
+        float[] rows = {
+                1.0f, 0.5f, 0.25f, 1.5f,
+                0.5f, 0.0f, 0.75f, 1.0f,
+                0.0f, 1.0f, 0.1f, 1.0f};
+        return ImpressionFeatures.fromRows(rows, new float[] {12.5f, 8.25f, 3.0f}, 4, 0, 3);
+    }
+
+    private static ByteBuffer encode(SearchEvent e) {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        EventCodec.encodeSearch(e, buf);
+        return buf.flip();
+    }
+
+    @Test
+    void searchEventRoundTripsWithFeatures() {
+        SearchEvent original = search(features());
+        ByteBuffer record = encode(original);
+
+        SearchEvent decoded = (SearchEvent) EventCodec.decode(record);
+        assertFalse(record.hasRemaining(), "decode must consume the whole record");
+
+        assertEquals(ID, decoded.getId());
+        assertEquals(AT, decoded.getTimestamp());
+        assertEquals("session-1", decoded.getSessionId());
+        assertEquals("café élections 2026", decoded.getQuery());
+        assertNull(decoded.getCategoryFilter());
+        assertEquals("B", decoded.getRankingVariant());
+        assertEquals(3, decoded.getResultCount());
+        assertEquals(150_000L, decoded.getResponseTimeMs());
+        assertEquals(List.of("a", "b", "c"), decoded.getResultIds());
+
+        ImpressionFeatures f = decoded.getFeatures();
+        assertEquals(4, f.getWidth());
+        assertArrayEquals(original.getFeatures().getEsScores(), f.getEsScores());
+        assertArrayEquals(original.getFeatures().getValues(), f.getValues());
+    }
+
+    @Test
+    void searchEventWithoutOptionalFieldsRoundTrips() {
+        SearchEvent original = new SearchEvent();
+        original.setId(UUID.randomUUID().toString());
+        original.setTimestamp(AT);
+        original.setQuery("");
+
+        SearchEvent decoded = (SearchEvent) EventCodec.decode(encode(original));
+        assertEquals("", decoded.getQuery());
+        assertNull(decoded.getSessionId());
+        assertNull(decoded.getResultCount());
+        assertNull(decoded.getResponseTimeMs());
+        assertNull(decoded.getResultIds());
+        assertNull(decoded.getFeatures());
+    }
+
+    @Test
+    void recordsWrittenBeforeFeaturesStillDecode() {
+        // a record from before presence bit 8: the same bytes, minus the feature block
+        ByteBuffer withFeatures = encode(search(features()));
+        SearchEvent old = search(null);
+        ByteBuffer record = encode(old);
+
+        int presenceAt = 1 + 16 + 8;
+        assertEquals(7, record.get(presenceAt));
+        assertEquals(15, withFeatures.get(presenceAt));
+        byte[] oldBytes = Arrays.copyOf(record.array(), record.limit());
+        byte[] newPrefix = Arrays.copyOf(withFeatures.array(), record.limit());
+        newPrefix[presenceAt] = 7;
+        assertArrayEquals(oldBytes, newPrefix);
+
+        SearchEvent decoded = (SearchEvent) EventCodec.decode(record);
+        assertFalse(record.hasRemaining());
+        assertNull(decoded.getFeatures());
+        assertEquals(List.of("a", "b", "c"), decoded.getResultIds());
+        assertEquals(ID, decoded.getId());
+    }
+
+    @Test
+    void clickEventRoundTrips() {
+        ClickEvent original = new ClickEvent();
+        original.setId(UUID.randomUUID().toString());
+        original.setTimestamp(AT);
+        original.setSessionId("session-2");
+        original.setQuery("climate");
+        original.setArticleId("article-42");
+        original.setRankingVariant("A");
+        original.setPosition(0);
+        original.setTimeToClickMs(-1L); // still round-trips, just longer
+
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        EventCodec.encodeClick(original, buf);
+        ClickEvent decoded = (ClickEvent) EventCodec.decode(buf.flip());
+
+        assertFalse(buf.hasRemaining());
+        assertEquals(original.getId(), decoded.getId());
+        assertEquals(AT, decoded.getTimestamp());
+        assertEquals("session-2", decoded.getSessionId());
+        assertEquals("climate", decoded.getQuery());
+        assertEquals("article-42", decoded.getArticleId());
+        assertEquals("A", decoded.getRankingVariant());
+        assertEquals(0, decoded.getPosition());
+        assertEquals(-1L, decoded.getTimeToClickMs());
+    }
+
+    @Test
+    void unknownTypeIsRejected() {
+        ByteBuffer record = encode(search(null));
+        record.put(0, (byte) 9);
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(record));
+    }
+}
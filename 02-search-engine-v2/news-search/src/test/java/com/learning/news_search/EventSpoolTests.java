@@ -0,0 +1,151 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventSpoolTests {
+
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer record(String text) {
+        return ByteBuffer.wrap(text.getBytes());
+    }
+
+    private static String text(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new String(bytes);
+    }
+
+    private static List<String> texts(List<ByteBuffer> records) {
+        return records.stream().map(EventSpoolTests::text).toList();
+    }
+
+    private static int slot(String text) {
+        return (8 + text.length() + 3) & ~3;
+    }
+
+    @Test
+    void concurrentAppendsAreEachReadExactlyOnce() throws Exception {
+        int threads = 4, perThread = 5_000;
+        try (EventSpool spool = new EventSpool(dir, 64 * 1024, 1_000)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                Thread w = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        assertTrue(spool.append(record("w" + id + "-" + i)));
+                    }
+                });
+                writers.add(w);
+                w.start();
+            }
+            for (Thread w : writers) w.join();
+
+            Set<String> seen = new HashSet<>();
+            List<ByteBuffer> batch;
+            while (!(batch = spool.poll(1_000)).isEmpty()) {
+                for (String s : texts(batch)) assertTrue(seen.add(s), "duplicate " + s);
+            }
+            assertEquals(threads * perThread, seen.size());
+            assertTrue(spool.stats().segments() > 1, "test should span several segments");
+            assertEquals(threads * perThread, spool.stats().appended());
+        }
+    }
+
+    @Test
+    void pollCommitAndRewind() throws Exception {
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            for (String s : List.of("a", "b", "c", "d")) spool.append(record(s));
+
+            assertEquals(List.of("a", "b"), texts(spool.poll(2)));
+            spool.rewind();
+            assertEquals(List.of("a", "b"), texts(spool.poll(2)));
+            spool.commit();
+
+            assertEquals(List.of("c"), texts(spool.poll(1)));
+            spool.rewind(); // c was never committed
+            assertEquals(List.of("c", "d"), texts(spool.poll(10)));
+            assertTrue(spool.poll(10).isEmpty());
+        }
+    }
+
+    @Test
+    void reopenResumesAfterTheLastCommit() throws Exception {
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            for (String s : List.of("a", "b", "c")) spool.append(record(s));
+            spool.poll(1);
+            spool.commit();
+            spool.poll(1); // read but not committed: delivered again after the restart
+        }
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            assertEquals(List.of("b", "c"), texts(spool.poll(10)));
+            spool.append(record("d"));
+            assertEquals(List.of("d"), texts(spool.poll(10)));
+        }
+    }
+
+    @Test
+    void reopenAfterCrashStepsOverASlotThatWasNeverPublished() throws Exception {
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            for (String s : List.of("first", "second", "third")) spool.append(record(s));
+        }
+        // what kill -9 between reserving "second"'s slot and publishing it leaves behind
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(p -> p.toString().endsWith(".spool")).sorted().findFirst().orElseThrow();
+        }
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, -slot("second")), slot("first"));
+        }
+
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            assertEquals(List.of("first", "third"), texts(spool.poll(10)));
+            assertEquals(1, spool.stats().abandoned());
+        }
+    }
+
+    @Test
+    void slotStillBeingWrittenInTheLiveSegmentIsWaitedFor() throws Exception {
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            for (String s : List.of("first", "second", "third")) spool.append(record(s));
+
+            // put "second" back into its reserved-but-unpublished state (the file is the mapping)
+            Path segment;
+            try (Stream<Path> files = Files.list(dir)) {
+                segment = files.filter(p -> p.toString().endsWith(".spool")).sorted().reduce((x, y) -> y).orElseThrow();
+            }
+            try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                ch.write(ByteBuffer.allocate(4).putInt(0, -slot("second")), slot("first"));
+                assertEquals(List.of("first"), texts(spool.poll(10))); // must not skip ahead to "third"
+
+                ch.write(ByteBuffer.allocate(4).putInt(0, "second".length()), slot("first")); // published
+            }
+            assertEquals(List.of("second", "third"), texts(spool.poll(10)));
+            assertEquals(0, spool.stats().abandoned());
+        }
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedRecords() throws Exception {
+        try (EventSpool spool = new EventSpool(dir, 4096, 10)) {
+            assertFalse(spool.append(ByteBuffer.allocate(0)));
+            assertFalse(spool.append(ByteBuffer.allocate(4096)));
+            assertEquals(2, spool.stats().rejected());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureFileTests {
+
+    @TempDir
+    Path dir;
+
+    // deterministic row content: features, label and group start derived from the row number
+    private static double[] features(int row) {
+        return new double[] {row * 0.001, (row % 7) / 7.0, 1.0 / (1 + row % 30), row % 5 == 0 ? 1.5 : 1.0};
+    }
+
+    private static int label(int row) {
+        return row % 3 == 0 ? 1 : 0;
+    }
+
+    private static boolean groupStart(int row) {
+        return row % 10 == 0;
+    }
+
+    private FeatureFile write(Path path, int rows) throws IOException {
+        FeatureFile.Writer writer = FeatureFile.create(path, 4);
+        try (writer) {
+            for (int r = 0; r < rows; r++) writer.add(features(r), label(r), groupStart(r));
+        }
+        return writer.toFile();
+    }
+
+    @Test
+    void roundTripKeepsFeaturesLabelsAndGroupStarts() throws IOException {
+        // > 1 MiB of rows, so the reader refills its buffer mid-file
+        int rows = 70_000;
+        Path path = dir.resolve("train.ltr");
+        FeatureFile written = write(path, rows);
+
+        FeatureFile file = FeatureFile.open(path);
+        assertEquals(4, file.width());
+        assertEquals(rows, file.rows());
+        assertEquals(written.positives(), file.positives());
+        assertEquals((rows + 2) / 3, file.positives());
+        assertEquals(rows - file.positives(), file.negatives());
+
+        FeatureMatrix block = new FeatureMatrix(4, 1000);
+        int seen = 0;
+        try (FeatureFile.Reader reader = file.reader()) {
+            int read;
+            while ((read = reader.read(block, 997)) > 0) { // blocks don't line up with groups
+                for (int i = 0; i < read; i++, seen++) {
+                    double[] expected = features(seen);
+                    for (int f = 0; f < 4; f++) {
+                        assertEquals((float) expected[f], block.feature(i, f), 0.0, "row " + seen + ", feature " + f);
+                    }
+                    assertEquals(label(seen), block.label(i), "label of row " + seen);
+                    assertEquals(groupStart(seen), block.groupStart(i), "group start of row " + seen);
+                }
+            }
+        }
+        assertEquals(rows, seen);
+    }
+
+    @Test
+    void tornLastRowIsDropped() throws IOException {
+        Path path = dir.resolve("torn.ltr");
+        write(path, 25);
+        // half a row, as if the writer died mid-append
+        Files.write(path, new byte[] {3, 0, 0, 0, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        FeatureMatrix block = new FeatureMatrix(4, 64);
+        try (FeatureFile.Reader reader = FeatureFile.open(path).reader()) {
+            assertEquals(25, reader.read(block, 64));
+            assertEquals(0, reader.read(block, 64));
+        }
+        assertEquals(0, block.rows());
+    }
+
+    @Test
+    void rejectsOtherFilesAndWrongWidths() throws IOException {
+        Path other = dir.resolve("other.bin");
+        Files.write(other, new byte[64]);
+        assertThrows(IOException.class, () -> FeatureFile.open(other));
+
+        try (FeatureFile.Writer writer = FeatureFile.create(dir.resolve("w.ltr"), 4)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.add(new double[3], 1, true));
+        }
+    }
+}
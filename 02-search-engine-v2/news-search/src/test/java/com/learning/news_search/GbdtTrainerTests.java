@@ -0,0 +1,138 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GbdtTrainerTests {
+
+    private static final int NDCG_AT = 10;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void thresholdSplitsRawValuesLikeTheBinnedSplit() {
+        Random random = new Random(50);
+        for (int trial = 0; trial < 200; trial++) {
+            // sorted, distinct float edges ending in +inf, like binEdges produces
+            int n = 1 + random.nextInt(20);
+            double[] edges = new double[n];
+            for (int i = 0; i < n - 1; i++) edges[i] = (float) (random.nextGaussian() * 10);
+            Arrays.sort(edges, 0, n - 1);
+            edges = Arrays.stream(edges, 0, n - 1).distinct().toArray();
+            edges = Arrays.copyOf(edges, edges.length + 1);
+            edges[edges.length - 1] = Double.POSITIVE_INFINITY;
+
+            for (int v = 0; v < 50; v++) {
+                // values right on an edge, next to one, and anywhere
+                double x = switch (v % 3) {
+                    case 0 -> edges.length > 1 ? edges[random.nextInt(edges.length - 1)] : 1e9;
+                    case 1 -> Math.nextUp((float) (random.nextGaussian() * 10));
+                    default -> (float) (random.nextGaussian() * 20);
+                };
+                int bin = GbdtTrainer.bin(x, edges);
+                // every split bin, plus the "no split" sentinel past the last bin
+                for (int b = 0; b < edges.length + 3; b++) {
+                    assertEquals(bin > b, x > GbdtTrainer.threshold(edges, b),
+                            "x=" + x + ", split bin " + b + ", edges " + Arrays.toString(edges));
+                }
+            }
+        }
+    }
+
+    @Test
+    void modelScoresRawFeaturesLikeTheBinnedTrainingWalk() throws Exception {
+        FeatureFile train = write(dir.resolve("train.ltr"), 3000, new Random(1));
+        FeatureFile holdout = write(dir.resolve("holdout.ltr"), 800, new Random(2));
+
+        GbdtConfig config = new GbdtConfig();
+        config.setDepth(3);
+        config.setBins(16);
+        config.setMinChildRows(5);
+        config.setNdcgAt(NDCG_AT);
+        TrainingConfig trainingConfig = new TrainingConfig();
+        trainingConfig.setThreads(2);
+
+        GbdtTrainer.Result result;
+        try (GbdtTrainer trainer = new GbdtTrainer(config, trainingConfig)) {
+            result = trainer.train(train, holdout, 40, (tree, trainNdcg, holdoutNdcg) -> {});
+        }
+        assertTrue(result.bestTrees() > 0, "nothing learned");
+
+        // the trainer's NDCGs come from bin-space walks; the model walks the raw features
+        assertEquals(result.holdoutNdcg(), ndcg(result.model(), holdout), 1e-12);
+        assertEquals(result.trainNdcg(), ndcg(result.model(), train), 1e-12);
+    }
+
+    /**
+     * Groups of 10 with a mix of feature shapes: continuous, two-valued (like the category
+     * boost), a handful of values (fewer bins than configured) and a constant (one bin).
+     * Clicks favour the first feature, more so when the second is set.
+     */
+    private static FeatureFile write(Path path, int rows, Random random) throws IOException {
+        FeatureFile.Writer writer = FeatureFile.create(path, 4);
+        try (writer) {
+            for (int r = 0; r < rows; r++) {
+                double relevance = random.nextDouble();
+                double boost = random.nextInt(4) == 0 ? 1.5 : 1.0;
+                double freshness = random.nextInt(5) / 4.0;
+                double[] features = {relevance, boost, freshness, 0.1};
+                double p = relevance * (boost > 1 ? 0.9 : 0.4) + freshness * 0.1;
+                writer.add(features, random.nextDouble() < p ? 1 : 0, r % 10 == 0);
+            }
+        }
+        return writer.toFile();
+    }
+
+    // mean NDCG@k over groups with a click, ties in logged order; what the trainer reports
+    private static double ndcg(GbdtModel model, FeatureFile file) throws IOException {
+        FeatureMatrix matrix = new FeatureMatrix(file.width(), (int) file.rows());
+        FeatureMatrix block = new FeatureMatrix(file.width(), 1024);
+        try (FeatureFile.Reader reader = file.reader()) {
+            while (reader.read(block, 1024) > 0) {
+                double[] row = new double[file.width()];
+                for (int r = 0; r < block.rows(); r++) {
+                    for (int f = 0; f < row.length; f++) row[f] = block.feature(r, f);
+                    matrix.add(row, block.label(r), block.groupStart(r));
+                }
+            }
+        }
+        double[] score = new double[matrix.rows()];
+        model.score(matrix.features(), matrix.rows(), score);
+
+        double sum = 0;
+        int counted = 0;
+        for (int s = 0; s < matrix.rows(); ) {
+            int e = s + 1;
+            while (e < matrix.rows() && !matrix.groupStart(e)) e++;
+
+            Integer[] order = new Integer[e - s];
+            int positives = 0;
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                positives += matrix.label(s + i);
+            }
+            if (positives > 0) {
+                int start = s;
+                Arrays.sort(order, (a, b) -> Double.compare(score[start + b], score[start + a]));
+                double dcg = 0, ideal = 0;
+                for (int i = 0; i < Math.min(NDCG_AT, order.length); i++) {
+                    double discount = 1.0 / (Math.log(i + 2) / Math.log(2));
+                    if (matrix.label(s + order[i]) == 1) dcg += discount;
+                    if (i < positives) ideal += discount;
+                }
+                sum += dcg / ideal;
+                counted++;
+            }
+            s = e;
+        }
+        return counted == 0 ? 0.0 : sum / counted;
+    }
+}
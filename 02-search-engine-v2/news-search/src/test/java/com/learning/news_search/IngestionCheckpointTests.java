@@ -0,0 +1,82 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionCheckpointTests {
+
+    private static final String SOURCE = "classpath:News_Category_Dataset.json";
+
+    @TempDir
+    Path dir;
+
+    private static IngestionCheckpoint checkpoint(String... lines) {
+        long[] hashes = new long[lines.length];
+        for (int i = 0; i < lines.length; i++) hashes[i] = IngestionCheckpoint.hash(lines[i]);
+        return IngestionCheckpoint.of(SOURCE, hashes, hashes.length);
+    }
+
+    @Test
+    void roundTripKeepsHashesAndIndexIdentity() throws Exception {
+        Path file = dir.resolve("checkpoint.bin");
+        var index = new NewsIndexManager.IndexIdentity("news-v20260101000000", "uuid-1", 2);
+        checkpoint("{\"a\":1}", "{\"b\":2}").forIndex(index).save(file);
+
+        IngestionCheckpoint loaded = IngestionCheckpoint.load(file, SOURCE);
+        assertNotNull(loaded);
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.contains(IngestionCheckpoint.hash("{\"a\":1}")));
+        assertFalse(loaded.contains(IngestionCheckpoint.hash("{\"c\":3}")));
+        assertEquals("news-v20260101000000", loaded.getIndexName());
+        assertTrue(loaded.describes(index));
+    }
+
+    @Test
+    void describesOnlyTheSameIndexWithTheSameDocCount() {
+        IngestionCheckpoint cp = checkpoint("x").forIndex(new NewsIndexManager.IndexIdentity("news", "uuid-1", 10));
+
+        assertTrue(cp.describes(new NewsIndexManager.IndexIdentity("news", "uuid-1", 10)));
+        // deleted and recreated under the same name
+        assertFalse(cp.describes(new NewsIndexManager.IndexIdentity("news", "uuid-2", 10)));
+        // same index, docs wiped or added behind our back
+        assertFalse(cp.describes(new NewsIndexManager.IndexIdentity("news", "uuid-1", 0)));
+        assertFalse(cp.describes(null));
+        // never tied to an index
+        assertFalse(checkpoint("x").describes(new NewsIndexManager.IndexIdentity("news", "uuid-1", 10)));
+    }
+
+    @Test
+    void versionOneFileLoadsWithoutIdentity() throws Exception {
+        Path file = dir.resolve("v1.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x4E434B50);
+            out.writeInt(1);
+            out.writeUTF(SOURCE);
+            out.writeLong(0);
+            out.writeInt(1);
+            out.writeLong(IngestionCheckpoint.hash("line"));
+        }
+
+        IngestionCheckpoint loaded = IngestionCheckpoint.load(file, SOURCE);
+        assertNotNull(loaded);
+        assertTrue(loaded.contains(IngestionCheckpoint.hash("line")));
+        assertFalse(loaded.describes(new NewsIndexManager.IndexIdentity("news", "uuid-1", 1)));
+    }
+
+    @Test
+    void otherSourceOrGarbageIsIgnored() throws Exception {
+        Path file = dir.resolve("checkpoint.bin");
+        checkpoint("x").forIndex(new NewsIndexManager.IndexIdentity("news", "u", 1)).save(file);
+        assertNull(IngestionCheckpoint.load(file, "other.json.gz"));
+
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertNull(IngestionCheckpoint.load(file, SOURCE));
+        assertNull(IngestionCheckpoint.load(dir.resolve("missing.bin"), SOURCE));
+    }
+}
@@ -0,0 +1,219 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingServiceTests {
+
+    private static final String[] CATEGORIES = {"POLITICS", "WELLNESS", "SPORTS", "TRAVEL"};
+
+    private final RankingConfig config = new RankingConfig();
+    private final RankingService rankingService = new RankingService(config);
+
+    // a pool as ES returns it: best ES score first
+    private static List<RankHit> pool(Random random, int n, String category) {
+        LocalDate today = LocalDate.now();
+        List<RankHit> hits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LocalDate date = random.nextInt(10) == 0 ? null : today.minusDays(random.nextInt(2000));
+            hits.add(new RankHit("doc-" + i, 1 + random.nextDouble() * 20, random.nextInt(5000), date,
+                    category != null ? category : CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        }
+        hits.sort(Comparator.comparingDouble(RankHit::esScore).reversed());
+        return hits;
+    }
+
+    // a pool with few distinct values per feature, so many hits tie on the final score
+    private static List<RankHit> tiedPool(Random random, int n, String category) {
+        LocalDate today = LocalDate.now();
+        List<RankHit> hits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LocalDate date = random.nextBoolean() ? today.minusDays(30) : null;
+            hits.add(new RankHit("doc-" + i, 1 + random.nextInt(3), 10 * random.nextInt(3), date,
+                    category != null ? category : CATEGORIES[random.nextInt(2)]));
+        }
+        hits.sort(Comparator.comparingDouble(RankHit::esScore).reversed());
+        return hits;
+    }
+
+    // the same hits as full articles, for reRank / score
+    private static List<NewsArticle> articles(List<RankHit> hits) {
+        List<NewsArticle> articles = new ArrayList<>(hits.size());
+        for (RankHit hit : hits) {
+            NewsArticle article = new NewsArticle();
+            article.setId(hit.id());
+            article.setClickCount(hit.clickCount());
+            article.setDate(hit.date());
+            article.setCategory(hit.category());
+            articles.add(article);
+        }
+        return articles;
+    }
+
+    private static List<Double> esScores(List<RankHit> hits) {
+        List<Double> scores = new ArrayList<>(hits.size());
+        for (RankHit hit : hits) scores.add(hit.esScore());
+        return scores;
+    }
+
+    // rank(hits, filter, limit) must be the first `limit` of reRank, with the same scores and features
+    private void assertRankMatchesReRank(List<RankHit> hits, String categoryFilter, int limit) {
+        List<ScoredArticle> expected = rankingService.score(articles(hits), esScores(hits), categoryFilter);
+        RankingService.Ranking ranking = rankingService.rank(hits, categoryFilter, limit);
+
+        int k = Math.min(limit, hits.size());
+        String where = "n=" + hits.size() + ", limit=" + limit + ", filter=" + categoryFilter;
+        assertEquals(k, ranking.hits().size(), where);
+        for (int i = 0; i < k; i++) {
+            ScoredArticle scored = expected.get(i);
+            assertEquals(scored.getArticle().getId(), ranking.hits().get(i).id(), where + ", rank " + i);
+            assertEquals(scored.getFinalScore(), ranking.scores()[i], 0.0, where + ", rank " + i);
+            double[] features = scored.getFeatureVector();
+            for (int f = 0; f < RankingService.FEATURE_COUNT; f++) {
+                assertEquals(features[f], ranking.features()[i * RankingService.FEATURE_COUNT + f], 0.0,
+                        where + ", rank " + i + ", feature " + f);
+            }
+        }
+    }
+
+    @Test
+    void rankMatchesReRankOnRandomPools() {
+        Random random = new Random(43);
+        // below, at and well past the 16-hit insertion sort runs, so the merge passes run too
+        int[] sizes = {1, 2, 15, 16, 17, 33, 64, 100, 257, 1000};
+        for (int n : sizes) {
+            for (int trial = 0; trial < 5; trial++) {
+                String categoryFilter = trial % 2 == 0 ? null : "POLITICS";
+                List<RankHit> hits = pool(random, n, null);
+                // limits on both sides of k * 4 < n: the bounded heap and the full sort
+                for (int limit : new int[] {1, 3, n / 4, n / 4 + 1, n / 2, n, n + 10}) {
+                    if (limit > 0) assertRankMatchesReRank(hits, categoryFilter, limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rankMatchesReRankOnTiedScores() {
+        Random random = new Random(4343);
+        for (int n : new int[] {17, 40, 200, 1000}) {
+            for (int trial = 0; trial < 5; trial++) {
+                String categoryFilter = trial % 2 == 0 ? null : "POLITICS";
+                List<RankHit> hits = tiedPool(random, n, null);
+                for (int limit : new int[] {1, 5, n / 4 - 1, n / 4 + 1, n}) {
+                    assertRankMatchesReRank(hits, categoryFilter, limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rankOrderIsTheReRankOrder() {
+        List<RankHit> hits = pool(new Random(1), 300, null);
+        List<String> expected = new ArrayList<>();
+        for (NewsArticle article : rankingService.reRank(articles(hits), esScores(hits), "WELLNESS")) {
+            expected.add(article.getId());
+        }
+
+        List<String> actual = new ArrayList<>();
+        for (RankHit hit : rankingService.rank(hits, "WELLNESS").hits()) actual.add(hit.id());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * What Elasticsearch computes for a pool doc with rescoreSpec and score_mode total:
+     * RESCORE_SCRIPT evaluated in Java, weighted and summed in float like Lucene scores.
+     */
+    private static float rescoreScore(RankingService.RescoreSpec spec, RankHit hit) {
+        Map<String, Object> params = spec.params();
+        int maxClicks = (Integer) params.get("maxClicks");
+        long today = (Long) params.get("today");
+        double decayDays = (Double) params.get("decayDays");
+
+        double popularity = Math.log1p(hit.clickCount()) / Math.log1p(maxClicks);
+        double freshness = 0.1;
+        if (hit.date() != null) {
+            long ageInDays = today - hit.date().toEpochDay();
+            if (ageInDays < 0) ageInDays = 0;
+            freshness = 1.0 / (1.0 + ageInDays / decayDays);
+        }
+        double script = (Double) params.get("offset")
+                + (Double) params.get("popularityWeight") * popularity
+                + (Double) params.get("freshnessWeight") * freshness;
+
+        return spec.queryWeight() * (float) hit.esScore() + spec.rescoreQueryWeight() * (float) script;
+    }
+
+    private static RankingService.RescoreSpec specFor(RankingService service, List<RankHit> hits,
+                                                      String categoryFilter) {
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        int maxClicks = 0;
+        for (RankHit hit : hits) {
+            min = Math.min(min, hit.esScore());
+            max = Math.max(max, hit.esScore());
+            maxClicks = Math.max(maxClicks, hit.clickCount());
+        }
+        return service.rescoreSpec(min, max, maxClicks, categoryFilter);
+    }
+
+    @Test
+    void rescoreFormulaOrdersPoolLikeRank() {
+        Random random = new Random(41);
+        for (int trial = 0; trial < 200; trial++) {
+            // the category filter is a term filter, so a filtered pool is all one category
+            String categoryFilter = trial % 2 == 0 ? null : "SPORTS";
+            List<RankHit> hits = pool(random, 1 + random.nextInt(150), categoryFilter);
+
+            RankingService.Ranking ranking = rankingService.rank(hits, categoryFilter);
+            RankingService.RescoreSpec spec = specFor(rankingService, hits, categoryFilter);
+
+            // rank()'s order must be non-increasing in the rescore score; float rounding
+            // may only swap hits whose rank() scores are practically tied
+            for (int i = 1; i < ranking.hits().size(); i++) {
+                float previous = rescoreScore(spec, ranking.hits().get(i - 1));
+                float current = rescoreScore(spec, ranking.hits().get(i));
+                if (previous >= current) continue;
+
+                double gap = ranking.scores()[i - 1] - ranking.scores()[i];
+                assertTrue(gap < 1e-5, "trial " + trial + ", rank " + i + ": rescore " + previous + " < " + current
+                        + " but rank() gap " + gap);
+            }
+        }
+    }
+
+    @Test
+    void rescoreScoreIsRankScoreUpToAConstant() {
+        config.setCategoryMatchBoost(1.5);
+        List<RankHit> hits = pool(new Random(7), 60, "TRAVEL");
+
+        RankingService.Ranking ranking = rankingService.rank(hits, "TRAVEL");
+        RankingService.RescoreSpec spec = specFor(rankingService, hits, "TRAVEL");
+
+        double shift = rescoreScore(spec, ranking.hits().get(0)) - ranking.scores()[0];
+        for (int i = 0; i < ranking.hits().size(); i++) {
+            assertEquals(ranking.scores()[i] + shift, rescoreScore(spec, ranking.hits().get(i)), 1e-4);
+        }
+    }
+
+    @Test
+    void rescoreScriptStaysNonNegative() {
+        config.setPopularityWeight(-0.4);
+        config.setFreshnessWeight(-0.6);
+        List<RankHit> hits = pool(new Random(3), 50, null);
+        RankingService.RescoreSpec spec = specFor(rankingService, hits, null);
+
+        for (RankHit hit : hits) {
+            float script = (rescoreScore(spec, hit) - spec.queryWeight() * (float) hit.esScore())
+                    / spec.rescoreQueryWeight();
+            assertTrue(script >= -1e-6, "negative script score " + script);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTests {
+
+    private final SearchResultCache cache = new SearchResultCache(new SearchCacheConfig());
+
+    private static SearchResponse page(String... ids) {
+        List<NewsArticle> articles = new ArrayList<>();
+        for (String id : ids) {
+            NewsArticle article = new NewsArticle();
+            article.setId(id);
+            articles.add(article);
+        }
+        return new SearchResponse(articles, Map.of());
+    }
+
+    private SearchResultCache.Key key(String sessionId, int page) {
+        return cache.key("  Climate Change ", null, "B", sessionId, FieldProjection.ALL, PageRequest.of(page, 2));
+    }
+
+    @Test
+    void sessionsPagingTheSameQueryDoNotShareResponses() {
+        // session 1 pages through its pool
+        for (int p = 0; p < 3; p++) {
+            SearchResultCache.Key k = key("session-1", p);
+            assertNull(cache.get(k));
+            cache.put(k, page("s1-" + (2 * p), "s1-" + (2 * p + 1)));
+        }
+
+        // session 2 asks for the same pages and must rank its own
+        for (int p = 0; p < 3; p++) {
+            SearchResultCache.Key k = key("session-2", p);
+            assertNull(cache.get(k), "session 2 got session 1's page " + p);
+            cache.put(k, page("s2-" + (2 * p), "s2-" + (2 * p + 1)));
+        }
+
+        for (int p = 0; p < 3; p++) {
+            assertEquals("s1-" + (2 * p), cache.get(key("session-1", p)).articles().get(0).getId());
+            assertEquals("s2-" + (2 * p), cache.get(key("session-2", p)).articles().get(0).getId());
+        }
+    }
+
+    @Test
+    void sessionIndependentResponsesAreShared() {
+        SearchResultCache.Key first = cache.key("climate", null, "A", null, FieldProjection.ALL, PageRequest.of(0, 2));
+        SearchResultCache.Key second = cache.key(" CLIMATE ", null, "A", null, FieldProjection.ALL, PageRequest.of(0, 2));
+        assertEquals(first, second);
+    }
+
+    @Test
+    void clicksDropOnlyResponsesShowingTheArticle() {
+        SearchResultCache.Key withA = key(null, 0);
+        SearchResultCache.Key withoutA = key(null, 1);
+        cache.put(withA, page("a", "b"));
+        cache.put(withoutA, page("c", "d"));
+
+        cache.invalidateArticles(Set.of("a"));
+
+        assertNull(cache.get(withA));
+        assertNotNull(cache.get(withoutA));
+        assertEquals(1, cache.stats().responses().invalidations());
+    }
+
+    @Test
+    void clickIndexOnlyHoldsCachedResponses() throws InterruptedException {
+        SearchCacheConfig small = new SearchCacheConfig();
+        small.setMaxEntries(50);
+        SearchResultCache cache = new SearchResultCache(small);
+
+        // concurrent puts keep evicting and rejecting each other's keys
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int writer = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    String q = "q" + writer + "-" + i;
+                    cache.put(cache.key(q, null, "A", null, FieldProjection.ALL, PageRequest.of(0, 2)),
+                            page(q + "-a", q + "-b"));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) writer.join();
+
+        SearchResultCache.SearchCacheStats stats = cache.stats();
+        assertEquals(2 * stats.responses().size(), stats.indexedArticles());
+    }
+
+    @Test
+    void overwrittenResponseIsNotInvalidatedByItsOldArticles() {
+        SearchResultCache.Key k = key(null, 0);
+        cache.put(k, page("a", "b"));
+        cache.put(k, page("c", "d"));
+
+        cache.invalidateArticles(Set.of("a"));
+        assertNotNull(cache.get(k));
+
+        cache.invalidateArticles(Set.of("d"));
+        assertNull(cache.get(k));
+    }
+}
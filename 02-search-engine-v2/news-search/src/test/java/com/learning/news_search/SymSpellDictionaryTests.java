@@ -0,0 +1,89 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymSpellDictionaryTests {
+
+    private static SymSpellDictionary dictionary() {
+        SymSpellDictionary d = new SymSpellDictionary(2, 7);
+        d.addWord("climate", 50);
+        d.addWord("change", 40);
+        d.addWord("charge", 5);
+        d.addWord("election", 30);
+        d.addWord("elections", 10);
+        d.addWord("politics", 20);
+        return d;
+    }
+
+    @Test
+    void knownWordHasNoSuggestion() {
+        assertNull(dictionary().suggestWord("climate"));
+    }
+
+    @Test
+    void correctsDeletionInsertionSubstitutionAndTransposition() {
+        SymSpellDictionary d = dictionary();
+        assertEquals("climate", d.suggestWord("climte"));
+        assertEquals("climate", d.suggestWord("climatte"));
+        assertEquals("politics", d.suggestWord("polutics"));
+        assertEquals("climate", d.suggestWord("cilmate"));
+    }
+
+    @Test
+    void prefersSmallerDistanceThenHigherFrequency() {
+        SymSpellDictionary d = dictionary();
+        // one edit from both change (40) and charge (5)
+        assertEquals("change", d.suggestWord("chaxge"));
+        // elction: one edit from election, two from elections
+        assertEquals("election", d.suggestWord("elction"));
+    }
+
+    @Test
+    void nothingBeyondMaxEditDistance() {
+        assertNull(dictionary().suggestWord("xyzzyq"));
+        assertNull(dictionary().suggestWord("clmt"));
+    }
+
+    @Test
+    void wordsLongerThanThePrefixStillMatch() {
+        SymSpellDictionary d = new SymSpellDictionary(2, 7);
+        d.addWord("infrastructure", 3);
+        assertEquals("infrastructure", d.suggestWord("infrastructur"));
+        assertEquals("infrastructure", d.suggestWord("infrastrcture"));
+    }
+
+    @Test
+    void suggestCorrectsOnlyUnknownTokens() {
+        SymSpellDictionary d = dictionary();
+        assertEquals("climate change", d.suggest("Climte  CHANGE"));
+        assertNull(d.suggest("climate change"));
+    }
+
+    @Test
+    void addingAWordTwiceSumsItsFrequency() {
+        SymSpellDictionary d = new SymSpellDictionary(2, 7);
+        d.addWord("change", 1);
+        d.addWord("charge", 3);
+        d.addWord("change", 5);
+        assertEquals(2, d.size());
+        // tie between change (1 + 5) and charge (3)
+        assertEquals("change", d.suggestWord("chaxge"));
+    }
+
+    @Test
+    void editDistanceCountsTranspositionAsOneAndStopsAtTheLimit() {
+        assertEquals(1, SymSpellDictionary.editDistance("ab", "ba", 5));
+        assertEquals(3, SymSpellDictionary.editDistance("kitten", "sitting", 5));
+        assertEquals(2, SymSpellDictionary.editDistance("kitten", "sitting", 1));
+    }
+
+    @Test
+    void tokenizeLowercasesAndSplitsOnNonAlphanumerics() {
+        assertEquals(List.of("covid", "19", "café"), SymSpellDictionary.tokenize("COVID-19, Café!"));
+        assertTrue(SymSpellDictionary.tokenize(null).isEmpty());
+    }
+}
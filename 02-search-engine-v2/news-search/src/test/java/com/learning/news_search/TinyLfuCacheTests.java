@@ -0,0 +1,94 @@
+package com.learning.news_search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTests {
+
+    private static final long HOUR = 3_600_000;
+
+    @Test
+    void burstOfOneOffKeysDoesNotFlushPopularOnes() {
+        // 100 entries: a window of 1, a main LRU of 99
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, HOUR);
+        for (int i = 0; i < 100; i++) cache.put("popular-" + i, i);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) assertNotNull(cache.get("popular-" + i));
+        }
+
+        for (int i = 0; i < 500; i++) cache.put("once-" + i, i);
+
+        int kept = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("popular-" + i) != null) kept++;
+        }
+        assertTrue(kept >= 99, "popular entries kept: " + kept);
+        assertTrue(cache.stats().admissionsRejected() >= 499);
+        assertEquals(100, cache.stats().size());
+    }
+
+    @Test
+    void frequentlyRequestedNewcomerIsAdmitted() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, HOUR);
+        for (int i = 0; i < 100; i++) cache.put("cold-" + i, i);
+
+        // asked for (and missed) often before it was ever cached
+        for (int i = 0; i < 5; i++) assertNull(cache.get("hot"));
+        cache.put("hot", 1);
+        cache.put("next", 2); // pushes "hot" out of the window
+
+        assertEquals(1, cache.get("hot"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void rejectedNewcomerIsAddedThenRemoved() {
+        List<String> events = new ArrayList<>();
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, HOUR,
+                (k, v) -> events.add("+" + k), (k, v) -> events.add("-" + k));
+        for (int i = 0; i < 100; i++) cache.put("k" + i, i);
+        for (int i = 0; i < 100; i++) cache.get("k" + i);
+        events.clear();
+
+        cache.put("once-1", 1); // pushes k99 out of the window; no more popular than main's LRU
+        cache.put("once-2", 2); // same for once-1, which was never asked for
+
+        assertEquals(List.of("+once-1", "-k99", "+once-2", "-once-1"), events);
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        List<String> removed = new ArrayList<>();
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(10, 50, (k, v) -> {}, (k, v) -> removed.add(k));
+        cache.put("a", 1);
+        assertEquals(1, cache.get("a"));
+
+        Thread.sleep(120);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0, cache.stats().size());
+        assertEquals(List.of("a"), removed);
+    }
+
+    @Test
+    void listenersHearAboutPutsInvalidationsAndOverwrites() {
+        List<String> events = new ArrayList<>();
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, HOUR,
+                (k, v) -> events.add("+" + k + "=" + v), (k, v) -> events.add("-" + k + "=" + v));
+        cache.put("a", 1);
+        cache.put("a", 2);
+        cache.put("b", 3);
+
+        assertTrue(cache.invalidate("b"));
+        assertFalse(cache.invalidate("b"));
+        cache.invalidateAll();
+
+        assertEquals(List.of("+a=1", "-a=1", "+a=2", "+b=3", "-b=3", "-a=2"), events);
+        assertEquals(0, cache.stats().size());
+    }
+}